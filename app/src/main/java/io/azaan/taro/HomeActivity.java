@@ -2,14 +2,74 @@ package io.azaan.taro;
 
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+import io.azaan.taro.io.azaan.taro.data.CalendarMath;
+import io.azaan.taro.io.azaan.taro.data.ChartSnapshot;
+import io.azaan.taro.io.azaan.taro.data.Granularity;
+import io.azaan.taro.io.azaan.taro.data.TransactionLog;
+import io.azaan.taro.io.azaan.taro.data.TransactionRollups;
+import io.azaan.taro.io.azaan.taro.viz.ValueFormatter;
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.TimeSeries;
+import io.azaan.taro.io.azaan.taro.viz.views.LineChart;
 import io.azaan.taro.io.azaan.taro.viz.views.StackedBarChart;
 
 public class HomeActivity extends AppCompatActivity {
+    private static final String TAG = HomeActivity.class.getSimpleName();
+
+
+    /**
+     * File in the app files dir the chart is saved to between runs
+     */
+    private static final String SNAPSHOT_FILE = "chart.snapshot";
+
+
+    /**
+     * File in the app files dir transactions are logged to
+     */
+    private static final String TRANSACTIONS_FILE = "transactions.log";
+
+
+    /**
+     * File in the app files dir the rollups of the log are saved to,
+     * so only transactions logged since are read on the next start
+     */
+    private static final String ROLLUPS_FILE = "transactions.rollups";
+
+
+    /**
+     * Days shown on the chart, ending today
+     */
+    private static final int CHART_DAYS = 30;
+
+
+    /**
+     * Days shown on the running total chart, ending today. Transactions
+     * before are only read as their total from the rollups.
+     */
+    private static final int TOTAL_DAYS = 365;
+
+
+    /**
+     * Saves snapshots one at a time and in order, so a quick stop and
+     * start can not have an older snapshot replace a newer one
+     */
+    private static final ExecutorService sSnapshotWriter = Executors.newSingleThreadExecutor();
+
+
+    private StackedBarChart mChart;
+    private LineChart mTotalChart;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -20,16 +80,173 @@ public class HomeActivity extends AppCompatActivity {
             getSupportActionBar().setElevation(0);
         }
 
-        List<StackedBarData> data = new ArrayList<>();
-        data.add(new StackedBarData("Sun", 100));
-        data.add(new StackedBarData("Mon", 150));
-        data.add(new StackedBarData("Tue", 180));
-        data.add(new StackedBarData("Wed", 242));
-        data.add(new StackedBarData("Thu", 329));
-        data.add(new StackedBarData("Fri", 80));
-        data.add(new StackedBarData("Sat", 50));
-
-        StackedBarChart chart = (StackedBarChart) findViewById(R.id.chart);
-        chart.setData(data);
+        mChart = (StackedBarChart) findViewById(R.id.chart);
+        mTotalChart = (LineChart) findViewById(R.id.total_chart);
+
+        // transactions are logged in cents
+        ValueFormatter currency = ValueFormatter.currency(Locale.getDefault());
+        mChart.setValueFormatter(currency);
+        mTotalChart.setValueFormatter(currency);
+        mTotalChart.setViewportEnabled(true);
+
+        // paint the bars of the last run right away
+        ChartSnapshot snapshot = readSnapshot();
+        if (snapshot != null) {
+            mChart.showSnapshot(snapshot);
+        }
+
+        // and replace them once the fresh data is loaded
+        loadTransactions();
+    }
+
+
+    /**
+     * Sums the transactions of the last days per day and makes the running
+     * total of all transactions on a background thread, and hands the
+     * results to the charts
+     */
+    private void loadTransactions() {
+        final File file = new File(getFilesDir(), TRANSACTIONS_FILE);
+        final File rollupsFile = new File(getFilesDir(), ROLLUPS_FILE);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final ColumnarData data;
+                final TimeSeries total;
+                try {
+                    TransactionLog log = TransactionLog.open(file);
+                    try {
+                        TimeZone timeZone = TimeZone.getDefault();
+                        long now = System.currentTimeMillis();
+                        if (log.size() == 0) {
+                            addSampleTransactions(log, timeZone, now);
+                        }
+
+                        // other granularities are answered from the same rollups
+                        TransactionRollups rollups = TransactionRollups.attach(
+                                log, rollupsFile, timeZone, TransactionRollups.ALL_CATEGORIES
+                        );
+                        if (!rollups.isSaved()) {
+                            rollups.write(rollupsFile);
+                        }
+
+                        data = readChartData(rollups, now);
+                        total = readRunningTotal(log, rollups, timeZone, now);
+                    } finally {
+                        log.close();
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Reading transactions failed", e);
+                    return;
+                }
+
+                mChart.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mChart.setDataAsync(data);
+                        mTotalChart.setData(total);
+                    }
+                });
+            }
+        }, "transactions").start();
+    }
+
+
+    /**
+     * Gets the sum of every day shown on the chart from the rollups
+     */
+    private static ColumnarData readChartData(TransactionRollups rollups, long now) {
+        long today = rollups.bucketOf(Granularity.DAY, now);
+
+        return rollups.toColumnarData(Granularity.DAY, today - CHART_DAYS + 1, today, new LabelDictionary());
+    }
+
+
+    /**
+     * Makes a point per transaction of the last days with the total of all
+     * transactions up to and including it. Only the transactions of those
+     * days are read from the log, the total before comes from the rollups.
+     */
+    private static TimeSeries readRunningTotal(TransactionLog log, TransactionRollups rollups,
+                                               TimeZone timeZone, long now) {
+        long firstDay = rollups.bucketOf(Granularity.DAY, now) - TOTAL_DAYS + 1;
+        final long totalBefore = rollups.getTotalBefore(Granularity.DAY, firstDay);
+        final TimeSeries series = new TimeSeries();
+
+        long from = CalendarMath.startOfDay(firstDay, timeZone);
+        log.scan(from, Long.MAX_VALUE, TransactionLog.ALL_CATEGORIES, new TransactionLog.Visitor() {
+            private long mTotal = totalBefore;
+            private long mLast = Long.MIN_VALUE;
+
+            @Override
+            public void onTransaction(long timestamp, long amount, int category) {
+                // the log is in append order, a transaction logged late
+                // is drawn at the time of the one before it
+                mLast = Math.max(mLast, timestamp);
+                mTotal += amount;
+                series.add(mLast, mTotal);
+            }
+        });
+
+        return series;
+    }
+
+
+    /**
+     * Fills an empty log with a few made up transactions
+     * a day so there is something to show
+     */
+    private static void addSampleTransactions(TransactionLog log, TimeZone timeZone, long now) throws IOException {
+        long today = CalendarMath.epochDay(now, timeZone);
+        long from = CalendarMath.startOfDay(today - CHART_DAYS + 1, timeZone);
+
+        Random random = new Random(42);
+        long hour = 60 * 60 * 1000;
+
+        for (long timestamp = from; timestamp < now; timestamp += hour * (1 + random.nextInt(12))) {
+            log.append(timestamp, 100 + random.nextInt(5000), random.nextInt(4));
+        }
+
+        log.sync();
+    }
+
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        final ChartSnapshot snapshot = mChart.makeSnapshot();
+        final File file = getSnapshotFile();
+
+        sSnapshotWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot.write(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Saving chart snapshot failed", e);
+                }
+            }
+        });
+    }
+
+
+    private ChartSnapshot readSnapshot() {
+        File file = getSnapshotFile();
+        try {
+            return ChartSnapshot.read(file);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable chart snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+
+    private File getSnapshotFile() {
+        return new File(getFilesDir(), SNAPSHOT_FILE);
     }
 }
@@ -0,0 +1,217 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of offscreen bitmaps shared across chart instances.
+ *
+ * Bitmaps are bucketed by allocation size (powers of two). A request is
+ * served by any pooled bitmap whose allocation is large enough, which is
+ * then reconfigured to the requested dimensions, so a chart resizing or
+ * re-laying out does not allocate a new native buffer.
+ *
+ * The byte budget covers every bitmap handed out by the pool, idle or
+ * checked out. Idle bitmaps are evicted to make room for new allocations
+ * and bitmaps released while the pool is over budget are recycled, so
+ * idle plus checked out bytes only exceed the budget while the checked
+ * out bitmaps alone do.
+ */
+public class BitmapPool {
+
+    /**
+     * Default budget for bitmaps owned by the pool, in bytes
+     */
+    public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+
+    /**
+     * Bytes per pixel for ARGB_8888
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+
+    /**
+     * A bitmap is only reused for a request if its allocation
+     * is at most this many buckets above the requested size
+     */
+    private static final int MAX_BUCKET_STEP = 1;
+
+
+    private static final int BUCKET_COUNT = 32;
+
+
+    /**
+     * Pool shared by all charts
+     */
+    private static BitmapPool sShared;
+
+
+    /**
+     * Idle bitmaps, indexed by bucket
+     */
+    private final List<List<Bitmap>> mBuckets = new ArrayList<>(BUCKET_COUNT);
+
+
+    /**
+     * Budget, current size of idle bitmaps and of
+     * bitmaps handed out and not yet released
+     */
+    private long mMaxBytes;
+    private long mPooledBytes = 0;
+    private long mAcquiredBytes = 0;
+
+
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.add(new ArrayList<Bitmap>());
+        }
+    }
+
+
+    /**
+     * @return pool shared by all charts
+     */
+    public static synchronized BitmapPool getShared() {
+        if (sShared == null) {
+            sShared = new BitmapPool(DEFAULT_MAX_BYTES);
+        }
+
+        return sShared;
+    }
+
+
+    /**
+     * Gets a cleared ARGB_8888 bitmap of the given dimensions. A pooled
+     * bitmap is reused if one is large enough, otherwise idle bitmaps are
+     * evicted to make room within the budget and a new one is created.
+     *
+     * @param w width in pixels
+     * @param h height in pixels
+     * @return bitmap
+     */
+    public synchronized Bitmap acquire(int w, int h) {
+        if (w <= 0 || h <= 0) {
+            throw new IllegalArgumentException("Invalid bitmap size w=" + w + " h=" + h);
+        }
+
+        int needed = w * h * BYTES_PER_PIXEL;
+        int first = bucketFor(needed);
+        int last = Math.min(BUCKET_COUNT - 1, first + MAX_BUCKET_STEP);
+
+        for (int b = first; b <= last; b++) {
+            List<Bitmap> bucket = mBuckets.get(b);
+
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = bucket.get(i);
+                int bytes = bitmap.getAllocationByteCount();
+                if (bytes < needed) {
+                    continue;
+                }
+
+                bucket.remove(i);
+                mPooledBytes -= bytes;
+                mAcquiredBytes += bytes;
+
+                bitmap.reconfigure(w, h, Bitmap.Config.ARGB_8888);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+
+        trimTo(mMaxBytes - mAcquiredBytes - needed);
+
+        Bitmap bitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        mAcquiredBytes += bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+
+    /**
+     * Returns a bitmap to the pool. The bitmap must not be
+     * used by the caller after this.
+     *
+     * @param bitmap bitmap, ignored if null or recycled
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        int bytes = bitmap.getAllocationByteCount();
+        mAcquiredBytes = Math.max(0, mAcquiredBytes - bytes);
+
+        if (!bitmap.isMutable() || bytes > mMaxBytes - mAcquiredBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        mBuckets.get(bucketFor(bytes)).add(bitmap);
+        mPooledBytes += bytes;
+
+        trimTo(mMaxBytes - mAcquiredBytes);
+    }
+
+
+    /**
+     * Sets the budget for bitmaps owned by the pool, evicting
+     * idle bitmaps if needed
+     *
+     * @param maxBytes budget in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimTo(maxBytes - mAcquiredBytes);
+    }
+
+
+    /**
+     * Recycles all idle bitmaps
+     */
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized long getPooledBytes() {
+        return mPooledBytes;
+    }
+
+    public synchronized long getAcquiredBytes() {
+        return mAcquiredBytes;
+    }
+
+
+    /**
+     * Evicts idle bitmaps, largest first, until the pool
+     * holds at most the given number of idle bytes
+     */
+    private void trimTo(long maxBytes) {
+        for (int b = BUCKET_COUNT - 1; b >= 0 && mPooledBytes > maxBytes; b--) {
+            List<Bitmap> bucket = mBuckets.get(b);
+
+            while (!bucket.isEmpty() && mPooledBytes > maxBytes) {
+                Bitmap bitmap = bucket.remove(bucket.size() - 1);
+                mPooledBytes -= bitmap.getAllocationByteCount();
+                bitmap.recycle();
+            }
+        }
+    }
+
+
+    /**
+     * Bucket index for an allocation size, ceil(log2(bytes))
+     */
+    private static int bucketFor(int bytes) {
+        return bytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes - 1);
+    }
+}
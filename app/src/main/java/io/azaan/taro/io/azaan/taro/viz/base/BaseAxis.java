@@ -34,6 +34,16 @@ public abstract class BaseAxis {
     private boolean mDebug = false;
 
 
+    /**
+     * Does the axis need to be redrawn.
+     *
+     * Set on any change that affects what is drawn (slots, dimensions,
+     * debug mode, alignment, paints) and cleared by the chart once the
+     * axis has been rendered to its offscreen bitmap.
+     */
+    private boolean mDirty = true;
+
+
     /**
      * width and height of the axis.
      */
@@ -68,10 +78,6 @@ public abstract class BaseAxis {
      */
     private Orientation mOrientation;
 
-    public enum Orientation {
-        HORIZONTAL, VERTICAL
-    }
-
 
     /**
      * BaseAxis slot align.
@@ -79,11 +85,51 @@ public abstract class BaseAxis {
      */
     private Alignment mAlignment = Alignment.CENTER;
 
-    public enum Alignment {
-        START, CENTER, END
+
+    /**
+     * Which labels are drawn when there are more slots than
+     * there is space for their labels.
+     *
+     * NONE - every label is drawn, ellipsized to the space it has
+     * EVERY_KTH - every k-th label is drawn, k is picked so that the
+     *             widest label fits
+     * COLLISION_FREE - labels are drawn in order, skipping any that would
+     *                  overlap the previously drawn label
+     *
+     * Slots are always laid out, thinning only affects what is drawn.
+     */
+    private LabelThinning mLabelThinning = LabelThinning.EVERY_KTH;
+
+    public enum LabelThinning {
+        NONE, EVERY_KTH, COLLISION_FREE
     }
 
 
+    /**
+     * Viewport over the slots on the major axis.
+     *
+     * Slots are laid out over the axis size times the viewport scale
+     * (content coordinates) and the axis shows the part starting at the
+     * viewport offset. Slot positions are always in content coordinates.
+     */
+    private float mViewportScale = 1;
+    private float mViewportOffset = 0;
+
+
+    /**
+     * Range of slots which are (partly) inside the viewport.
+     * Empty if mLastVisibleSlot < mFirstVisibleSlot.
+     */
+    private int mFirstVisibleSlot = 0;
+    private int mLastVisibleSlot = -1;
+
+
+    /**
+     * Incremented every time the slots are laid out
+     */
+    private int mLayoutVersion = 0;
+
+
     /**
      * Calculated dimensions.
      */
@@ -95,7 +141,23 @@ public abstract class BaseAxis {
 
 
     /**
-     * Paint objects
+     * Colors and text metrics, shared with other axes. mOwnStyle is set
+     * once the axis was given a style of its own, the chart style no
+     * longer replaces it then.
+     */
+    private ChartStyle mStyle;
+    private boolean mOwnStyle = false;
+
+
+    /**
+     * Paints of this axis, set from the style
+     */
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+
+    /**
+     * Outlines the slots in debug mode, created when first needed
      */
     private Paint mDebugPaint;
 
@@ -113,6 +175,24 @@ public abstract class BaseAxis {
     private List<Slot> mSlots = new ArrayList<>();
 
 
+    /**
+     * Index from slot id to position in mSlots
+     */
+    private SlotIndex mSlotIndex = new SlotIndex();
+
+
+    /**
+     * Do the slot positions match the current dimensions
+     */
+    private boolean mLaidOut = false;
+
+
+    /**
+     * Time spent laying out since {@link #takeLayoutNanos()} was last called
+     */
+    private long mLayoutNanos = 0;
+
+
     public BaseAxis(Context mContext, Orientation orientation) {
         this.mContext = mContext;
         this.mOrientation = orientation;
@@ -122,10 +202,8 @@ public abstract class BaseAxis {
         mMaxSeparation = Helpers.pxFromDp(mContext, mMaxSeparation);
         mMaxSlotWidth = Helpers.pxFromDp(mContext, mMaxSlotWidth);
 
-        // set up paint objects
-        mDebugPaint = new Paint();
-        mDebugPaint.setColor(Color.RED);
-        mDebugPaint.setStyle(Paint.Style.STROKE);
+        mStyle = ChartStyle.getDefault(mContext);
+        setUpPaints();
     }
 
     /**
@@ -137,78 +215,311 @@ public abstract class BaseAxis {
      * The function calculates and updates the values for all slots.
      */
     private void layout() {
-        float countF = (float) mSlots.size();
+        long start = System.nanoTime();
+
+        AxisLayout layout = newLayout();
+        mLaidOut = layout.position(mSlots);
+        if (mLaidOut) {
+            copyDimensions(layout);
+        }
 
-        boolean valid = mW > 0 && mH > 0;
-        boolean hasSlots = countF > 0;
-        if (!valid || !hasSlots) {
+        updateViewport();
+        mLayoutNanos += System.nanoTime() - start;
+    }
+
+
+    /**
+     * Lays out the axis after the slots from the given position on
+     * changed. If the slot dimensions come out the same as before only
+     * those slots are positioned, slots before them stay where they are.
+     *
+     * @param from position of the first changed slot
+     */
+    private void layoutFrom(int from) {
+        long start = System.nanoTime();
+
+        AxisLayout layout = newLayout();
+        if (!layout.measure(mSlots.size())) {
+            mLaidOut = false;
+            updateViewport();
+            mLayoutNanos += System.nanoTime() - start;
             return;
         }
 
-        calculateSlotSize();
+        boolean same = mLaidOut && layout.sameGeometry(
+                mSlotWidth, mSlotHeight, mSlotSeparation, mSlotStartX, mSlotStartY
+        );
 
-        float maxMajor = mOrientation == Orientation.HORIZONTAL ? mW : mH;
-        float majorSlotSize = mOrientation == Orientation.HORIZONTAL ? mSlotWidth : mSlotHeight;
+        layout.place(mSlots, same ? from : 0, mSlots.size());
 
-        // calculate slot separation
-        float slotSeparation = (float) Math.floor((maxMajor - majorSlotSize * countF) / (countF - 1));
+        mLaidOut = true;
+        copyDimensions(layout);
+        updateViewport();
+        mLayoutNanos += System.nanoTime() - start;
+    }
 
-        // if slot size calculation is implemented properly this should
-        // never happen
-        if (slotSeparation < mMinSeparation) {
-            // slot size calculation was done wrong.
-            throw new IllegalStateException(
-                    "SlotSize calculation done wrong. separation < min separation" +
-                            " sep=" + slotSeparation + " minSep=" + mMinSeparation
-            );
-        }
 
-        // bound separation to max
-        mSlotSeparation = Math.min(mMaxSeparation, slotSeparation);
+    /**
+     * Gets the time spent laying out slots since the last call
+     *
+     * @return nanoseconds
+     */
+    long takeLayoutNanos() {
+        long nanos = mLayoutNanos;
+        mLayoutNanos = 0;
+        return nanos;
+    }
 
-        // all major slot size = (slot size + separation between them)
-        float slotTotalSize = getTotalSlotSize();
 
-        float majorSlotStart = -1;
-        switch (mAlignment) {
-            case START:
-                majorSlotStart = 0;
-                break;
+    /**
+     * Creates a layout for the current configuration of the axis. The
+     * layout can be prepared with new slots on any thread and then
+     * applied with {@link #applyLayout(AxisLayout)}.
+     *
+     * @return empty layout
+     */
+    public AxisLayout newLayout() {
+        return new AxisLayout(
+                mW, mH,
+                mOrientation, mAlignment,
+                mMinSeparation, mMaxSeparation, mMaxSlotWidth,
+                mViewportScale
+        );
+    }
 
-            case END:
-                majorSlotStart = maxMajor - slotTotalSize;
-                break;
 
-            case CENTER:
-                majorSlotStart = (maxMajor / 2f) - (slotTotalSize / 2f);
-                break;
+    /**
+     * Swaps in the slots of a prepared layout. If the axis configuration
+     * changed since the layout was created the slots are laid out again,
+     * otherwise the prepared positions are used as is.
+     *
+     * @param layout layout prepared with {@link AxisLayout#prepare(List)}
+     */
+    public void applyLayout(AxisLayout layout) {
+        if (layout.slots == null) {
+            throw new IllegalArgumentException("Layout has not been prepared");
         }
 
-        if (majorSlotStart == -1) {
-            throw new IllegalStateException("Slot alignment behaviour not defined alignment=" + mAlignment);
+        mSlots = layout.slots;
+        mSlotIndex = layout.index;
+
+        if (layout.orientation != mOrientation) {
+            Collections.reverse(mSlots);
+            mSlotIndex.rebuild(mSlots);
         }
 
-        if (mOrientation == Orientation.HORIZONTAL) {
-            mSlotStartX = majorSlotStart;
-            mSlotStartY = 0;
+        markDirty();
+
+        if (layout.laidOut && layout.matches(mW, mH, mOrientation, mAlignment, mViewportScale)) {
+            mLaidOut = true;
+            copyDimensions(layout);
+            updateViewport();
         } else {
-            mSlotStartX = 0;
-            mSlotStartY = majorSlotStart;
+            layout();
+        }
+    }
+
+
+    /**
+     * Takes over the calculated dimensions of a layout
+     */
+    private void copyDimensions(AxisLayout layout) {
+        mSlotWidth = layout.slotWidth;
+        mSlotHeight = layout.slotHeight;
+        mSlotSeparation = layout.slotSeparation;
+        mSlotStartX = layout.slotStartX;
+        mSlotStartY = layout.slotStartY;
+        mLayoutVersion++;
+    }
+
+
+    /**
+     * Sets the viewport of the axis. The scale is bounded to
+     * [1, {@link #getMaxViewportScale()}] and the offset to the content.
+     *
+     * Changing the scale lays out all slots again, changing only the
+     * offset just finds the new range of visible slots. Slot positions
+     * are in content coordinates so a scroll that keeps the same slots
+     * visible leaves everything derived from the layout as it is.
+     *
+     * @param scale zoom factor, 1 shows all slots
+     * @param offset start of the viewport in content coordinates
+     */
+    public void setViewport(float scale, float offset) {
+        scale = Math.max(1, Math.min(getMaxViewportScale(), scale));
+
+        if (scale != mViewportScale) {
+            mViewportScale = scale;
+            mViewportOffset = offset;
+
+            markDirty();
+            layout();
+            return;
         }
 
-        // calculate and store slot positions
-        for (int i = 0; i < mSlots.size(); i++) {
-            Slot slot = mSlots.get(i);
+        if (offset != mViewportOffset) {
+            mViewportOffset = offset;
+
+            markDirty();
+            scrollViewport();
+        }
+    }
+
+
+    /**
+     * Moves the viewport by the given distance
+     *
+     * @param distance distance in pixels, positive moves towards the end
+     */
+    public void panViewport(float distance) {
+        setViewport(mViewportScale, mViewportOffset + distance);
+    }
+
+
+    /**
+     * Zooms the viewport keeping the content under the
+     * focus point in place
+     *
+     * @param factor factor to multiply the scale with
+     * @param focus focus point on the major axis, relative to the axis start
+     */
+    public void zoomViewport(float factor, float focus) {
+        float scale = Math.max(1, Math.min(getMaxViewportScale(), mViewportScale * factor));
+        float offset = (mViewportOffset + focus) * (scale / mViewportScale) - focus;
+
+        setViewport(scale, offset);
+    }
+
+
+    /**
+     * The largest useful viewport scale, beyond it slots would
+     * not get any bigger or further apart
+     *
+     * @return max scale
+     */
+    public float getMaxViewportScale() {
+        float major = getViewLength();
+        if (major <= 0 || mSlots.isEmpty()) {
+            return 1;
+        }
+
+        return Math.max(1, mSlots.size() * (mMaxSlotWidth + mMaxSeparation) / major);
+    }
+
+
+    /**
+     * Bounds the viewport offset to the content, finds the
+     * visible slots and notifies child classes
+     */
+    private void updateViewport() {
+        boundViewportOffset();
+        updateVisibleSlots();
+        onLayoutChanged();
+    }
+
+
+    /**
+     * Bounds the viewport offset to the content and finds the visible
+     * slots after a scroll. Child classes are only notified if the
+     * range of visible slots changed.
+     */
+    private void scrollViewport() {
+        int first = mFirstVisibleSlot;
+        int last = mLastVisibleSlot;
+
+        boundViewportOffset();
+        updateVisibleSlots();
+
+        if (first != mFirstVisibleSlot || last != mLastVisibleSlot) {
+            onLayoutChanged();
+        }
+    }
+
 
-            float slotPos = majorSlotStart + (majorSlotSize + slotSeparation) * i;
-            if (mOrientation == Orientation.HORIZONTAL) {
-                slot._x = slotPos;
-                slot._y = 0;
+    private void boundViewportOffset() {
+        float maxOffset = Math.max(0, getViewLength() * mViewportScale - getViewLength());
+        mViewportOffset = Math.max(0, Math.min(maxOffset, mViewportOffset));
+    }
+
+
+    /**
+     * Finds the range of slots inside the viewport with a binary
+     * search over the slot positions, which increase with the
+     * position in mSlots.
+     */
+    private void updateVisibleSlots() {
+        int count = mSlots.size();
+        float viewStart = mViewportOffset;
+        float viewEnd = mViewportOffset + getViewLength();
+        float majorSlotSize = mOrientation == Orientation.HORIZONTAL ? mSlotWidth : mSlotHeight;
+
+        // first slot which ends after the viewport start
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getMajorPos(mSlots.get(mid)) + majorSlotSize > viewStart) {
+                hi = mid;
             } else {
-                slot._x = 0;
-                slot._y = slotPos;
+                lo = mid + 1;
             }
         }
+
+        mFirstVisibleSlot = lo;
+
+        // first slot which starts at or after the viewport end
+        hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getMajorPos(mSlots.get(mid)) >= viewEnd) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        mLastVisibleSlot = lo - 1;
+    }
+
+
+    private float getMajorPos(Slot slot) {
+        return mOrientation == Orientation.HORIZONTAL ? slot._x : slot._y;
+    }
+
+
+    /**
+     * Size of the axis on the major axis
+     */
+    private float getViewLength() {
+        return mOrientation == Orientation.HORIZONTAL ? mW : mH;
+    }
+
+
+    /**
+     * Translates the canvas from axis to content coordinates. Anything
+     * positioned by slots should be drawn after calling this.
+     *
+     * @param canvas canvas
+     */
+    public void translateToViewport(Canvas canvas) {
+        if (mOrientation == Orientation.HORIZONTAL) {
+            canvas.translate(-mViewportOffset, 0);
+        } else {
+            canvas.translate(0, -mViewportOffset);
+        }
+    }
+
+
+    /**
+     * Gets the slot closest to a position on the axis, for hit-testing
+     * touches. O(log n) in the number of slots.
+     *
+     * @param pos position on the major axis relative to the axis start,
+     *            i.e. in view and not content coordinates
+     * @return position in {@link #getSlots()} of the slot, -1 if there are no slots
+     */
+    public int getSlotAtPos(float pos) {
+        return AxisLayout.nearestSlot(mSlots, mOrientation, mSlotWidth, mSlotHeight, pos + mViewportOffset);
     }
 
 
@@ -219,12 +530,12 @@ public abstract class BaseAxis {
      * @return slot with given id
      */
     private Slot getSlotById(int slotId) {
-        for (Slot slot : mSlots) {
-            if (slot.id == slotId)
-                return slot;
+        int index = mSlotIndex.indexOf(slotId);
+        if (index == SlotIndex.NOT_FOUND) {
+            return null;
         }
 
-        return null;
+        return mSlots.get(index);
     }
 
 
@@ -243,35 +554,6 @@ public abstract class BaseAxis {
     }
 
 
-    /**
-     * Calculates the slot size. The maximum possible size is given
-     * in the major axis and is bounded by mMaxSlotWidth. In the minor axis
-     * the size is the maximum possible size of the minor axis
-     * 
-     * Must ensure that slot sizes are small enough such that minSeparation
-     * can be respected.
-     */
-    protected void calculateSlotSize() {
-        // calculate for major axis
-        float majorMax = mOrientation == Orientation.HORIZONTAL ? mW : mH;
-
-        // float so all divisions are float divs
-        float countF = (float) mSlots.size();
-
-        // take the max available space (size - all min separation) and divide by number of slots
-        float majorSize = (float) Math.floor((majorMax - mMinSeparation * (countF - 1)) / countF);
-        majorSize = Math.min(mMaxSlotWidth, majorSize);
-
-        if (mOrientation == Orientation.HORIZONTAL) {
-            mSlotWidth = majorSize;
-            mSlotHeight = mH;
-        } else {
-            mSlotWidth = mW;
-            mSlotHeight = majorSize;
-        }
-    }
-
-
     /**
      * The child class should call this method
      * on draw.
@@ -280,8 +562,18 @@ public abstract class BaseAxis {
      */
     public void draw(Canvas canvas) {
         if (mDebug) {
-            // draw slots
-            for (Slot slot : mSlots) {
+            if (mDebugPaint == null) {
+                mDebugPaint = new Paint();
+                mDebugPaint.setColor(Color.RED);
+                mDebugPaint.setStyle(Paint.Style.STROKE);
+            }
+
+            int saveCount = canvas.save();
+            translateToViewport(canvas);
+
+            // draw visible slots
+            for (int i = mFirstVisibleSlot; i <= mLastVisibleSlot; i++) {
+                Slot slot = mSlots.get(i);
                 canvas.drawRect(
                         slot._x, slot._y,
                         // -0.1f as if the boundary line is on the edge of the canvas
@@ -290,9 +582,84 @@ public abstract class BaseAxis {
                         mDebugPaint
                 );
             }
+
+            canvas.restoreToCount(saveCount);
         }
     }
 
+    /**
+     * Sets the colors and text metrics the axis is drawn with. The
+     * axis keeps this style when the style of its chart changes.
+     *
+     * @param style style
+     */
+    public void setStyle(ChartStyle style) {
+        mOwnStyle = true;
+        applyStyle(style);
+    }
+
+
+    /**
+     * Sets the style of the chart the axis belongs to, unless
+     * the axis was given a style of its own
+     *
+     * @param style chart style
+     */
+    void setChartStyle(ChartStyle style) {
+        if (!mOwnStyle) {
+            applyStyle(style);
+        }
+    }
+
+
+    public ChartStyle getStyle() {
+        return mStyle;
+    }
+
+
+    /**
+     * @return paint the labels are drawn with, center aligned
+     */
+    protected Paint getLabelPaint() {
+        return mLabelPaint;
+    }
+
+
+    /**
+     * @return paint the axis line is drawn with
+     */
+    protected Paint getLinePaint() {
+        return mLinePaint;
+    }
+
+
+    private void applyStyle(ChartStyle style) {
+        if (style == mStyle) {
+            return;
+        }
+
+        mStyle = style;
+        setUpPaints();
+
+        onStyleChanged();
+        markDirty();
+    }
+
+
+    private void setUpPaints() {
+        mStyle.applyLabelStyle(mLabelPaint);
+        mLinePaint.setColor(mStyle.getLineColor());
+    }
+
+
+    /**
+     * Called when the style changes, implementations
+     * should drop anything measured with the old one
+     */
+    protected void onStyleChanged() {
+    }
+
+
     /**
      * Sets the width and height of the view
      *
@@ -303,6 +670,7 @@ public abstract class BaseAxis {
         mW = w;
         mH = h;
 
+        markDirty();
         layout();
     }
 
@@ -313,13 +681,78 @@ public abstract class BaseAxis {
      * @param slots slots
      */
     public void setSlots(List<Slot> slots) {
-        mSlots = new ArrayList<>(slots);
+        mSlots = AxisLayout.orderSlots(slots, mOrientation);
 
+        mSlotIndex.rebuild(mSlots);
+        markDirty();
+        layout();
+    }
+
+
+    /**
+     * Adds slots after the existing ones (below them for vertical axes)
+     * without rebuilding the slot list. The ids must not be in use yet.
+     *
+     * Slots keep their positions if the slot size and separation do not
+     * change, for example when there is still room at the end of the axis,
+     * in which case only the new slots are laid out.
+     *
+     * @param slots slots in data order
+     */
+    public void appendSlots(List<Slot> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+
+        int from;
         if (mOrientation == Orientation.VERTICAL) {
-            Collections.reverse(mSlots);
+            // vertical axes are in reverse data order, new slots go first
+            mSlots.addAll(0, AxisLayout.orderSlots(slots, mOrientation));
+            from = 0;
+        } else {
+            from = mSlots.size();
+            mSlots.addAll(slots);
         }
 
-        layout();
+        mSlotIndex.rebuild(mSlots);
+        markDirty();
+        layoutFrom(from);
+    }
+
+
+    /**
+     * Removes a slot. Ids of the other slots are left as they are,
+     * callers may change them before calling this as the index is
+     * rebuilt after the slot is removed.
+     *
+     * @param position position of the slot in {@link #getSlots()}
+     */
+    public void removeSlot(int position) {
+        if (position < 0 || position >= mSlots.size()) {
+            throw new IllegalArgumentException("Invalid slot position=" + position + " size=" + mSlots.size());
+        }
+
+        mSlots.remove(position);
+
+        mSlotIndex.rebuild(mSlots);
+        markDirty();
+        layoutFrom(position);
+    }
+
+
+    /**
+     * Call after changing the label or flags of a slot. The slot
+     * keeps its position, only the axis is redrawn.
+     *
+     * @param slotId id of the changed slot
+     */
+    public void updateSlot(int slotId) {
+        if (mSlotIndex.indexOf(slotId) == SlotIndex.NOT_FOUND) {
+            throw new IllegalArgumentException("No slot with id=" + slotId);
+        }
+
+        markDirty();
+        onLayoutChanged();
     }
 
 
@@ -334,15 +767,19 @@ public abstract class BaseAxis {
 
         if (orientation != mOrientation) {
             Collections.reverse(mSlots);
+            mSlotIndex.rebuild(mSlots);
         }
 
         this.mOrientation = orientation;
+
+        markDirty();
+        layout();
     }
 
 
     /**
      * Given a slot id get the start position of the slot
-     * on the major axis
+     * on the major axis, in content coordinates
      *
      * @param slotId slot id
      * @return position in pixels
@@ -361,7 +798,7 @@ public abstract class BaseAxis {
 
     /**
      * Given a slot id return the center position of the slot
-     * on the major axis.
+     * on the major axis, in content coordinates.
      *
      * @param slotId slot id
      * @return position in pixels
@@ -372,9 +809,68 @@ public abstract class BaseAxis {
             throw new IllegalArgumentException("No slot with id=" + slotId);
         }
 
-        return mOrientation == Orientation.HORIZONTAL ?
-                slot._x + mSlotWidth / 2f :
-                slot._y + mSlotHeight / 2f;
+        return AxisLayout.centerPos(slot, mOrientation, mSlotWidth, mSlotHeight);
+    }
+
+
+    /**
+     * Bulk version of {@link #getStartPosForSlot(int)}. Writes the start
+     * position of every slot in slotIds into out.
+     *
+     * @param slotIds slot ids
+     * @param out output positions in pixels, at least as long as slotIds
+     */
+    public void getStartPosForSlots(int[] slotIds, float[] out) {
+        getPosForSlots(slotIds, out, 0);
+    }
+
+
+    /**
+     * Bulk version of {@link #getCenterPosForSlot(int)}. Writes the center
+     * position of every slot in slotIds into out.
+     *
+     * @param slotIds slot ids
+     * @param out output positions in pixels, at least as long as slotIds
+     */
+    public void getCenterPosForSlots(int[] slotIds, float[] out) {
+        float majorSlotSize = mOrientation == Orientation.HORIZONTAL ? mSlotWidth : mSlotHeight;
+        getPosForSlots(slotIds, out, majorSlotSize / 2f);
+    }
+
+
+    /**
+     * Writes the major axis position of every slot in slotIds
+     * offset by the given amount into out.
+     */
+    private void getPosForSlots(int[] slotIds, float[] out, float offset) {
+        if (out.length < slotIds.length) {
+            throw new IllegalArgumentException(
+                    "Output array too small. ids=" + slotIds.length + " out=" + out.length
+            );
+        }
+
+        boolean horizontal = mOrientation == Orientation.HORIZONTAL;
+        for (int i = 0; i < slotIds.length; i++) {
+            int index = mSlotIndex.indexOf(slotIds[i]);
+            if (index == SlotIndex.NOT_FOUND) {
+                throw new IllegalArgumentException("No slot with id=" + slotIds[i]);
+            }
+
+            Slot slot = mSlots.get(index);
+            out[i] = (horizontal ? slot._x : slot._y) + offset;
+        }
+    }
+
+
+    /**
+     * Gets the position of the slot with the given id in the
+     * list returned by {@link #getSlots()}
+     *
+     * @param slotId slot id
+     * @return position or {@link SlotIndex#NOT_FOUND}
+     */
+    public int getIndexForSlot(int slotId) {
+        return mSlotIndex.indexOf(slotId);
     }
 
 
@@ -417,6 +913,10 @@ public abstract class BaseAxis {
         return mSlotHeight;
     }
 
+    public float getSlotSeparation() {
+        return mSlotSeparation;
+    }
+
     protected Context getContext() {
         return mContext;
     }
@@ -426,11 +926,103 @@ public abstract class BaseAxis {
     }
 
     public void setDebug(boolean debug) {
+        if (debug == mDebug) {
+            return;
+        }
+
         this.mDebug = debug;
+        markDirty();
+    }
+
+    public LabelThinning getLabelThinning() {
+        return mLabelThinning;
+    }
+
+    public void setLabelThinning(LabelThinning labelThinning) {
+        if (labelThinning == mLabelThinning) {
+            return;
+        }
+
+        this.mLabelThinning = labelThinning;
+        markDirty();
+        onLayoutChanged();
+    }
+
+    /**
+     * @return incremented every time slot positions are calculated,
+     *         can be used to tell if geometry derived from them is stale
+     */
+    public int getLayoutVersion() {
+        return mLayoutVersion;
+    }
+
+    public float getViewportScale() {
+        return mViewportScale;
+    }
+
+    public float getViewportOffset() {
+        return mViewportOffset;
+    }
+
+    /**
+     * @return position in {@link #getSlots()} of the first slot in the viewport
+     */
+    public int getFirstVisibleSlot() {
+        return mFirstVisibleSlot;
+    }
+
+    /**
+     * @return position in {@link #getSlots()} of the last slot in the viewport,
+     *         less than {@link #getFirstVisibleSlot()} if there is none
+     */
+    public int getLastVisibleSlot() {
+        return mLastVisibleSlot;
+    }
+
+    public Orientation getOrientation() {
+        return mOrientation;
     }
 
     public void setAlignment(Alignment alignment) {
+        if (alignment == mAlignment) {
+            return;
+        }
+
         this.mAlignment = alignment;
+        markDirty();
+        layout();
+    }
+
+
+    /**
+     * Flags the axis as needing a redraw. Child classes should call this
+     * whenever something they draw with (paints, sizes) changes.
+     */
+    protected void markDirty() {
+        mDirty = true;
+    }
+
+
+    /**
+     * Called whenever the slots, their positions or the range of visible
+     * slots change, but not when the viewport is scrolled without
+     * changing which slots are visible. Child classes can override this
+     * to drop anything they derived from the slots.
+     */
+    protected void onLayoutChanged() {
+    }
+
+
+    /**
+     * Called by the chart once the axis has been drawn
+     */
+    void clearDirty() {
+        mDirty = false;
+    }
+
+
+    public boolean isDirty() {
+        return mDirty;
     }
 
 }
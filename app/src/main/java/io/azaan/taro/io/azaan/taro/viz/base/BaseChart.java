@@ -1,16 +1,27 @@
 package io.azaan.taro.io.azaan.taro.viz.base;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import io.azaan.taro.R;
+import io.azaan.taro.io.azaan.taro.viz.BitmapPool;
 import io.azaan.taro.io.azaan.taro.viz.Helpers;
 import io.azaan.taro.io.azaan.taro.viz.models.Slot;
 
@@ -28,15 +39,18 @@ public abstract class BaseChart extends View {
 
 
     /**
-     * Default height of the X Axis in DP
+     * Colors and dimensions, shared with the other charts
+     * of the same theme and attributes
      */
-    private int mXAxisHeight = 30;
+    private ChartStyle mStyle;
 
 
     /**
-     * Default width of the Y Axis in DP
+     * Paints of this chart, set from the style
      */
-    private int mYAxisWidth = 30;
+    private final Paint mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTooltipPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTooltipBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
 
     /**
@@ -66,9 +80,13 @@ public abstract class BaseChart extends View {
 
 
     /**
-     * Paint objects for drawing
+     * Calculated position and size of the graph area, the
+     * space right of the y axis and above the x axis
      */
-    private Paint mBackgroundPaint;
+    private float mGraphPosX;
+    private float mGraphPosY;
+    private float mGraphWidth;
+    private float mGraphHeight;
 
 
     /**
@@ -85,6 +103,182 @@ public abstract class BaseChart extends View {
     private Canvas mYAxisCanvas;
 
 
+    /**
+     * How the axes are rendered.
+     *
+     * CACHED draws each axis into an offscreen bitmap (taken from the
+     * shared bitmap pool) which is only redrawn when the axis changes.
+     * DIRECT draws the axes straight onto the view canvas every frame,
+     * trading draw time for the memory of the offscreen bitmaps.
+     */
+    private AxisRendering mAxisRendering = AxisRendering.CACHED;
+
+    public enum AxisRendering {
+        CACHED, DIRECT
+    }
+
+
+    /**
+     * Pool the offscreen axis bitmaps are taken from
+     */
+    private BitmapPool mBitmapPool = BitmapPool.getShared();
+
+
+    /**
+     * Can the user pan and pinch-zoom the x axis viewport
+     */
+    private boolean mViewportEnabled = false;
+
+
+    /**
+     * Gesture detectors driving the viewport and slot selection
+     */
+    private GestureDetector mGestureDetector;
+    private ScaleGestureDetector mZoomDetector;
+
+
+    /**
+     * Can the user select x slots by tapping or dragging,
+     * showing a tooltip for the selected slot
+     */
+    private boolean mSelectionEnabled = false;
+
+
+    /**
+     * Position on the x axis of the selected slot, -1 if none
+     */
+    private int mSelectedSlot = -1;
+
+
+    /**
+     * Y position in the graph area of the touch that selected
+     * the slot, NaN if it was selected by code
+     */
+    private float mSelectionY = Float.NaN;
+
+
+    /**
+     * Is a finger being dragged over the slots. Starts once the finger
+     * moves sideways past the touch slop if the viewport is disabled,
+     * with a long press otherwise.
+     */
+    private boolean mScrubbing = false;
+
+
+    /**
+     * Has the current gesture been claimed from scrolling parents, and
+     * where it started. Until then vertical drags go to the parent.
+     */
+    private boolean mGestureClaimed = false;
+    private float mDownX;
+    private float mDownY;
+    private int mTouchSlop;
+    private SelectionListener mSelectionListener;
+
+
+    /**
+     * Reused for drawing the tooltip
+     */
+    private final StringBuilder mTooltipText = new StringBuilder();
+    private char[] mTooltipChars = new char[64];
+
+
+    /**
+     * Receives slot selection changes
+     */
+    public interface SelectionListener {
+
+        /**
+         * Called on the UI thread when the selected slot changes
+         *
+         * @param chart chart the slot was selected on
+         * @param position position on the x axis of the selected slot, -1 if cleared
+         */
+        void onSlotSelected(BaseChart chart, int position);
+    }
+
+
+    /**
+     * Drives transitions between data sets, null if they are disabled
+     */
+    private FrameAnimator mAnimator;
+
+
+    /**
+     * Metrics of the last frame, filled in only while a metrics
+     * listener or the overlay is set
+     */
+    private final ChartMetrics mMetrics = new ChartMetrics();
+    private MetricsListener mMetricsListener;
+    private boolean mMetricsOverlay = false;
+
+
+    /**
+     * Layout time not yet reported with a frame, not counting axis
+     * layouts since the axes were last asked for theirs
+     */
+    private long mLayoutNanos = 0;
+
+
+    /**
+     * Reused for drawing the metrics overlay
+     */
+    private Paint mOverlayPaint;
+    private Paint mOverlayBackgroundPaint;
+    private final StringBuilder mOverlayText = new StringBuilder();
+    private char[] mOverlayChars = new char[64];
+
+
+    /**
+     * Receives the metrics of every frame drawn
+     */
+    public interface MetricsListener {
+
+        /**
+         * Called on the UI thread at the end of every onDraw
+         *
+         * @param chart chart that was drawn
+         * @param metrics metrics of the frame, reused for the next frame
+         */
+        void onFrameMetrics(BaseChart chart, ChartMetrics metrics);
+    }
+
+
+    /**
+     * Executor shared by all charts for preparing slots off the UI thread
+     */
+    private static ExecutorService sSlotsExecutor;
+
+
+    /**
+     * Incremented whenever new slots are set, used to
+     * drop async slot jobs made stale by newer data
+     */
+    private final AtomicInteger mSlotsGeneration = new AtomicInteger();
+
+
+    /**
+     * Async slot job currently queued or running, null if none
+     */
+    private Future<?> mPendingSlots;
+
+
+    /**
+     * Builds the slots for the axis. Called on a background
+     * thread by {@link #setSlotsAsync(SlotSource)}.
+     */
+    public interface SlotSource {
+        List<Slot> makeXSlots();
+
+        List<Slot> makeYSlots();
+
+        /**
+         * Called on the UI thread once the slots have been swapped in
+         */
+        void onSlotsApplied();
+    }
+
+
     /**
      * Constructor
      * @param context android context
@@ -122,26 +316,60 @@ public abstract class BaseChart extends View {
      * Acts as a common constructor for this class.
      */
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
-        TypedArray a = context.getTheme().obtainStyledAttributes(
-                attrs,
-                R.styleable.Chart,
-                defStyleAttr, 0
-        );
-
-        int backgroundColor;
-        try {
-            backgroundColor = a.getColor(R.styleable.Chart_backgroundColor, 0);
-        } finally {
-            a.recycle();
-        }
-
-        // convert dp constants to px
-        mXAxisHeight = (int) Math.floor(Helpers.pxFromDp(getContext(), mXAxisHeight));
-        mYAxisWidth = (int) Math.floor(Helpers.pxFromDp(getContext(), mYAxisWidth));
-
-        // set up paint objects
-        mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mBackgroundPaint.setColor(backgroundColor);
+        mStyle = ChartStyle.obtain(context, attrs, defStyleAttr);
+        setUpPaints();
+
+        mAnimator = newAnimator();
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        // set up viewport and selection gestures
+        mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                if (!mSelectionEnabled) {
+                    return false;
+                }
+
+                selectSlotAt(e.getX(), e.getY());
+                return true;
+            }
+
+            @Override
+            public void onLongPress(MotionEvent e) {
+                if (mSelectionEnabled && !mZoomDetector.isInProgress()) {
+                    claimGesture();
+                    mScrubbing = true;
+                    selectSlotAt(e.getX(), e.getY());
+                }
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (!mViewportEnabled || !mGestureClaimed || mZoomDetector.isInProgress()) {
+                    return false;
+                }
+
+                mXAxis.panViewport(distanceX);
+                onViewportChanged();
+                invalidate();
+                return true;
+            }
+        });
+
+        mZoomDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                mXAxis.zoomViewport(detector.getScaleFactor(), detector.getFocusX() - mXAxisPosX);
+                onViewportChanged();
+                invalidate();
+                return true;
+            }
+        });
     }
 
 
@@ -153,13 +381,66 @@ public abstract class BaseChart extends View {
      * @param yAxis y axis implementation or null if no y axis
      */
     public void configure(BaseAxis xAxis, BaseAxis yAxis) {
+        cancelPendingSlots();
+
         this.mXAxis = xAxis;
         this.mYAxis = yAxis;
 
+        applyStyleToAxes();
+
         // recalculate positioning and dimensions
         layout(getWidth(), getHeight());
     }
 
+
+    /**
+     * Sets the style of the chart and of its axes that were not given
+     * a style of their own. Styles are shared, make a changed one with
+     * the with methods of the current style, e.g.
+     * {@code setStyle(getStyle().withBackgroundColor(color))}.
+     *
+     * @param style style
+     */
+    public void setStyle(ChartStyle style) {
+        mStyle = style;
+        setUpPaints();
+        applyStyleToAxes();
+        onStyleChanged();
+
+        // axis sizes may have changed
+        layout(getWidth(), getHeight());
+        invalidate();
+    }
+
+
+    public ChartStyle getStyle() {
+        return mStyle;
+    }
+
+
+    /**
+     * Called when the style of the chart changes, charts should
+     * set up their paints from {@link #getStyle()} again
+     */
+    protected void onStyleChanged() {
+    }
+
+
+    private void setUpPaints() {
+        mBackgroundPaint.setColor(mStyle.getBackgroundColor());
+        mStyle.applyTooltipStyle(mTooltipPaint);
+        mTooltipBackgroundPaint.setColor(mStyle.getTooltipBackgroundColor());
+    }
+
+
+    private void applyStyleToAxes() {
+        if (mXAxis != null)
+            mXAxis.setChartStyle(mStyle);
+
+        if (mYAxis != null)
+            mYAxis.setChartStyle(mStyle);
+    }
+
     /**
      * Takes care of determining the layout of
      * all the views
@@ -174,14 +455,18 @@ public abstract class BaseChart extends View {
             return;
         }
 
+        // axes time their own layouts, collect what they did until now
+        mLayoutNanos += takeAxisLayoutNanos();
+        long start = System.nanoTime();
+
         int availableWidth = w - getPaddingLeft() - getPaddingRight();
         int availableHeight = h - getPaddingTop() - getPaddingBottom();
 
         // determine dimensions
-        int yWidth = mYAxis == null ? 0 : mYAxisWidth;
+        int yWidth = mYAxis == null ? 0 : mStyle.getYAxisWidth();
         int xWidth = mXAxis == null ? 0 : availableWidth - yWidth;
 
-        int xHeight = mXAxis == null ? 0 : mXAxisHeight;
+        int xHeight = mXAxis == null ? 0 : mStyle.getXAxisHeight();
         int yHeight = mYAxis == null ? 0 : availableHeight - xHeight;
 
         int graphHeight = availableHeight - xHeight;
@@ -200,6 +485,17 @@ public abstract class BaseChart extends View {
 
         mYAxisPosX = startX;
         mYAxisPosY = startY;
+
+        mGraphPosX = startX + yWidth;
+        mGraphPosY = startY;
+        mGraphWidth = graphWidth;
+        mGraphHeight = graphHeight;
+
+        onViewportChanged();
+
+        // the axis layouts are part of the time taken here
+        takeAxisLayoutNanos();
+        mLayoutNanos += System.nanoTime() - start;
     }
 
     /**
@@ -213,12 +509,15 @@ public abstract class BaseChart extends View {
             return;
         }
 
-        if (mXAxisBitmap != null)
-            mXAxisBitmap.recycle();
-
         mXAxis.setDimensions(w, h);
-        mXAxisBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        mXAxisCanvas = new Canvas(mXAxisBitmap);
+        mXAxisBitmap = obtainAxisBitmap(mXAxisBitmap, w, h);
+
+        if (mXAxisBitmap != null) {
+            if (mXAxisCanvas == null)
+                mXAxisCanvas = new Canvas();
+
+            mXAxisCanvas.setBitmap(mXAxisBitmap);
+        }
     }
 
 
@@ -233,12 +532,59 @@ public abstract class BaseChart extends View {
             return;
         }
 
-        if (mYAxisBitmap != null)
-            mYAxisBitmap.recycle();
-
         mYAxis.setDimensions(w, h);
-        mYAxisBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        mYAxisCanvas = new Canvas(mYAxisBitmap);
+        mYAxisBitmap = obtainAxisBitmap(mYAxisBitmap, w, h);
+
+        if (mYAxisBitmap != null) {
+            if (mYAxisCanvas == null)
+                mYAxisCanvas = new Canvas();
+
+            mYAxisCanvas.setBitmap(mYAxisBitmap);
+        }
+    }
+
+
+    /**
+     * Gets an offscreen bitmap of the given size for an axis. The current
+     * bitmap is kept if it already has the right size, otherwise it is
+     * returned to the pool and a pooled one is taken.
+     *
+     * @param current bitmap currently used by the axis or null
+     * @param w width of the axis
+     * @param h height of the axis
+     * @return bitmap or null if the axis is drawn directly
+     */
+    private Bitmap obtainAxisBitmap(Bitmap current, int w, int h) {
+        boolean valid = w > 0 && h > 0;
+        if (mAxisRendering == AxisRendering.DIRECT || !valid) {
+            mBitmapPool.release(current);
+            return null;
+        }
+
+        if (current != null && current.getWidth() == w && current.getHeight() == h) {
+            return current;
+        }
+
+        mBitmapPool.release(current);
+        return mBitmapPool.acquire(w, h);
+    }
+
+
+    /**
+     * Returns the offscreen axis bitmaps to the pool
+     */
+    private void releaseAxisBitmaps() {
+        mBitmapPool.release(mXAxisBitmap);
+        mBitmapPool.release(mYAxisBitmap);
+
+        mXAxisBitmap = null;
+        mYAxisBitmap = null;
+
+        if (mXAxisCanvas != null)
+            mXAxisCanvas.setBitmap(null);
+
+        if (mYAxisCanvas != null)
+            mYAxisCanvas.setBitmap(null);
     }
 
 
@@ -248,22 +594,197 @@ public abstract class BaseChart extends View {
      */
     @Override
     protected void onDraw(Canvas canvas) {
+        long drawStart = System.nanoTime();
+        boolean measure = isMeasuring();
         super.onDraw(canvas);
 
         // draw background
         canvas.drawRect(0, 0, getWidth(), getHeight(), mBackgroundPaint);
 
+        // draw graph
+        long graphStart = measure ? System.nanoTime() : 0;
+        if (mGraphWidth > 0 && mGraphHeight > 0) {
+            int saveCount = canvas.save();
+            canvas.translate(mGraphPosX, mGraphPosY);
+            canvas.clipRect(0, 0, mGraphWidth, mGraphHeight);
+            onDrawGraph(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+
+        long axisStart = measure ? System.nanoTime() : 0;
+
         // draw x axis
         if (mXAxis != null) {
-            mXAxis.draw(mXAxisCanvas);
-            canvas.drawBitmap(mXAxisBitmap, mXAxisPosX, mXAxisPosY, null);
+            drawAxis(canvas, mXAxis, mXAxisBitmap, mXAxisCanvas, mXAxisPosX, mXAxisPosY);
         }
 
         // draw y axis
         if (mYAxis != null) {
-            mYAxis.draw(mYAxisCanvas);
-            canvas.drawBitmap(mYAxisBitmap, mYAxisPosX, mYAxisPosY, null);
+            drawAxis(canvas, mYAxis, mYAxisBitmap, mYAxisCanvas, mYAxisPosX, mYAxisPosY);
+        }
+
+        // drawn on top of the axes so it is never covered
+        if (mSelectedSlot != -1) {
+            drawTooltip(canvas);
+        }
+
+        long drawEnd = System.nanoTime();
+
+        if (measure) {
+            reportMetrics(drawEnd - drawStart, axisStart - graphStart, drawEnd - axisStart);
+
+            // drawn after taking the time so that it does not count
+            if (mMetricsOverlay)
+                drawMetricsOverlay(canvas);
+        }
+
+        if (mAnimator != null && mAnimator.isRunning()) {
+            mAnimator.reportFrameWork(drawEnd - drawStart);
+        }
+    }
+
+
+    /**
+     * Starts a transition. Charts call this after changing their data
+     * and get {@link #onTransitionFrame(float)} called on the following
+     * frames. Does nothing if transitions are disabled.
+     */
+    protected void startTransition() {
+        if (mAnimator != null) {
+            mAnimator.start();
+        }
+    }
+
+
+    /**
+     * Called on every frame of a transition. Runs on the UI thread right
+     * before the chart is redrawn and must not allocate.
+     *
+     * @param fraction eased progress from 0 to 1
+     */
+    protected void onTransitionFrame(float fraction) {
+    }
+
+
+    /**
+     * Sets the length of transitions between data sets
+     *
+     * @param durationMs duration in milliseconds, 0 to disable transitions
+     */
+    public void setTransitionDuration(long durationMs) {
+        if (durationMs < 0) {
+            throw new IllegalArgumentException("Invalid duration=" + durationMs);
+        }
+
+        if (durationMs == 0) {
+            finishTransition();
+            mAnimator = null;
+            return;
+        }
+
+        if (mAnimator == null) {
+            mAnimator = newAnimator();
+        }
+
+        mAnimator.setDuration(durationMs);
+    }
+
+
+    private FrameAnimator newAnimator() {
+        return new FrameAnimator(new FrameAnimator.Listener() {
+            @Override
+            public void onAnimationFrame(float fraction) {
+                onTransitionFrame(fraction);
+                invalidate();
+            }
+        });
+    }
+
+
+    /**
+     * Ends a running transition at its final frame
+     */
+    private void finishTransition() {
+        if (mAnimator != null && mAnimator.isRunning()) {
+            mAnimator.cancel();
+            onTransitionFrame(1);
+            invalidate();
+        }
+    }
+
+
+    /**
+     * @return true if data changes are animated
+     */
+    public boolean isTransitionEnabled() {
+        return mAnimator != null;
+    }
+
+
+    /**
+     * @return true while a transition is running
+     */
+    public boolean isTransitionRunning() {
+        return mAnimator != null && mAnimator.isRunning();
+    }
+
+
+    /**
+     * Draws the graph (bars, lines, etc). The canvas is translated to the
+     * graph area and clipped to it. The x axis starts at the left and the
+     * y axis at the top of the graph area so slot positions can be used
+     * as they are (after translating to the x axis viewport).
+     *
+     * @param canvas canvas
+     */
+    protected void onDrawGraph(Canvas canvas) {
+    }
+
+
+    /**
+     * Draws an axis on to the view canvas, either by blitting its
+     * offscreen bitmap or, if it has none, by drawing it directly.
+     *
+     * @param canvas view canvas
+     * @param axis axis to draw
+     * @param bitmap offscreen bitmap of the axis or null
+     * @param axisCanvas canvas backed by the bitmap
+     * @param x left position of the axis
+     * @param y top position of the axis
+     */
+    private void drawAxis(Canvas canvas, BaseAxis axis, Bitmap bitmap, Canvas axisCanvas, float x, float y) {
+        if (bitmap != null) {
+            renderAxis(axis, bitmap, axisCanvas);
+            canvas.drawBitmap(bitmap, x, y, null);
+            return;
         }
+
+        int saveCount = canvas.save();
+        canvas.translate(x, y);
+        canvas.clipRect(0, 0, axis.getW(), axis.getH());
+        axis.draw(canvas);
+        axis.clearDirty();
+        canvas.restoreToCount(saveCount);
+    }
+
+
+    /**
+     * Redraws the axis into its offscreen bitmap if anything
+     * changed since it was last drawn. Otherwise the cached
+     * bitmap is left untouched.
+     *
+     * @param axis axis to render
+     * @param bitmap offscreen bitmap of the axis
+     * @param axisCanvas canvas backed by the bitmap
+     */
+    private void renderAxis(BaseAxis axis, Bitmap bitmap, Canvas axisCanvas) {
+        if (!axis.isDirty()) {
+            return;
+        }
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        axis.draw(axisCanvas);
+        axis.clearDirty();
     }
 
 
@@ -289,6 +810,431 @@ public abstract class BaseChart extends View {
         layout(w, h);
     }
 
+    /**
+     * Feeds touch events to the viewport and selection gestures when enabled.
+     *
+     * A tap selects the slot under the finger. Dragging selects the slots
+     * the finger moves over, if the viewport is disabled, and pans the
+     * viewport otherwise, then a long press starts selecting instead.
+     *
+     * Scrolling parents keep the gesture until the finger moves sideways
+     * past the touch slop, a long press fires or a second finger comes
+     * down to zoom, so the chart does not block vertical scrolling.
+     *
+     * @param event touch event
+     * @return true if the event was consumed
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if ((!mViewportEnabled && !mSelectionEnabled) || mXAxis == null) {
+            return super.onTouchEvent(event);
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mDownX = event.getX();
+                mDownY = event.getY();
+                mGestureClaimed = false;
+                mScrubbing = false;
+                break;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (mViewportEnabled)
+                    claimGesture();
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (!mGestureClaimed) {
+                    float dx = Math.abs(event.getX() - mDownX);
+                    float dy = Math.abs(event.getY() - mDownY);
+                    if (dx > mTouchSlop && dx > dy) {
+                        claimGesture();
+                        mScrubbing = mSelectionEnabled && !mViewportEnabled;
+                    }
+                }
+
+                if (mScrubbing)
+                    selectSlotAt(event.getX(), event.getY());
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mGestureClaimed = false;
+                mScrubbing = false;
+                break;
+        }
+
+        boolean handled = mViewportEnabled && mZoomDetector.onTouchEvent(event);
+        handled = mGestureDetector.onTouchEvent(event) || handled;
+
+        return handled || super.onTouchEvent(event);
+    }
+
+
+    /**
+     * Keeps scrolling parents from stealing the rest of the gesture
+     */
+    private void claimGesture() {
+        if (mGestureClaimed) {
+            return;
+        }
+
+        mGestureClaimed = true;
+
+        ViewParent parent = getParent();
+        if (parent != null)
+            parent.requestDisallowInterceptTouchEvent(true);
+    }
+
+
+    /**
+     * Selects the x slot closest to a touch, found with a binary
+     * search over the slot positions
+     *
+     * @param x x position of the touch in view coordinates
+     * @param y y position of the touch in view coordinates
+     */
+    private void selectSlotAt(float x, float y) {
+        if (mXAxis == null) {
+            return;
+        }
+
+        float pos = Math.max(0, Math.min(mGraphWidth, x - mGraphPosX));
+        int position = mXAxis.getSlotAtPos(pos);
+
+        float selectionY = Math.max(0, Math.min(mGraphHeight, y - mGraphPosY));
+        if (position == mSelectedSlot && selectionY != mSelectionY) {
+            // same slot, the tooltip can depend on the height of the touch
+            invalidate();
+        }
+
+        setSelectedSlot(position, selectionY);
+    }
+
+
+    /**
+     * Enables selecting x slots by touch. The selected slot
+     * gets a tooltip if the chart provides one.
+     *
+     * @param enabled true to enable selection
+     */
+    public void setSelectionEnabled(boolean enabled) {
+        mSelectionEnabled = enabled;
+
+        if (!enabled)
+            setSelectedSlot(-1);
+    }
+
+
+    public boolean isSelectionEnabled() {
+        return mSelectionEnabled;
+    }
+
+
+    /**
+     * Sets a listener that gets selection changes
+     *
+     * @param listener listener or null
+     */
+    public void setSelectionListener(SelectionListener listener) {
+        mSelectionListener = listener;
+    }
+
+
+    /**
+     * Selects an x slot
+     *
+     * @param position position on the x axis of the slot, -1 to clear the selection
+     */
+    public void setSelectedSlot(int position) {
+        setSelectedSlot(position, Float.NaN);
+    }
+
+
+    private void setSelectedSlot(int position, float selectionY) {
+        mSelectionY = selectionY;
+        if (position == mSelectedSlot) {
+            return;
+        }
+
+        mSelectedSlot = position;
+        invalidate();
+
+        if (mSelectionListener != null)
+            mSelectionListener.onSlotSelected(this, position);
+    }
+
+
+    /**
+     * @return position on the x axis of the selected slot, -1 if none
+     */
+    public int getSelectedSlot() {
+        return mSelectedSlot;
+    }
+
+
+    /**
+     * @return y position in the graph area of the touch that selected
+     * the slot, NaN if none or if the slot was selected by code
+     */
+    protected float getSelectionY() {
+        return mSelectionY;
+    }
+
+
+    /**
+     * Writes the tooltip text of a selected slot. Called on every frame a
+     * slot is selected, so implementations should not allocate.
+     *
+     * @param position position on the x axis of the slot
+     * @param out empty builder to write the text to
+     * @return false if the slot has no tooltip
+     */
+    protected boolean buildTooltip(int position, StringBuilder out) {
+        return false;
+    }
+
+
+    /**
+     * Draws the tooltip of the selected slot at the top of the graph
+     * area, centered over the slot and kept inside the graph area
+     */
+    private void drawTooltip(Canvas canvas) {
+        if (mXAxis == null || mSelectedSlot >= mXAxis.getSlots().size()) {
+            return;
+        }
+
+        StringBuilder text = mTooltipText;
+        text.setLength(0);
+        if (!buildTooltip(mSelectedSlot, text)) {
+            return;
+        }
+
+        Slot slot = mXAxis.getSlots().get(mSelectedSlot);
+        float center = mGraphPosX + slot._x + mXAxis.getSlotWidth() / 2f - mXAxis.getViewportOffset();
+        if (center < mGraphPosX || center > mGraphPosX + mGraphWidth) {
+            return;
+        }
+
+        int length = text.length();
+        if (mTooltipChars.length < length) {
+            mTooltipChars = new char[length * 2];
+        }
+        text.getChars(0, length, mTooltipChars, 0);
+
+        Paint paint = mTooltipPaint;
+        float textSize = paint.getTextSize();
+        float width = paint.measureText(mTooltipChars, 0, length) + textSize;
+        float left = Math.max(mGraphPosX, Math.min(mGraphPosX + mGraphWidth - width, center - width / 2f));
+        float top = mGraphPosY;
+
+        canvas.drawRect(left, top, left + width, top + textSize * 1.6f, mTooltipBackgroundPaint);
+        canvas.drawText(mTooltipChars, 0, length, left + textSize / 2f, top + textSize * 1.15f, paint);
+    }
+
+
+    /**
+     * Enables panning and pinch-zooming the x axis. Only the slots
+     * inside the viewport are laid out into labels and drawn.
+     *
+     * @param enabled true to enable the gestures
+     */
+    public void setViewportEnabled(boolean enabled) {
+        mViewportEnabled = enabled;
+
+        if (!enabled)
+            setViewport(1, 0);
+    }
+
+
+    public boolean isViewportEnabled() {
+        return mViewportEnabled;
+    }
+
+
+    /**
+     * Sets the viewport of the x axis
+     *
+     * @param scale zoom factor, 1 shows all slots
+     * @param offset start of the viewport in content pixels
+     */
+    public void setViewport(float scale, float offset) {
+        if (mXAxis == null) {
+            return;
+        }
+
+        mXAxis.setViewport(scale, offset);
+        onViewportChanged();
+        invalidate();
+    }
+
+
+    /**
+     * Called whenever the viewport or the size of the x axis changed.
+     * Charts can override this to adapt to the slots now visible.
+     */
+    protected void onViewportChanged() {
+    }
+
+
+    /**
+     * Takes the axis bitmaps back from the pool when the
+     * view is attached again.
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        layout(getWidth(), getHeight());
+    }
+
+
+    /**
+     * Returns the axis bitmaps to the pool so detached
+     * charts do not hold on to them.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        finishTransition();
+        releaseAxisBitmaps();
+    }
+
+
+    /**
+     * Sets how the axes are rendered
+     *
+     * @param axisRendering CACHED to use offscreen bitmaps, DIRECT to draw
+     *                      axes on to the view canvas every frame
+     */
+    public void setAxisRendering(AxisRendering axisRendering) {
+        if (axisRendering == mAxisRendering) {
+            return;
+        }
+
+        mAxisRendering = axisRendering;
+
+        releaseAxisBitmaps();
+        layout(getWidth(), getHeight());
+        invalidate();
+    }
+
+
+    public AxisRendering getAxisRendering() {
+        return mAxisRendering;
+    }
+
+
+    /**
+     * Sets a listener that gets the metrics of every frame
+     *
+     * @param listener listener or null to stop measuring
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        mMetricsListener = listener;
+    }
+
+
+    /**
+     * Shows the metrics of the last frame on top of the chart. The line
+     * turns red on frames over the 60 fps budget.
+     *
+     * @param enabled true to show the overlay
+     */
+    public void setMetricsOverlay(boolean enabled) {
+        mMetricsOverlay = enabled;
+
+        if (enabled && mOverlayPaint == null) {
+            mOverlayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mOverlayPaint.setTextSize(Helpers.pxFromDp(getContext(), 10));
+
+            mOverlayBackgroundPaint = new Paint();
+            mOverlayBackgroundPaint.setColor(0xAA000000);
+        }
+
+        invalidate();
+    }
+
+
+    private boolean isMeasuring() {
+        return mMetricsListener != null || mMetricsOverlay;
+    }
+
+
+    /**
+     * Fills in the metrics of the frame just drawn and hands
+     * them to the listener
+     */
+    private void reportMetrics(long drawNanos, long graphNanos, long axisNanos) {
+        ChartMetrics m = mMetrics;
+
+        m.frame++;
+        m.layoutNanos = mLayoutNanos + takeAxisLayoutNanos();
+        m.drawNanos = drawNanos;
+        m.graphDrawNanos = graphNanos;
+        m.axisDrawNanos = axisNanos;
+        m.bitmapBytes = bitmapBytes(mXAxisBitmap) + bitmapBytes(mYAxisBitmap);
+        m.slotCount = (mXAxis == null ? 0 : mXAxis.getSlots().size())
+                + (mYAxis == null ? 0 : mYAxis.getSlots().size());
+
+        mLayoutNanos = 0;
+
+        if (mMetricsListener != null)
+            mMetricsListener.onFrameMetrics(this, m);
+    }
+
+
+    private long takeAxisLayoutNanos() {
+        long nanos = 0;
+
+        if (mXAxis != null)
+            nanos += mXAxis.takeLayoutNanos();
+
+        if (mYAxis != null)
+            nanos += mYAxis.takeLayoutNanos();
+
+        return nanos;
+    }
+
+
+    private static long bitmapBytes(Bitmap bitmap) {
+        return bitmap == null ? 0 : bitmap.getAllocationByteCount();
+    }
+
+
+    /**
+     * Draws the last metrics in a single line at the top left. Times
+     * are in microseconds, the text buffers are reused across frames.
+     */
+    private void drawMetricsOverlay(Canvas canvas) {
+        ChartMetrics m = mMetrics;
+        StringBuilder text = mOverlayText;
+
+        text.setLength(0);
+        text.append("layout ").append(m.layoutNanos / 1000)
+                .append("us axes ").append(m.axisDrawNanos / 1000)
+                .append("us draw ").append(m.drawNanos / 1000)
+                .append("us bmp ").append(m.bitmapBytes / 1024)
+                .append("kB slots ").append(m.slotCount);
+
+        int length = text.length();
+        if (mOverlayChars.length < length) {
+            mOverlayChars = new char[length * 2];
+        }
+        text.getChars(0, length, mOverlayChars, 0);
+
+        float textSize = mOverlayPaint.getTextSize();
+        float x = getPaddingLeft();
+        float y = getPaddingTop();
+
+        mOverlayPaint.setColor(m.isOverBudget() ? Color.RED : Color.WHITE);
+        canvas.drawRect(x, y, x + mOverlayPaint.measureText(mOverlayChars, 0, length) + textSize, y + textSize * 1.5f,
+                mOverlayBackgroundPaint);
+        canvas.drawText(mOverlayChars, 0, length, x + textSize / 2, y + textSize * 1.1f, mOverlayPaint);
+    }
+
+
     /**
      * Sets the debug value to all the views
      *
@@ -300,19 +1246,221 @@ public abstract class BaseChart extends View {
 
         if (mYAxis != null)
             mYAxis.setDebug(debug);
+
+        invalidate();
+    }
+
+
+    protected BaseAxis getXAxis() {
+        return mXAxis;
+    }
+
+
+    protected BaseAxis getYAxis() {
+        return mYAxis;
     }
 
 
     public void setXSlots(List<Slot> slots) {
+        cancelPendingSlots();
+        setSelectedSlot(-1);
+
         if (mXAxis != null) {
             mXAxis.setSlots(slots);
+            invalidate();
         }
     }
 
 
     public void setYSlots(List<Slot> slots) {
+        cancelPendingSlots();
+
         if (mYAxis != null) {
             mYAxis.setSlots(slots);
+            invalidate();
         }
     }
+
+
+    /**
+     * Adds slots after the existing x slots, see {@link BaseAxis#appendSlots(List)}
+     *
+     * @param slots slots in data order
+     */
+    protected void appendXSlots(List<Slot> slots) {
+        checkNoPendingSlots();
+
+        if (mXAxis != null) {
+            mXAxis.appendSlots(slots);
+            invalidate();
+        }
+    }
+
+
+    /**
+     * Removes an x slot, see {@link BaseAxis#removeSlot(int)}
+     *
+     * @param position position of the slot on the x axis
+     */
+    protected void removeXSlot(int position) {
+        checkNoPendingSlots();
+
+        if (position == mSelectedSlot)
+            setSelectedSlot(-1);
+        else if (position < mSelectedSlot)
+            setSelectedSlot(mSelectedSlot - 1, mSelectionY);
+
+        if (mXAxis != null) {
+            mXAxis.removeSlot(position);
+            invalidate();
+        }
+    }
+
+
+    /**
+     * @return true while slots set with {@link #setSlotsAsync(SlotSource)}
+     *         have not been swapped in yet
+     */
+    public boolean isPreparingSlots() {
+        return mPendingSlots != null;
+    }
+
+
+    /**
+     * Incremental changes apply to the slots currently shown, which
+     * are about to be replaced while an async job is pending
+     */
+    private void checkNoPendingSlots() {
+        if (isPreparingSlots()) {
+            throw new IllegalStateException("Slots are still being prepared, set the data again instead");
+        }
+    }
+
+
+    /**
+     * Builds and lays out the slots of both axis on a background thread.
+     *
+     * Any previous async job is cancelled. Once done the prepared
+     * layouts are swapped in together on the next animation frame,
+     * unless newer slots were set in the meantime.
+     *
+     * @param source builds the slots, called on a background thread
+     */
+    public void setSlotsAsync(final SlotSource source) {
+        final int generation = cancelPendingSlots();
+
+        // capture the axis configuration on the UI thread
+        final AxisLayout xLayout = mXAxis == null ? null : mXAxis.newLayout();
+        final AxisLayout yLayout = mYAxis == null ? null : mYAxis.newLayout();
+
+        mPendingSlots = getSlotsExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (xLayout != null && !isStale(generation)) {
+                        xLayout.prepare(source.makeXSlots());
+                    }
+
+                    if (yLayout != null && !isStale(generation)) {
+                        yLayout.prepare(source.makeYSlots());
+                    }
+                } catch (final RuntimeException e) {
+                    Log.e(TAG, "Preparing slots failed", e);
+
+                    // fail on the UI thread like the synchronous path would
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!isStale(generation)) {
+                                mPendingSlots = null;
+                                throw e;
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                if (isStale(generation)) {
+                    return;
+                }
+
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        applyPreparedSlots(generation, source, xLayout, yLayout);
+                    }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Swaps in prepared layouts. Must be called on the UI thread.
+     */
+    private void applyPreparedSlots(int generation, SlotSource source, AxisLayout xLayout, AxisLayout yLayout) {
+        if (isStale(generation)) {
+            return;
+        }
+
+        mPendingSlots = null;
+        setSelectedSlot(-1);
+
+        if (mXAxis != null && xLayout != null)
+            mXAxis.applyLayout(xLayout);
+
+        if (mYAxis != null && yLayout != null)
+            mYAxis.applyLayout(yLayout);
+
+        source.onSlotsApplied();
+        invalidate();
+    }
+
+
+    /**
+     * Cancels the pending async slot job if any
+     *
+     * @return generation for the next slots
+     */
+    private int cancelPendingSlots() {
+        if (mPendingSlots != null) {
+            mPendingSlots.cancel(false);
+            mPendingSlots = null;
+        }
+
+        return mSlotsGeneration.incrementAndGet();
+    }
+
+
+    /**
+     * Runs work of the chart off the UI thread, on the thread async
+     * slots are prepared on. Results must be posted back to the UI thread.
+     *
+     * @param job work to run
+     */
+    protected void runInBackground(Runnable job) {
+        getSlotsExecutor().execute(job);
+    }
+
+
+    private boolean isStale(int generation) {
+        return mSlotsGeneration.get() != generation;
+    }
+
+
+    private static synchronized ExecutorService getSlotsExecutor() {
+        if (sSlotsExecutor == null) {
+            sSlotsExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "chart-slots");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+
+        return sSlotsExecutor;
+    }
 }
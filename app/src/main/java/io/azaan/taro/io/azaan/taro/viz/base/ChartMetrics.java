@@ -0,0 +1,96 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+/**
+ * Performance metrics of one frame of a chart.
+ *
+ * A chart fills the same instance every frame and hands it to its
+ * {@link BaseChart.MetricsListener}, listeners must copy out whatever
+ * they want to keep.
+ */
+public class ChartMetrics {
+
+    /**
+     * Time of a frame at 60 fps
+     */
+    public static final long FRAME_BUDGET_NANOS = 16666667;
+
+
+    /**
+     * Number of frames drawn by the chart, starting at 1
+     */
+    long frame;
+
+
+    /**
+     * Time spent laying out the chart and its axes since the last frame
+     */
+    long layoutNanos;
+
+
+    /**
+     * Time spent drawing (or blitting the cached bitmaps of) both axes
+     */
+    long axisDrawNanos;
+
+
+    /**
+     * Time spent drawing the graph area
+     */
+    long graphDrawNanos;
+
+
+    /**
+     * Total time spent in onDraw
+     */
+    long drawNanos;
+
+
+    /**
+     * Bytes of the offscreen bitmaps held by the chart
+     */
+    long bitmapBytes;
+
+
+    /**
+     * Number of slots on both axes
+     */
+    int slotCount;
+
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+    public long getAxisDrawNanos() {
+        return axisDrawNanos;
+    }
+
+    public long getGraphDrawNanos() {
+        return graphDrawNanos;
+    }
+
+    public long getDrawNanos() {
+        return drawNanos;
+    }
+
+    public long getBitmapBytes() {
+        return bitmapBytes;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+
+    /**
+     * @return true if layout and drawing together took
+     *         longer than a frame at 60 fps
+     */
+    public boolean isOverBudget() {
+        return layoutNanos + drawNanos > FRAME_BUDGET_NANOS;
+    }
+}
@@ -0,0 +1,348 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import io.azaan.taro.R;
+import io.azaan.taro.io.azaan.taro.viz.Helpers;
+
+/**
+ * Colors, dimensions and text metrics shared by charts and axes.
+ *
+ * A style is resolved once per theme and set of chart attributes and
+ * then shared by every chart and axis using it, so a list of charts
+ * does not read the same attributes and measure the same text for every
+ * item. Styles are immutable values, charts and axes copy them into
+ * paints of their own. A changed style is made with one of the with methods.
+ */
+public class ChartStyle {
+
+    /**
+     * Defaults for attributes that are not set
+     */
+    private static final int DEFAULT_LABEL_COLOR = Color.YELLOW;
+    private static final float DEFAULT_LABEL_TEXT_SIZE = 30;
+    private static final int DEFAULT_LINE_COLOR = Color.GREEN;
+    private static final int DEFAULT_SERIES_COLOR = Color.WHITE;
+    private static final float DEFAULT_AXIS_SIZE_DP = 30;
+    private static final float TOOLTIP_TEXT_SIZE_DP = 12;
+    private static final int TOOLTIP_COLOR = Color.WHITE;
+    private static final int TOOLTIP_BACKGROUND_COLOR = 0xDD000000;
+
+
+    /**
+     * Resolved styles per theme, keyed by the raw chart attribute values
+     */
+    private static final Map<Resources.Theme, Map<String, ChartStyle>> sStyles = new WeakHashMap<>();
+
+
+    private int mBackgroundColor;
+    private int mLabelColor;
+    private float mLabelTextSize;
+    private int mLineColor;
+    private float mTooltipTextSize;
+
+
+    /**
+     * Colors of the data series, series i is drawn with
+     * color i modulo the count
+     */
+    private int[] mSeriesColors;
+
+
+    /**
+     * Size of the axes in px
+     */
+    private int mXAxisHeight;
+    private int mYAxisWidth;
+
+
+    /**
+     * Metrics of the label text, distance from the vertical
+     * center of the text to its baseline and text height
+     */
+    private float mLabelBaselineOffset;
+    private float mLabelTextHeight;
+
+
+    private ChartStyle() {
+    }
+
+
+    /**
+     * @param context android context
+     * @return style of the context theme without chart attributes
+     */
+    public static ChartStyle getDefault(Context context) {
+        return obtain(context, null, 0);
+    }
+
+
+    /**
+     * Gets the style for a chart, resolving it only if no chart with the
+     * same theme and chart attributes resolved it before
+     *
+     * @param context android context
+     * @param attrs attribute set or null
+     * @param defStyleAttr default style attributes
+     * @return shared style
+     */
+    public static synchronized ChartStyle obtain(Context context, AttributeSet attrs, int defStyleAttr) {
+        Resources.Theme theme = context.getTheme();
+
+        Map<String, ChartStyle> styles = sStyles.get(theme);
+        if (styles == null) {
+            styles = new HashMap<>();
+            sStyles.put(theme, styles);
+        }
+
+        String key = makeKey(attrs, defStyleAttr);
+        ChartStyle style = styles.get(key);
+        if (style == null) {
+            style = resolve(context, attrs, defStyleAttr);
+            styles.put(key, style);
+        }
+
+        return style;
+    }
+
+
+    /**
+     * Makes a key from the raw values of the chart attributes, which are
+     * the same for every chart inflated from the same layout. References
+     * are not resolved, they resolve the same within a theme.
+     */
+    private static String makeKey(AttributeSet attrs, int defStyleAttr) {
+        StringBuilder key = new StringBuilder().append(defStyleAttr);
+        if (attrs == null) {
+            return key.toString();
+        }
+
+        key.append(';').append(attrs.getStyleAttribute());
+
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int name = attrs.getAttributeNameResource(i);
+            if (isChartAttribute(name)) {
+                key.append(';').append(name).append('=').append(attrs.getAttributeValue(i));
+            }
+        }
+
+        return key.toString();
+    }
+
+
+    private static boolean isChartAttribute(int name) {
+        for (int attr : R.styleable.Chart) {
+            if (attr == name) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private static ChartStyle resolve(Context context, AttributeSet attrs, int defStyleAttr) {
+        float axisSize = Helpers.pxFromDp(context, DEFAULT_AXIS_SIZE_DP);
+
+        TypedArray a = context.getTheme().obtainStyledAttributes(
+                attrs,
+                R.styleable.Chart,
+                defStyleAttr, 0
+        );
+
+        ChartStyle style = new ChartStyle();
+        try {
+            style.mBackgroundColor = a.getColor(R.styleable.Chart_backgroundColor, 0);
+            style.mLabelColor = a.getColor(R.styleable.Chart_labelColor, DEFAULT_LABEL_COLOR);
+            style.mLabelTextSize = a.getDimension(R.styleable.Chart_labelTextSize, DEFAULT_LABEL_TEXT_SIZE);
+            style.mLineColor = a.getColor(R.styleable.Chart_lineColor, DEFAULT_LINE_COLOR);
+            style.mSeriesColors = new int[]{a.getColor(R.styleable.Chart_seriesColor, DEFAULT_SERIES_COLOR)};
+            style.mXAxisHeight = (int) Math.floor(a.getDimension(R.styleable.Chart_xAxisHeight, axisSize));
+            style.mYAxisWidth = (int) Math.floor(a.getDimension(R.styleable.Chart_yAxisWidth, axisSize));
+        } finally {
+            a.recycle();
+        }
+
+        style.mTooltipTextSize = Helpers.pxFromDp(context, TOOLTIP_TEXT_SIZE_DP);
+        style.measureLabels();
+
+        return style;
+    }
+
+
+    /**
+     * @param color background color
+     * @return copy of this style with another background color
+     */
+    public ChartStyle withBackgroundColor(int color) {
+        ChartStyle style = copy();
+        style.mBackgroundColor = color;
+        return style;
+    }
+
+
+    /**
+     * @param color axis label color
+     * @return copy of this style with another label color
+     */
+    public ChartStyle withLabelColor(int color) {
+        ChartStyle style = copy();
+        style.mLabelColor = color;
+        return style;
+    }
+
+
+    /**
+     * @param size axis label text size in px
+     * @return copy of this style with another label text size
+     */
+    public ChartStyle withLabelTextSize(float size) {
+        ChartStyle style = copy();
+        style.mLabelTextSize = size;
+        style.measureLabels();
+        return style;
+    }
+
+
+    /**
+     * @param color axis line color
+     * @return copy of this style with another line color
+     */
+    public ChartStyle withLineColor(int color) {
+        ChartStyle style = copy();
+        style.mLineColor = color;
+        return style;
+    }
+
+
+    /**
+     * @param colors data series colors, at least one
+     * @return copy of this style with other series colors
+     */
+    public ChartStyle withSeriesColors(int... colors) {
+        if (colors.length == 0) {
+            throw new IllegalArgumentException("Need at least one color");
+        }
+
+        ChartStyle style = copy();
+        style.mSeriesColors = Arrays.copyOf(colors, colors.length);
+        return style;
+    }
+
+
+    /**
+     * Sets a paint up to draw axis labels, center aligned
+     *
+     * @param paint paint to set up
+     */
+    public void applyLabelStyle(Paint paint) {
+        paint.setColor(mLabelColor);
+        paint.setTextSize(mLabelTextSize);
+        paint.setTextAlign(Paint.Align.CENTER);
+    }
+
+
+    /**
+     * Sets a paint up to draw tooltip text
+     *
+     * @param paint paint to set up
+     */
+    public void applyTooltipStyle(Paint paint) {
+        paint.setColor(TOOLTIP_COLOR);
+        paint.setTextSize(mTooltipTextSize);
+    }
+
+
+    private ChartStyle copy() {
+        ChartStyle style = new ChartStyle();
+        style.mBackgroundColor = mBackgroundColor;
+        style.mLabelColor = mLabelColor;
+        style.mLabelTextSize = mLabelTextSize;
+        style.mLineColor = mLineColor;
+        style.mTooltipTextSize = mTooltipTextSize;
+        style.mSeriesColors = mSeriesColors;
+        style.mXAxisHeight = mXAxisHeight;
+        style.mYAxisWidth = mYAxisWidth;
+        style.mLabelBaselineOffset = mLabelBaselineOffset;
+        style.mLabelTextHeight = mLabelTextHeight;
+        return style;
+    }
+
+
+    /**
+     * Measures the label text metrics once for every chart using the style
+     */
+    private void measureLabels() {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        applyLabelStyle(paint);
+
+        mLabelBaselineOffset = -(paint.ascent() + paint.descent()) / 2f;
+        mLabelTextHeight = paint.descent() - paint.ascent();
+    }
+
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public int getLabelColor() {
+        return mLabelColor;
+    }
+
+    public float getLabelTextSize() {
+        return mLabelTextSize;
+    }
+
+    public int getLineColor() {
+        return mLineColor;
+    }
+
+    public int getTooltipBackgroundColor() {
+        return TOOLTIP_BACKGROUND_COLOR;
+    }
+
+    public float getTooltipTextSize() {
+        return mTooltipTextSize;
+    }
+
+    /**
+     * @param series index of a data series
+     * @return color the series is drawn with
+     */
+    public int getSeriesColor(int series) {
+        return mSeriesColors[series % mSeriesColors.length];
+    }
+
+    /**
+     * @return copy of the data series colors
+     */
+    public int[] getSeriesColors() {
+        return Arrays.copyOf(mSeriesColors, mSeriesColors.length);
+    }
+
+    public int getXAxisHeight() {
+        return mXAxisHeight;
+    }
+
+    public int getYAxisWidth() {
+        return mYAxisWidth;
+    }
+
+    public float getLabelBaselineOffset() {
+        return mLabelBaselineOffset;
+    }
+
+    public float getLabelTextHeight() {
+        return mLabelTextHeight;
+    }
+}
@@ -0,0 +1,156 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import android.view.Choreographer;
+
+/**
+ * Drives a chart transition from the display's frame callbacks.
+ *
+ * Every frame hands the listener the eased fraction of the transition,
+ * computed from the frame time so a transition always ends on time even
+ * if frames are dropped. Nothing is allocated per frame.
+ *
+ * If frames take longer than the frame budget (either the time between
+ * frames or the draw time reported with {@link #reportFrameWork(long)})
+ * the animator starts skipping frames, up to
+ * {@link FrameSkipper#MAX_SKIPPED_FRAMES} in a row, and stops skipping
+ * again once drawn frames are cheap, see {@link FrameSkipper}.
+ */
+public class FrameAnimator implements Choreographer.FrameCallback {
+
+    /**
+     * Called on every frame of a running transition
+     */
+    public interface Listener {
+
+        /**
+         * @param fraction eased progress from 0 to 1, the last
+         *                 call of a transition always gets 1
+         */
+        void onAnimationFrame(float fraction);
+    }
+
+
+    public static final long DEFAULT_DURATION_MS = 250;
+
+
+    private final Listener mListener;
+
+
+    private long mDurationNanos = DEFAULT_DURATION_MS * 1000000;
+
+
+    /**
+     * Frame time the transition started at, -1 until the first frame
+     */
+    private long mStartNanos = -1;
+    private boolean mRunning = false;
+
+
+    /**
+     * Decides which frames are handed to the listener
+     */
+    private final FrameSkipper mSkipper = new FrameSkipper(ChartMetrics.FRAME_BUDGET_NANOS);
+
+
+    public FrameAnimator(Listener listener) {
+        mListener = listener;
+    }
+
+
+    /**
+     * Starts a transition, restarting the running one if any
+     */
+    public void start() {
+        mStartNanos = -1;
+        mSkipper.reset();
+
+        if (!mRunning) {
+            mRunning = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+
+    /**
+     * Stops the running transition without a final frame
+     */
+    public void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+
+    /**
+     * Sets the length of transitions
+     *
+     * @param durationMs duration in milliseconds, must be positive
+     */
+    public void setDuration(long durationMs) {
+        if (durationMs <= 0) {
+            throw new IllegalArgumentException("Invalid duration=" + durationMs);
+        }
+
+        mDurationNanos = durationMs * 1000000;
+    }
+
+
+    public long getDuration() {
+        return mDurationNanos / 1000000;
+    }
+
+
+    /**
+     * Reports how long drawing the last frame took, used
+     * to decide whether frames should be skipped
+     *
+     * @param nanos draw time in nanoseconds
+     */
+    public void reportFrameWork(long nanos) {
+        mSkipper.reportFrameWork(nanos);
+    }
+
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+
+        if (mStartNanos < 0) {
+            mStartNanos = frameTimeNanos;
+        }
+
+        boolean draw = mSkipper.onFrame(frameTimeNanos);
+
+        float t = (float) (frameTimeNanos - mStartNanos) / mDurationNanos;
+        if (t >= 1) {
+            mRunning = false;
+            mListener.onAnimationFrame(1);
+            return;
+        }
+
+        Choreographer.getInstance().postFrameCallback(this);
+
+        if (!draw) {
+            return;
+        }
+
+        mListener.onAnimationFrame(ease(t));
+    }
+
+
+    /**
+     * Decelerating curve, fast at the start and settling at the end
+     */
+    static float ease(float t) {
+        float r = 1 - t;
+        return 1 - r * r;
+    }
+}
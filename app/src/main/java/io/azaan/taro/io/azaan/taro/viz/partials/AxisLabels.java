@@ -0,0 +1,196 @@
+package io.azaan.taro.io.azaan.taro.viz.partials;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.base.BaseAxis;
+import io.azaan.taro.io.azaan.taro.viz.base.ChartStyle;
+import io.azaan.taro.io.azaan.taro.viz.base.Orientation;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+/**
+ * Cached layout of the labels of an axis.
+ *
+ * Holds the text (ellipsized to the available width) and the draw
+ * position of every label that is drawn after thinning. Built once
+ * whenever the slots or the label paint change so drawing the axis
+ * only issues drawText calls.
+ */
+class AxisLabels {
+
+    private static final String ELLIPSIS = "\u2026";
+
+
+    /**
+     * Minimum space between two thinned out labels,
+     * as a share of the text size
+     */
+    private static final float LABEL_GAP = 0.5f;
+
+
+    /**
+     * Label text and draw coordinates, mCount entries are valid
+     */
+    private String[] mTexts = new String[0];
+    private float[] mX = new float[0];
+    private float[] mY = new float[0];
+    private int mCount = 0;
+
+
+    /**
+     * Measured width of the label of every slot, scratch space for build
+     */
+    private float[] mWidths = new float[0];
+
+
+    private boolean mValid = false;
+
+
+    /**
+     * Drops the cached layout, it is rebuilt on the next draw
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+
+    boolean isValid() {
+        return mValid;
+    }
+
+
+    /**
+     * Measures and positions the labels of the slots visible in the
+     * viewport of an axis. Labels are centered in their slot and thinned
+     * out according to the label thinning mode of the axis. Positions
+     * are in content coordinates.
+     *
+     * @param axis axis the labels belong to, its style has the label metrics
+     * @param paint paint the labels are drawn with, which must be center aligned
+     * @param maxWidth labels wider than this are ellipsized. Not applied to
+     *                 horizontal axes which thin out their labels as there
+     *                 labels are picked so that they fit.
+     */
+    void build(BaseAxis axis, Paint paint, float maxWidth) {
+        ChartStyle style = axis.getStyle();
+        List<Slot> slots = axis.getSlots();
+        int first = axis.getFirstVisibleSlot();
+        int last = axis.getLastVisibleSlot();
+        ensureCapacity(Math.max(0, last - first + 1));
+
+        float slotWidth = axis.getSlotWidth();
+        float slotHeight = axis.getSlotHeight();
+        boolean horizontal = axis.getOrientation() == Orientation.HORIZONTAL;
+        BaseAxis.LabelThinning thinning = axis.getLabelThinning();
+
+        // distance between slot starts on the major axis
+        float pitch = (horizontal ? slotWidth : slotHeight) + axis.getSlotSeparation();
+
+        // distance from the vertical center of the text to its baseline
+        float baselineOffset = style.getLabelBaselineOffset();
+        float textHeight = style.getLabelTextHeight();
+        float gap = paint.getTextSize() * LABEL_GAP;
+
+        // measure the visible labels
+        float maxLabelWidth = 0;
+        for (int i = first; i <= last; i++) {
+            String label = slots.get(i).label;
+            mWidths[i - first] = label == null ? 0 : paint.measureText(label);
+            maxLabelWidth = Math.max(maxLabelWidth, mWidths[i - first]);
+        }
+
+        int stride = 1;
+        if (thinning == BaseAxis.LabelThinning.EVERY_KTH && pitch > 0) {
+            float maxExtent = horizontal ? maxLabelWidth : textHeight;
+            stride = Math.max(1, (int) Math.ceil((maxExtent + gap) / pitch));
+        }
+
+        float widthLimit = horizontal && thinning != BaseAxis.LabelThinning.NONE ?
+                Float.MAX_VALUE :
+                maxWidth;
+
+        float ellipsisWidth = -1;
+        float lastEnd = -Float.MAX_VALUE;
+
+        // start on a multiple of the stride so the same labels
+        // stay visible while the viewport is moved
+        int start = first + (stride - first % stride) % stride;
+
+        mCount = 0;
+        for (int i = start; i <= last; i += stride) {
+            Slot slot = slots.get(i);
+            if (slot.label == null) {
+                continue;
+            }
+
+            String text = slot.label;
+            float width = mWidths[i - first];
+            if (width > widthLimit) {
+                if (ellipsisWidth < 0)
+                    ellipsisWidth = paint.measureText(ELLIPSIS);
+
+                text = ellipsize(text, paint, widthLimit, ellipsisWidth);
+                width = widthLimit;
+            }
+
+            float x = slot._x + (slotWidth / 2f);
+            float center = slot._y + (slotHeight / 2f);
+
+            if (thinning == BaseAxis.LabelThinning.COLLISION_FREE) {
+                float mid = horizontal ? x : center;
+                float extent = horizontal ? width : textHeight;
+                if (mid - extent / 2f < lastEnd + gap) {
+                    continue;
+                }
+
+                lastEnd = mid + extent / 2f;
+            }
+
+            mTexts[mCount] = text;
+            mX[mCount] = x;
+            mY[mCount] = center + baselineOffset;
+            mCount++;
+        }
+
+        // do not hold on to labels of old slots
+        for (int i = mCount; i < mTexts.length; i++) {
+            mTexts[i] = null;
+        }
+
+        mValid = true;
+    }
+
+
+    /**
+     * Draws the cached labels
+     */
+    void draw(Canvas canvas, Paint paint) {
+        for (int i = 0; i < mCount; i++) {
+            canvas.drawText(mTexts[i], mX[i], mY[i], paint);
+        }
+    }
+
+
+    private void ensureCapacity(int count) {
+        if (mTexts.length >= count) {
+            return;
+        }
+
+        mTexts = new String[count];
+        mX = new float[count];
+        mY = new float[count];
+        mWidths = new float[count];
+    }
+
+
+    private static String ellipsize(String text, Paint paint, float maxWidth, float ellipsisWidth) {
+        if (ellipsisWidth >= maxWidth) {
+            return "";
+        }
+
+        int fits = paint.breakText(text, true, maxWidth - ellipsisWidth, null);
+        return text.substring(0, fits) + ELLIPSIS;
+    }
+}
@@ -0,0 +1,329 @@
+package io.azaan.taro.io.azaan.taro.viz.partials;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.base.BaseAxis;
+import io.azaan.taro.io.azaan.taro.viz.base.SegmentTransition;
+import io.azaan.taro.io.azaan.taro.viz.models.BarStacks;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+/**
+ * Batched geometry of the bars of a stacked bar chart.
+ *
+ * Every segment of a visible bar is a line (x, bottom, x, top) in a
+ * reusable float buffer, with the stroke width set to the slot width.
+ * The lines are grouped by category so every category is drawn with a
+ * single drawLines call in its own color. Segment bounds are read from
+ * the offsets precomputed by {@link BarStacks}. The buffer is only rebuilt
+ * when the data, either axis layout or the range of visible slots change.
+ * A single changed bar is patched in place with {@link #updateBar(int, BarStacks)}.
+ *
+ * Data changes can be animated with a {@link SegmentTransition}.
+ * {@link #beginTransition()} keeps the bars currently on screen, the next
+ * {@link #update} pairs them up with the new bars by slot id and
+ * {@link #setProgress(float)} moves between the two.
+ */
+public class BarGeometry {
+
+    /**
+     * Line end points, category major. Every category has 4 floats per
+     * visible bar starting at the first visible slot, in graph content
+     * coordinates.
+     */
+    private float[] mLines = new float[0];
+    private int mCount = 0;
+    private int mCategories = 1;
+
+
+    /**
+     * State the geometry was built for
+     */
+    private boolean mValid = false;
+    private int mXLayoutVersion;
+    private int mYLayoutVersion;
+    private int mFirstSlot;
+    private int mLastSlot;
+
+
+    /**
+     * Mapping of values to y positions the geometry was built with
+     */
+    private float mBaseY;
+    private float mScale;
+
+
+    /**
+     * Stroke width of the bars, the slot width
+     */
+    private float mStroke;
+
+
+    /**
+     * Moves between the bars on screen when the data changed and the
+     * current geometry
+     */
+    private final SegmentTransition mTransition = new SegmentTransition();
+
+
+    /**
+     * Paint per color, category c is drawn with paint c modulo the count
+     */
+    private Paint[] mPaints;
+
+
+    public BarGeometry() {
+        setColors(Color.WHITE);
+    }
+
+
+    /**
+     * Drops the geometry, for example when the data changes
+     */
+    public void invalidate() {
+        mValid = false;
+    }
+
+
+    /**
+     * Moves the segments of a single bar after its values changed. Does
+     * nothing if the bar is not visible, it is built once scrolled to.
+     *
+     * @param index x slot id of the bar
+     * @param stacks stacks holding the new values
+     */
+    public void updateBar(int index, BarStacks stacks) {
+        if (!mValid || index < mFirstSlot || index > mLastSlot) {
+            return;
+        }
+
+        if (mCount == 0 || stacks.getCategoryCount() != mCategories) {
+            // nothing was built (no y range yet), build on the next update
+            mValid = false;
+            return;
+        }
+
+        float[] offsets = stacks.getOffsets();
+        int offset = index * stacks.getOffsetStride();
+        int stride = mCount * 4;
+        int pos = (index - mFirstSlot) * 4;
+
+        for (int c = 0; c < mCategories; c++, pos += stride) {
+            mLines[pos + 1] = mBaseY + offsets[offset + c] * mScale;
+            mLines[pos + 3] = mBaseY + offsets[offset + c + 1] * mScale;
+        }
+    }
+
+
+    /**
+     * Rebuilds the geometry if anything it depends on changed.
+     *
+     * The bars are indexed by x slot id and x slot ids must be their
+     * position on the axis. The y axis slots must be the ticks from
+     * 0 (id 0) to yMax (last id) in ascending order.
+     *
+     * @param xAxis x axis
+     * @param yAxis y axis
+     * @param stacks segment offsets of every bar
+     * @param yMax value of the top y tick
+     */
+    public void update(BaseAxis xAxis, BaseAxis yAxis, BarStacks stacks, long yMax) {
+        int first = xAxis.getFirstVisibleSlot();
+        int last = Math.min(xAxis.getLastVisibleSlot(), stacks.getBarCount() - 1);
+
+        boolean same = mValid
+                && mXLayoutVersion == xAxis.getLayoutVersion()
+                && mYLayoutVersion == yAxis.getLayoutVersion()
+                && mFirstSlot == first
+                && mLastSlot == last;
+
+        if (same) {
+            if (mTransition.isPending()) {
+                pairUp();
+            }
+
+            return;
+        }
+
+        // target moved mid transition (new y scale, scrolled), carry
+        // on from what is on screen now
+        mTransition.retarget(mLines, mFirstSlot, mCount, mCategories, mStroke);
+
+        build(xAxis, yAxis, stacks, yMax, first, last);
+
+        mValid = true;
+        mXLayoutVersion = xAxis.getLayoutVersion();
+        mYLayoutVersion = yAxis.getLayoutVersion();
+        mFirstSlot = first;
+        mLastSlot = last;
+
+        if (mTransition.isPending()) {
+            pairUp();
+        }
+    }
+
+
+    /**
+     * Keeps the bars currently on screen as the start of a transition
+     * to whatever the geometry is rebuilt with next. Beginning again
+     * before the geometry is rebuilt keeps the bars kept first.
+     */
+    public void beginTransition() {
+        mTransition.begin(mLines, mFirstSlot, mCount, mCategories, mStroke);
+    }
+
+
+    /**
+     * Moves the drawn bars between the start and the current geometry
+     *
+     * @param progress 0 for the start, 1 to end the transition
+     */
+    public void setProgress(float progress) {
+        mTransition.setProgress(progress);
+    }
+
+
+    /**
+     * @return true if the drawn bars are between two geometries
+     */
+    public boolean isTransitionRunning() {
+        return mTransition.isRunning() || mTransition.isPending();
+    }
+
+
+    /**
+     * Maps a y position in graph content coordinates to a value with
+     * the scale the geometry was built with, e.g. to find the segment
+     * under a touch
+     *
+     * @param y y position
+     * @return value, NaN if nothing was built
+     */
+    public float valueAt(float y) {
+        if (mCount == 0 || mScale == 0) {
+            return Float.NaN;
+        }
+
+        return (y - mBaseY) / mScale;
+    }
+
+
+    private void pairUp() {
+        mTransition.pairUp(mLines, mFirstSlot, mCount, mCategories, mStroke);
+    }
+
+
+    private void build(BaseAxis xAxis, BaseAxis yAxis, BarStacks stacks, long yMax, int first, int last) {
+        mCount = 0;
+
+        int yTicks = yAxis.getSlots().size();
+        if (last < first || yTicks < 2 || yMax <= 0) {
+            return;
+        }
+
+        int categories = stacks.getCategoryCount();
+        int count = last - first + 1;
+        int stride = count * 4;
+        if (mLines.length < stride * categories) {
+            mLines = new float[stride * categories];
+        }
+
+        // tick centers of 0 and yMax, values are mapped linearly between them
+        float baseY = yAxis.getCenterPosForSlot(0);
+        float topY = yAxis.getCenterPosForSlot(yTicks - 1);
+        float scale = (topY - baseY) / yMax;
+
+        List<Slot> slots = xAxis.getSlots();
+        float halfWidth = xAxis.getSlotWidth() / 2f;
+        float[] offsets = stacks.getOffsets();
+        int offsetStride = stacks.getOffsetStride();
+
+        // every segment of a visible bar gets a line, even empty ones, so
+        // a bar can be found by its index when patched. Zero length lines
+        // with a butt cap draw nothing.
+        for (int i = first; i <= last; i++) {
+            float x = slots.get(i)._x + halfWidth;
+            int offset = i * offsetStride;
+            int pos = (i - first) * 4;
+
+            for (int c = 0; c < categories; c++, pos += stride) {
+                mLines[pos] = x;
+                mLines[pos + 1] = baseY + offsets[offset + c] * scale;
+                mLines[pos + 2] = x;
+                mLines[pos + 3] = baseY + offsets[offset + c + 1] * scale;
+            }
+        }
+
+        mCount = count;
+        mCategories = categories;
+        mBaseY = baseY;
+        mScale = scale;
+
+        mStroke = xAxis.getSlotWidth();
+    }
+
+
+    /**
+     * Draws the bars. The canvas must be translated to
+     * the graph content coordinates.
+     *
+     * @param canvas canvas
+     */
+    public void draw(Canvas canvas) {
+        if (mCount == 0) {
+            return;
+        }
+
+        int stride = mCount * 4;
+
+        if (!mTransition.isRunning()) {
+            drawCategories(canvas, mLines, stride, mStroke);
+            return;
+        }
+
+        float[] drawn = mTransition.interpolate(mLines, stride * mCategories);
+        drawCategories(canvas, drawn, stride, mTransition.interpolateStroke(mStroke));
+    }
+
+
+    private void drawCategories(Canvas canvas, float[] lines, int stride, float stroke) {
+        for (Paint paint : mPaints) {
+            paint.setStrokeWidth(stroke);
+        }
+
+        for (int c = 0; c < mCategories; c++) {
+            canvas.drawLines(lines, c * stride, stride, mPaints[c % mPaints.length]);
+        }
+    }
+
+
+    public void setColor(int color) {
+        setColors(color);
+    }
+
+
+    /**
+     * Sets the color of every category, cycling through
+     * the colors if there are more categories
+     *
+     * @param colors colors, at least one
+     */
+    public void setColors(int... colors) {
+        if (colors.length == 0) {
+            throw new IllegalArgumentException("Need at least one color");
+        }
+
+        mPaints = new Paint[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(colors[i]);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeCap(Paint.Cap.BUTT);
+            paint.setStrokeWidth(mStroke);
+            mPaints[i] = paint;
+        }
+    }
+}
@@ -2,11 +2,9 @@ package io.azaan.taro.io.azaan.taro.viz.partials;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
 
 import io.azaan.taro.io.azaan.taro.viz.base.BaseAxis;
-import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.base.Orientation;
 
 /**
  * Generic XAxis implementation.
@@ -14,10 +12,9 @@ import io.azaan.taro.io.azaan.taro.viz.models.Slot;
 public class XAxis extends BaseAxis {
 
     /**
-     * Paint objects
+     * Cached label text and positions
      */
-    private Paint mLabelPaint;
-    private Paint mLinePaint;
+    private AxisLabels mLabels = new AxisLabels();
 
 
     /**
@@ -26,15 +23,6 @@ public class XAxis extends BaseAxis {
      */
     public XAxis(Context context) {
         super(context, Orientation.HORIZONTAL);
-
-        // set up paint objects
-        mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mLabelPaint.setColor(Color.YELLOW);
-        mLabelPaint.setTextSize(30);
-        mLabelPaint.setTextAlign(Paint.Align.CENTER);
-
-        mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mLinePaint.setColor(Color.GREEN);
     }
 
 
@@ -46,21 +34,43 @@ public class XAxis extends BaseAxis {
         super.draw(canvas);
 
         // draw the axis line
-        canvas.drawLine(0, 0, getW(), 0, mLinePaint);
+        canvas.drawLine(0, 0, getW(), 0, getLinePaint());
 
         // draw the labels
-        for (Slot slot : getSlots()) {
-            if (slot.label == null) {
-                continue;
-            }
-
-            mLabelPaint.measureText(slot.label);
-            canvas.drawText(
-                    slot.label,
-                    slot._x + (getSlotWidth() / 2f),
-                    (getSlotHeight() / 2f) - ((mLabelPaint.ascent() + mLabelPaint.descent()) / 2f),
-                    mLabelPaint
-            );
+        if (!mLabels.isValid()) {
+            // labels may use the separation up to the next slot
+            float maxWidth = getSlotWidth() + getSlotSeparation();
+            mLabels.build(this, getLabelPaint(), maxWidth);
         }
+
+        int saveCount = canvas.save();
+        translateToViewport(canvas);
+        mLabels.draw(canvas, getLabelPaint());
+        canvas.restoreToCount(saveCount);
+    }
+
+
+    @Override
+    protected void onLayoutChanged() {
+        mLabels.invalidate();
+    }
+
+
+    @Override
+    protected void onStyleChanged() {
+        mLabels.invalidate();
+    }
+
+
+    public void setLabelColor(int color) {
+        setStyle(getStyle().withLabelColor(color));
+    }
+
+    public void setLabelTextSize(float size) {
+        setStyle(getStyle().withLabelTextSize(size));
+    }
+
+    public void setLineColor(int color) {
+        setStyle(getStyle().withLineColor(color));
     }
 }
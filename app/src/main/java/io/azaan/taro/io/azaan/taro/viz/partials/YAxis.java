@@ -2,11 +2,10 @@ package io.azaan.taro.io.azaan.taro.viz.partials;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
 
+import io.azaan.taro.io.azaan.taro.viz.base.Alignment;
 import io.azaan.taro.io.azaan.taro.viz.base.BaseAxis;
-import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.base.Orientation;
 
 /**
  * Generic YAxis implementation
@@ -15,10 +14,9 @@ public class YAxis extends BaseAxis {
 
 
     /**
-     * Paint objects
+     * Cached label text and positions
      */
-    private Paint mLabelPaint;
-    private Paint mLinePaint;
+    private AxisLabels mLabels = new AxisLabels();
 
 
     /**
@@ -29,15 +27,6 @@ public class YAxis extends BaseAxis {
         super(context, Orientation.VERTICAL);
 
         setAlignment(Alignment.START);
-
-        // set up paint objects
-        mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mLabelPaint.setColor(Color.YELLOW);
-        mLabelPaint.setTextSize(30);
-        mLabelPaint.setTextAlign(Paint.Align.CENTER);
-
-        mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mLinePaint.setColor(Color.GREEN);
     }
 
 
@@ -49,21 +38,41 @@ public class YAxis extends BaseAxis {
         super.draw(canvas);
 
         // draw the line
-        canvas.drawLine(getW(), 0, getW(), getH(), mLinePaint);
+        canvas.drawLine(getW(), 0, getW(), getH(), getLinePaint());
 
         // draw the labels
-        for (Slot slot : getSlots()) {
-            if (slot.label == null) {
-                continue;
-            }
-
-            mLabelPaint.measureText(slot.label);
-            canvas.drawText(
-                    slot.label,
-                    slot._x + (getSlotWidth() / 2f),
-                    slot._y + (getSlotHeight() / 2f) - ((mLabelPaint.ascent() + mLabelPaint.descent()) / 2f),
-                    mLabelPaint
-            );
+        if (!mLabels.isValid()) {
+            mLabels.build(this, getLabelPaint(), getW());
         }
+
+        int saveCount = canvas.save();
+        translateToViewport(canvas);
+        mLabels.draw(canvas, getLabelPaint());
+        canvas.restoreToCount(saveCount);
+    }
+
+
+    @Override
+    protected void onLayoutChanged() {
+        mLabels.invalidate();
+    }
+
+
+    @Override
+    protected void onStyleChanged() {
+        mLabels.invalidate();
+    }
+
+
+    public void setLabelColor(int color) {
+        setStyle(getStyle().withLabelColor(color));
+    }
+
+    public void setLabelTextSize(float size) {
+        setStyle(getStyle().withLabelTextSize(size));
+    }
+
+    public void setLineColor(int color) {
+        setStyle(getStyle().withLineColor(color));
     }
 }
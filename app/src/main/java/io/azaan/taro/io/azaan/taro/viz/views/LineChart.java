@@ -0,0 +1,531 @@
+package io.azaan.taro.io.azaan.taro.viz.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import io.azaan.taro.io.azaan.taro.data.CalendarMath;
+import io.azaan.taro.io.azaan.taro.data.Granularity;
+import io.azaan.taro.io.azaan.taro.viz.AxisHelpers;
+import io.azaan.taro.io.azaan.taro.viz.Downsampler;
+import io.azaan.taro.io.azaan.taro.viz.Helpers;
+import io.azaan.taro.io.azaan.taro.viz.RangeMaxTree;
+import io.azaan.taro.io.azaan.taro.viz.ValueFormatter;
+import io.azaan.taro.io.azaan.taro.viz.base.BaseAxis;
+import io.azaan.taro.io.azaan.taro.viz.base.BaseChart;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.models.TimeSeries;
+import io.azaan.taro.io.azaan.taro.viz.partials.XAxis;
+import io.azaan.taro.io.azaan.taro.viz.partials.YAxis;
+
+/**
+ * Line chart of a time series with far more points than pixels, e.g.
+ * the balance after every transaction.
+ *
+ * The x axis has a slot per day. The series is downsampled with
+ * {@link Downsampler#lttb} to about one point per pixel column of the
+ * zoomed content. Zoom levels are powers of 2 and the points picked for
+ * a level are cached, so panning and zooming within a level never goes
+ * back to the full series. Points for a new level are picked on a
+ * background thread, the closest level picked so far is drawn meanwhile.
+ * The path is only built from the picked points inside the viewport.
+ */
+public class LineChart extends BaseChart {
+
+    /**
+     * Most ticks on the y axis
+     */
+    private static final int Y_TICK_COUNT = 5;
+
+
+    /**
+     * Width of the line in DP
+     */
+    private static final float LINE_WIDTH_DP = 2;
+
+
+    /**
+     * Points shown
+     */
+    private TimeSeries mSeries = new TimeSeries();
+
+
+    /**
+     * Range max over the values and over the negated values,
+     * used to rescale the y axis to the points in the viewport
+     */
+    private RangeMaxTree mMax = new RangeMaxTree(new long[0], 0);
+    private RangeMaxTree mNegatedMin = new RangeMaxTree(new long[0], 0);
+
+
+    /**
+     * Time zone deciding which day slot a point is in
+     */
+    private TimeZone mTimeZone = TimeZone.getDefault();
+
+
+    /**
+     * Time at the center of the first day slot. Times are mapped linearly
+     * to x from there, ignoring daylight saving changes within the series.
+     */
+    private long mOrigin;
+
+
+    /**
+     * Bottom and top tick of the current y slots, valid if mYValid
+     */
+    private long mYMin;
+    private long mYMax;
+    private boolean mYValid = false;
+
+
+    /**
+     * Indexes of the points picked per zoom level, keyed by the number
+     * of points asked for. Levels are powers of 2 apart, so all levels
+     * together hold at most twice the points of the series.
+     */
+    private final SparseArray<int[]> mReduced = new SparseArray<>();
+
+
+    /**
+     * Number of points being picked on the background thread, -1 if none
+     */
+    private int mReducing = -1;
+
+
+    /**
+     * Path of the visible picked points and the state it was built for
+     */
+    private final Path mPath = new Path();
+    private boolean mPathValid = false;
+    private int[] mPathPoints;
+    private int mPathFirst;
+    private int mPathLast;
+    private int mPathXLayoutVersion;
+    private int mPathYLayoutVersion;
+
+
+    private Paint mLinePaint;
+
+
+    /**
+     * Formats the y tick labels
+     */
+    private volatile ValueFormatter mValueFormatter = new ValueFormatter();
+
+
+    /**
+     * Constructor
+     * @param context android context
+     */
+    public LineChart(Context context) {
+        super(context);
+        init(context, null, 0);
+    }
+
+
+    /**
+     * Constructor
+     * @param context android context
+     * @param attrs attribute set
+     */
+    public LineChart(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs, 0);
+    }
+
+
+    /**
+     * Constructor
+     * @param context android context
+     * @param attrs attribute set
+     * @param defStyleAttr default style attributes
+     */
+    public LineChart(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs, defStyleAttr);
+    }
+
+
+    /**
+     * Common constructor
+     */
+    private void init(Context context, AttributeSet attrs, int defStyleAttr) {
+        mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mLinePaint.setColor(getStyle().getSeriesColor(0));
+        mLinePaint.setStyle(Paint.Style.STROKE);
+        mLinePaint.setStrokeJoin(Paint.Join.ROUND);
+        mLinePaint.setStrokeWidth(Helpers.pxFromDp(context, LINE_WIDTH_DP));
+
+        super.configure(new XAxis(context), new YAxis(context));
+    }
+
+
+    /**
+     * Sets the series to display. The series is copied, so the
+     * caller can keep appending to theirs.
+     *
+     * @param series series to display
+     */
+    public void setData(TimeSeries series) {
+        mSeries = series.copy();
+
+        int count = mSeries.size();
+        long[] values = mSeries.getValues();
+        long[] negated = new long[count];
+        for (int i = 0; i < count; i++) {
+            negated[i] = -values[i];
+        }
+
+        mMax = new RangeMaxTree(values, count);
+        mNegatedMin = new RangeMaxTree(negated, count);
+
+        mReduced.clear();
+        mReducing = -1;
+        mPathValid = false;
+        mYValid = false;
+
+        super.setXSlots(makeDaySlots());
+        updateYSlots();
+        reduceForViewport();
+    }
+
+
+    /**
+     * Makes a slot for every day from the first to the last point
+     */
+    private List<Slot> makeDaySlots() {
+        int count = mSeries.size();
+        if (count == 0) {
+            return new ArrayList<>();
+        }
+
+        long firstTime = mSeries.getTime(0);
+        long firstDay = CalendarMath.epochDay(firstTime, mTimeZone);
+        long lastDay = CalendarMath.epochDay(mSeries.getTime(count - 1), mTimeZone);
+
+        mOrigin = firstDay * CalendarMath.MILLIS_PER_DAY + CalendarMath.MILLIS_PER_DAY / 2
+                - mTimeZone.getOffset(firstTime);
+
+        List<Slot> slots = new ArrayList<>((int) (lastDay - firstDay + 1));
+        for (long day = firstDay; day <= lastDay; day++) {
+            slots.add(new Slot((int) (day - firstDay), Granularity.DAY.label(day), false, true));
+        }
+
+        return slots;
+    }
+
+
+    /**
+     * @return number of points, before downsampling
+     */
+    public int getPointCount() {
+        return mSeries.size();
+    }
+
+
+    public void setLineColor(int color) {
+        setStyle(getStyle().withSeriesColors(color));
+    }
+
+
+    @Override
+    protected void onStyleChanged() {
+        mLinePaint.setColor(getStyle().getSeriesColor(0));
+    }
+
+
+    /**
+     * Sets how y tick labels are formatted, e.g.
+     * {@link ValueFormatter#currency} for values in cents
+     *
+     * @param formatter value formatter
+     */
+    public void setValueFormatter(ValueFormatter formatter) {
+        mValueFormatter = formatter;
+
+        // rebuild the y slots with the new labels
+        mYValid = false;
+        updateYSlots();
+    }
+
+
+    @Override
+    protected void onViewportChanged() {
+        updateYSlots();
+        reduceForViewport();
+    }
+
+
+    /**
+     * Makes the y slots cover the points in the viewport. The
+     * slots are only replaced if the bottom or top tick changes.
+     */
+    private void updateYSlots() {
+        int count = mSeries.size();
+        long min = 0;
+        long max = 0;
+
+        if (count > 0) {
+            int first = 0;
+            int last = count - 1;
+
+            BaseAxis xAxis = getXAxis();
+            if (isLaidOut(xAxis)) {
+                // the points just outside the viewport are part of the line
+                float offset = xAxis.getViewportOffset();
+                first = Math.max(0, mSeries.indexAtOrAfter(timeAt(xAxis, offset)) - 1);
+                last = Math.min(count - 1, mSeries.indexAtOrAfter(timeAt(xAxis, offset + xAxis.getW())));
+            }
+
+            min = -mNegatedMin.max(first, last);
+            max = mMax.max(first, last);
+        }
+
+        long[] ticks = AxisHelpers.niceTicks(min, max, Y_TICK_COUNT);
+        long bottom = ticks[0];
+        long top = ticks[ticks.length - 1];
+
+        if (mYValid && bottom == mYMin && top == mYMax) {
+            return;
+        }
+
+        mYMin = bottom;
+        mYMax = top;
+        mYValid = true;
+        mPathValid = false;
+
+        List<Slot> ySlots = new ArrayList<>(ticks.length);
+        for (int i = 0; i < ticks.length; i++) {
+            ySlots.add(new Slot(i, mValueFormatter.label(ticks[i]), false, true));
+        }
+
+        super.setYSlots(ySlots);
+    }
+
+
+    @Override
+    protected void onDrawGraph(Canvas canvas) {
+        BaseAxis xAxis = getXAxis();
+        BaseAxis yAxis = getYAxis();
+        if (mSeries.size() < 2 || yAxis.getSlots().size() < 2 || !isLaidOut(xAxis)) {
+            return;
+        }
+
+        int[] points = getReducedPoints(xAxis);
+        if (points == null) {
+            return;
+        }
+
+        long[] times = mSeries.getTimes();
+
+        // picked points in the viewport, and the ones just
+        // outside so the line runs up to the edges
+        float offset = xAxis.getViewportOffset();
+        int first = Math.max(0, lowerBound(points, times, timeAt(xAxis, offset)) - 1);
+        int last = Math.min(points.length - 1, lowerBound(points, times, timeAt(xAxis, offset + xAxis.getW())));
+
+        boolean same = mPathValid
+                && mPathPoints == points
+                && mPathFirst == first
+                && mPathLast == last
+                && mPathXLayoutVersion == xAxis.getLayoutVersion()
+                && mPathYLayoutVersion == yAxis.getLayoutVersion();
+
+        if (!same) {
+            buildPath(xAxis, yAxis, points, first, last);
+
+            mPathValid = true;
+            mPathPoints = points;
+            mPathFirst = first;
+            mPathLast = last;
+            mPathXLayoutVersion = xAxis.getLayoutVersion();
+            mPathYLayoutVersion = yAxis.getLayoutVersion();
+        }
+
+        xAxis.translateToViewport(canvas);
+        canvas.drawPath(mPath, mLinePaint);
+    }
+
+
+    /**
+     * Gets the points picked for the zoom level of the x axis. Until they
+     * are picked the points of the closest level picked so far are used.
+     *
+     * @return picked points, null if no level was picked yet
+     */
+    private int[] getReducedPoints(BaseAxis xAxis) {
+        int threshold = getThreshold(xAxis);
+
+        int[] points = mReduced.get(threshold);
+        if (points != null) {
+            return points;
+        }
+
+        reduceInBackground(threshold);
+
+        // the most detailed level below the wanted one, else the least detailed
+        int count = mReduced.size();
+        if (count == 0) {
+            return null;
+        }
+
+        int closest = 0;
+        while (closest + 1 < count && mReduced.keyAt(closest + 1) < threshold) {
+            closest++;
+        }
+
+        return mReduced.valueAt(closest);
+    }
+
+
+    /**
+     * Number of points to pick for the zoom level of the x axis, about
+     * one per pixel column of the content at the next power of 2 zoom
+     */
+    private int getThreshold(BaseAxis xAxis) {
+        int level = (int) Math.ceil(Math.log(xAxis.getViewportScale()) / Math.log(2));
+        long columns = (long) Math.ceil(xAxis.getW()) << Math.min(level, 30);
+        return (int) Math.max(3, Math.min(mSeries.size(), columns));
+    }
+
+
+    /**
+     * Starts picking the points for the current zoom level if
+     * they are not picked yet, so drawing does not wait for them
+     */
+    private void reduceForViewport() {
+        BaseAxis xAxis = getXAxis();
+        if (mSeries.size() < 2 || !isLaidOut(xAxis)) {
+            return;
+        }
+
+        int threshold = getThreshold(xAxis);
+        if (mReduced.get(threshold) == null) {
+            reduceInBackground(threshold);
+        }
+    }
+
+
+    /**
+     * Picks points of the series on the background thread and
+     * redraws with them, unless the series changed meanwhile
+     */
+    private void reduceInBackground(final int threshold) {
+        if (mReducing == threshold) {
+            return;
+        }
+
+        mReducing = threshold;
+        final TimeSeries series = mSeries;
+
+        runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                int size = series.size();
+                final int[] points = new int[Math.min(threshold, size)];
+                Downsampler.lttb(series.getTimes(), series.getValues(), 0, size, threshold, points);
+
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (series != mSeries) {
+                            return;
+                        }
+
+                        mReduced.put(threshold, points);
+                        if (mReducing == threshold) {
+                            mReducing = -1;
+                        }
+
+                        invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+
+    private void buildPath(BaseAxis xAxis, BaseAxis yAxis, int[] points, int first, int last) {
+        mPath.rewind();
+
+        int yTicks = yAxis.getSlots().size();
+        float baseY = yAxis.getCenterPosForSlot(0);
+        float topY = yAxis.getCenterPosForSlot(yTicks - 1);
+        double yScale = (topY - baseY) / (double) (mYMax - mYMin);
+
+        float startX = xAxis.getCenterPosForSlot(0);
+        double pxPerMs = pxPerMs(xAxis);
+
+        long[] times = mSeries.getTimes();
+        long[] values = mSeries.getValues();
+
+        for (int i = first; i <= last; i++) {
+            int point = points[i];
+            float x = (float) (startX + (times[point] - mOrigin) * pxPerMs);
+            float y = (float) (baseY + (values[point] - mYMin) * yScale);
+
+            if (i == first) {
+                mPath.moveTo(x, y);
+            } else {
+                mPath.lineTo(x, y);
+            }
+        }
+    }
+
+
+    /**
+     * Finds the first picked point at or after a time
+     */
+    private static int lowerBound(int[] points, long[] times, long time) {
+        int lo = 0;
+        int hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[points[mid]] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+
+    private static boolean isLaidOut(BaseAxis xAxis) {
+        return xAxis.getW() > 0 && !xAxis.getSlots().isEmpty();
+    }
+
+
+    /**
+     * Distance between day slot centers per millisecond
+     */
+    private static double pxPerMs(BaseAxis xAxis) {
+        float pitch = xAxis.getSlots().size() > 1 ?
+                xAxis.getCenterPosForSlot(1) - xAxis.getCenterPosForSlot(0) :
+                xAxis.getSlotWidth();
+
+        return pitch / (double) CalendarMath.MILLIS_PER_DAY;
+    }
+
+
+    /**
+     * Maps x in content coordinates to a time
+     */
+    private long timeAt(BaseAxis xAxis, float x) {
+        double pxPerMs = pxPerMs(xAxis);
+        if (pxPerMs <= 0) {
+            return mOrigin;
+        }
+
+        return mOrigin + (long) ((x - xAxis.getCenterPosForSlot(0)) / pxPerMs);
+    }
+}
@@ -1,21 +1,74 @@
 package io.azaan.taro.io.azaan.taro.viz.views;
 
 import android.content.Context;
+import android.graphics.Canvas;
 import android.util.AttributeSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import io.azaan.taro.io.azaan.taro.data.ChartSnapshot;
 import io.azaan.taro.io.azaan.taro.viz.AxisHelpers;
+import io.azaan.taro.io.azaan.taro.viz.RangeMaxTree;
+import io.azaan.taro.io.azaan.taro.viz.ValueFormatter;
 import io.azaan.taro.io.azaan.taro.viz.base.BaseChart;
+import io.azaan.taro.io.azaan.taro.viz.models.BarStacks;
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
 import io.azaan.taro.io.azaan.taro.viz.models.Slot;
 import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+import io.azaan.taro.io.azaan.taro.viz.partials.BarGeometry;
 import io.azaan.taro.io.azaan.taro.viz.partials.XAxis;
 import io.azaan.taro.io.azaan.taro.viz.partials.YAxis;
 
 public class StackedBarChart extends BaseChart {
     private static final String TAG = StackedBarChart.class.getSimpleName();
 
+
+    /**
+     * Most ticks on the y axis
+     */
+    private static final int Y_TICK_COUNT = 5;
+
+
+    /**
+     * Segments of every bar with their offsets from the base line,
+     * computed once per data change. Bars are indexed by x slot id.
+     */
+    private BarStacks mStacks = new BarStacks(1);
+
+
+    /**
+     * Range max over the bar totals, used to rescale
+     * the y axis to the bars in the viewport
+     */
+    private RangeMaxTree mBarMax = new RangeMaxTree(new long[0], 0);
+
+
+    /**
+     * Top tick of the current y slots, -1 if not set
+     */
+    private long mYMax = -1;
+
+
+    /**
+     * Scratch space for the y ticks while rescaling to the viewport
+     */
+    private final long[] mYTicks = new long[Y_TICK_COUNT];
+
+
+    /**
+     * Cached geometry of the visible bars
+     */
+    private BarGeometry mBars = new BarGeometry();
+
+
+    /**
+     * Formats the y tick labels, labels are memoized so rescaling
+     * to ticks seen before does not format them again
+     */
+    private volatile ValueFormatter mValueFormatter = new ValueFormatter();
+
     /**
      * Constructor
      * @param context android context
@@ -53,27 +106,511 @@ public class StackedBarChart extends BaseChart {
      * Common constructor
      */
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
+        mBars.setColors(getStyle().getSeriesColors());
+
         XAxis xAxis = new XAxis(context);
         YAxis yAxis = new YAxis(context);
 
         super.configure(xAxis, yAxis);
     }
 
+    /**
+     * Sets the data to display. Values with the same label are stacked
+     * into one bar, with a segment per category.
+     *
+     * The new data is diffed against the bars currently shown. If it only
+     * changes bar values and/or adds bars after the existing ones, the
+     * x axis is kept and only the changed bars are updated. Otherwise
+     * all slots are rebuilt.
+     *
+     * @param data data to display
+     */
     public void setData(List<StackedBarData> data) {
         List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(data);
+        applyBars(xSlots, AxisHelpers.stackByXSlot(data, xSlots));
+    }
+
+
+    /**
+     * Sets columnar data. Same as {@link #setData(List)} without
+     * an object per data point.
+     *
+     * @param data data to display
+     */
+    public void setData(ColumnarData data) {
+        List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(data);
+        applyBars(xSlots, AxisHelpers.stackByXSlot(data, xSlots));
+    }
+
+
+    /**
+     * Adds a bar after the existing ones. The label must sort after the
+     * labels of all bars, use {@link #setData(List)} otherwise.
+     *
+     * @param label label of the bar
+     * @param values segment values of the bar by category
+     */
+    public void appendBar(String label, long... values) {
+        checkNotPreparing();
+        if (values.length > mStacks.getCategoryCount()) {
+            throw new IllegalArgumentException(
+                    "Too many values=" + values.length + " categoryCount=" + mStacks.getCategoryCount()
+            );
+        }
+
+        int index = mStacks.getBarCount();
+
+        List<Slot> slots = new ArrayList<>(1);
+        slots.add(new Slot(index, label, false, true));
+
+        beginBarTransition();
+        super.appendXSlots(slots);
+
+        mStacks.addBar(values);
+        mBarMax.append(mStacks.getTotal(index));
+
+        updateYSlots();
+    }
+
+
+    /**
+     * Changes the segment values of a bar. Only that bar is redrawn
+     * unless the y axis has to be rescaled.
+     *
+     * @param index index of the bar, in label order
+     * @param values new segment values by category, categories
+     *               without a value are empty
+     */
+    public void updateBar(int index, long... values) {
+        checkBarIndex(index);
+        checkNotPreparing();
+
+        beginBarTransition();
+        setBar(index, values);
+        updateYSlots();
+        invalidate();
+    }
+
 
-        List<Slot> ySlots = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            String label = AxisHelpers.humanizeValue(1432 * i);
+    /**
+     * Removes a bar, the bars after it move down by one index
+     *
+     * @param index index of the bar, in label order
+     */
+    public void removeBar(int index) {
+        checkBarIndex(index);
+        checkNotPreparing();
+
+        beginBarTransition();
+
+        // x slot ids are their position on the axis
+        List<Slot> slots = getXAxis().getSlots();
+        for (int i = index + 1; i < slots.size(); i++) {
+            slots.get(i).id--;
+        }
+
+        super.removeXSlot(index);
+
+        mStacks.removeBar(index);
+        mBarMax = new RangeMaxTree(mStacks.getTotals(), mStacks.getBarCount());
+
+        updateYSlots();
+    }
+
+
+    /**
+     * @return number of bars
+     */
+    public int getBarCount() {
+        return mStacks.getBarCount();
+    }
+
+
+    /**
+     * Saves the bars shown, so they can be shown with
+     * {@link #showSnapshot(ChartSnapshot)} on the next start.
+     * Only the total of every bar is saved.
+     *
+     * @return snapshot
+     */
+    public ChartSnapshot makeSnapshot() {
+        // x slot ids are their position on the axis
+        List<Slot> slots = getXAxis().getSlots();
+        int count = mStacks.getBarCount();
+        String[] labels = new String[count];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = slots.get(i).label;
+        }
+
+        return new ChartSnapshot(labels, Arrays.copyOf(mStacks.getTotals(), count));
+    }
+
+
+    /**
+     * Shows the bars of a snapshot. Setting fresh data
+     * afterwards replaces the snapshot bars.
+     *
+     * @param snapshot snapshot made with {@link #makeSnapshot()}
+     */
+    public void showSnapshot(ChartSnapshot snapshot) {
+        String[] labels = snapshot.getLabels();
+        List<Slot> xSlots = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            xSlots.add(new Slot(i, labels[i], false, true));
+        }
+
+        setBars(xSlots, BarStacks.of(snapshot.getValues()));
+    }
+
+
+    /**
+     * Same as {@link #setData(List)} but the slots are built and laid out
+     * on a background thread and swapped in on a later frame. Data passed
+     * in by earlier calls that has not been shown yet is dropped.
+     *
+     * @param data data to display
+     */
+    public void setDataAsync(List<StackedBarData> data) {
+        // copy so that the caller can keep modifying their list
+        final List<StackedBarData> snapshot = new ArrayList<>(data);
+
+        super.setSlotsAsync(new BarSlotSource() {
+            @Override
+            public List<Slot> makeXSlots() {
+                List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(snapshot);
+                setStacks(AxisHelpers.stackByXSlot(snapshot, xSlots));
+                return xSlots;
+            }
+        });
+    }
+
+
+    /**
+     * Same as {@link #setData(ColumnarData)} but the slots are built and
+     * laid out on a background thread, see {@link #setDataAsync(List)}.
+     *
+     * @param data data to display
+     */
+    public void setDataAsync(ColumnarData data) {
+        // copy so that the caller can keep appending to their data
+        final ColumnarData snapshot = data.copy();
+
+        super.setSlotsAsync(new BarSlotSource() {
+            @Override
+            public List<Slot> makeXSlots() {
+                List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(snapshot);
+                setStacks(AxisHelpers.stackByXSlot(snapshot, xSlots));
+                return xSlots;
+            }
+        });
+    }
+
+
+    /**
+     * Slot source for the async setData variants. The bar stacks are
+     * computed along with the x slots on the background thread and
+     * swapped in with the slots.
+     */
+    private abstract class BarSlotSource implements SlotSource {
+        private BarStacks mPreparedStacks;
+        private RangeMaxTree mPreparedMax;
+        private long mPreparedYMax;
+
+        protected void setStacks(BarStacks stacks) {
+            mPreparedStacks = stacks;
+            mPreparedMax = new RangeMaxTree(stacks.getTotals(), stacks.getBarCount());
+        }
+
+        @Override
+        public List<Slot> makeYSlots() {
+            int count = mPreparedStacks.getBarCount();
+            long max = count == 0 ? 0 : mPreparedMax.max(0, count - 1);
+            long[] ticks = AxisHelpers.niceTicks(max, Y_TICK_COUNT);
+            mPreparedYMax = ticks[ticks.length - 1];
+
+            return StackedBarChart.makeYSlots(ticks, ticks.length, mValueFormatter);
+        }
+
+        @Override
+        public void onSlotsApplied() {
+            beginBarTransition();
+            mStacks = mPreparedStacks;
+            mBarMax = mPreparedMax;
+            mYMax = mPreparedYMax;
+            mBars.invalidate();
+
+            // rescale to the viewport
+            updateYSlots();
+        }
+    }
+
+
+    /**
+     * Shows new bars, keeping the x axis if the new slots are the
+     * current ones with possibly more appended
+     */
+    private void applyBars(List<Slot> xSlots, BarStacks stacks) {
+        List<Slot> current = getXAxis().getSlots();
+        int count = current.size();
+
+        boolean incremental = !isPreparingSlots()
+                && count == mStacks.getBarCount()
+                && stacks.getCategoryCount() == mStacks.getCategoryCount()
+                && xSlots.size() >= count
+                && sameLabels(current, xSlots, count);
+
+        if (!incremental) {
+            setBars(xSlots, stacks);
+            return;
+        }
+
+        beginBarTransition();
+
+        BarStacks previous = mStacks;
+        mStacks = stacks;
+
+        for (int i = 0; i < count; i++) {
+            if (!stacks.sameBar(i, previous, i)) {
+                mBarMax.set(i, stacks.getTotal(i));
+                mBars.updateBar(i, stacks);
+            }
+        }
+
+        if (xSlots.size() > count) {
+            super.appendXSlots(xSlots.subList(count, xSlots.size()));
+            mBarMax = new RangeMaxTree(stacks.getTotals(), stacks.getBarCount());
+        }
+
+        updateYSlots();
+        invalidate();
+    }
+
+
+    private static boolean sameLabels(List<Slot> a, List<Slot> b, int count) {
+        for (int i = 0; i < count; i++) {
+            String x = a.get(i).label;
+            String y = b.get(i).label;
+            if (x == null ? y != null : !x.equals(y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Changes the segment values of a single bar
+     */
+    private void setBar(int index, long[] values) {
+        mStacks.setBar(index, values);
+        mBarMax.set(index, mStacks.getTotal(index));
+        mBars.updateBar(index, mStacks);
+    }
+
+
+    private void checkBarIndex(int index) {
+        if (index < 0 || index >= mStacks.getBarCount()) {
+            throw new IllegalArgumentException("Invalid bar index=" + index + " count=" + mStacks.getBarCount());
+        }
+    }
+
+
+    /**
+     * Single bar changes apply to the bars shown, which are about
+     * to be replaced while async data is being prepared
+     */
+    private void checkNotPreparing() {
+        if (isPreparingSlots()) {
+            throw new IllegalStateException("Data is still being prepared, set the data again instead");
+        }
+    }
+
+
+    /**
+     * Sets the x slots and the segments of every bar
+     */
+    private void setBars(List<Slot> xSlots, BarStacks stacks) {
+        beginBarTransition();
+        super.setXSlots(xSlots);
+
+        mStacks = stacks;
+        mBarMax = new RangeMaxTree(stacks.getTotals(), stacks.getBarCount());
+        mYMax = -1;
+        mBars.invalidate();
+
+        updateYSlots();
+    }
+
+
+    /**
+     * Animates the bars on screen to the bars after the data change
+     * that follows, if transitions are enabled
+     */
+    private void beginBarTransition() {
+        if (!isTransitionEnabled()) {
+            return;
+        }
+
+        mBars.beginTransition();
+        startTransition();
+    }
+
+
+    @Override
+    protected void onTransitionFrame(float fraction) {
+        mBars.setProgress(fraction);
+    }
+
+
+    @Override
+    protected void onDrawGraph(Canvas canvas) {
+        mBars.update(getXAxis(), getYAxis(), mStacks, mYMax);
+
+        getXAxis().translateToViewport(canvas);
+        mBars.draw(canvas);
+    }
+
+
+    public void setBarColor(int color) {
+        setStyle(getStyle().withSeriesColors(color));
+    }
+
+
+    /**
+     * Sets the segment color of every category, cycling
+     * through the colors if there are more categories
+     *
+     * @param colors colors, at least one
+     */
+    public void setCategoryColors(int... colors) {
+        setStyle(getStyle().withSeriesColors(colors));
+    }
+
+
+    @Override
+    protected void onStyleChanged() {
+        mBars.setColors(getStyle().getSeriesColors());
+    }
+
+
+    /**
+     * Sets how y tick labels are formatted, e.g.
+     * {@link ValueFormatter#currency} for values in cents
+     *
+     * @param formatter value formatter
+     */
+    public void setValueFormatter(ValueFormatter formatter) {
+        mValueFormatter = formatter;
+
+        // rebuild the y slots with the new labels
+        mYMax = -1;
+        updateYSlots();
+    }
+
+
+    /**
+     * Tooltip of a bar is its label and total, e.g. "Mon 1.2k". If the
+     * touch is over a segment of a stacked bar the segment value comes
+     * before the total, e.g. "Mon 300 / 1.2k".
+     */
+    @Override
+    protected boolean buildTooltip(int position, StringBuilder out) {
+        if (position >= mStacks.getBarCount()) {
+            return false;
+        }
+
+        // x slot ids are their position on the axis
+        out.append(getXAxis().getSlots().get(position).label).append(' ');
+
+        int category = getSelectedCategory();
+        if (category != -1 && mStacks.getCategoryCount() > 1) {
+            mValueFormatter.append(out, mStacks.getValue(position, category));
+            out.append(" / ");
+        }
+
+        mValueFormatter.append(out, mStacks.getTotal(position));
+        return true;
+    }
+
+
+    /**
+     * Gets the category of the segment of the selected bar under the
+     * touch that selected it, read from the precomputed segment offsets
+     *
+     * @return category, -1 if no bar is selected, it was selected by code
+     * or the touch was above the bar
+     */
+    public int getSelectedCategory() {
+        int position = getSelectedSlot();
+        float y = getSelectionY();
+        if (position < 0 || position >= mStacks.getBarCount() || Float.isNaN(y)) {
+            return -1;
+        }
+
+        float value = mBars.valueAt(y);
+        return Float.isNaN(value) ? -1 : mStacks.categoryAt(position, value);
+    }
+
+
+    @Override
+    protected void onViewportChanged() {
+        updateYSlots();
+    }
+
+
+    /**
+     * Makes the y slots cover the largest bar in the viewport. The
+     * slots are only replaced if the top tick changes.
+     */
+    private void updateYSlots() {
+        int count = AxisHelpers.niceTicks(getVisibleBarMax(), Y_TICK_COUNT, mYTicks);
+        long top = mYTicks[count - 1];
+
+        if (top == mYMax) {
+            return;
+        }
+
+        mYMax = top;
+        mBars.invalidate();
+        super.setYSlots(makeYSlots(mYTicks, count, mValueFormatter));
+    }
+
+
+    /**
+     * Gets the largest bar value in the viewport, or of all bars
+     * if the x axis has not been laid out yet
+     */
+    private long getVisibleBarMax() {
+        int count = mBarMax.size();
+        if (count == 0) {
+            return 0;
+        }
+
+        // x slot ids are their position on the axis
+        int first = getXAxis().getFirstVisibleSlot();
+        int last = getXAxis().getLastVisibleSlot();
+        if (last < first) {
+            first = 0;
+            last = count - 1;
+        }
+
+        return mBarMax.max(Math.max(0, first), Math.min(count - 1, last));
+    }
+
+
+    private static List<Slot> makeYSlots(long[] ticks, int count, ValueFormatter formatter) {
+        List<Slot> ySlots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String label = formatter.label(ticks[i]);
             ySlots.add(new Slot(
-                    label.hashCode(),
+                    i,
                     label,
                     false,
                     true
             ));
         }
 
-        super.setXSlots(xSlots);
-        super.setYSlots(ySlots);
+        return ySlots;
     }
 }
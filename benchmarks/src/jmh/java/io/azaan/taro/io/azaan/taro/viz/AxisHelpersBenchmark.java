@@ -0,0 +1,82 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+/**
+ * Building the x slots of a bar chart from transactions and
+ * formatting y axis values
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AxisHelpersBenchmark {
+
+    /**
+     * Number of distinct days (slots)
+     */
+    @Param({"7", "365", "10000", "100000"})
+    public int size;
+
+
+    private List<StackedBarData> mTransactions;
+    private int[] mValues;
+    private ValueFormatter mFormatter = new ValueFormatter();
+    private char[] mBuffer = new char[mFormatter.maxLength()];
+
+
+    @Setup
+    public void setUp() {
+        mTransactions = BenchmarkData.transactions(size, 42);
+        mValues = BenchmarkData.values(size, 42);
+    }
+
+
+    @Benchmark
+    public List<Slot> makeDiscreteXSlots() {
+        return AxisHelpers.makeDiscreteXSlots(mTransactions);
+    }
+
+
+    @Benchmark
+    public List<String> uniqSortLabelsLocale() {
+        return AxisHelpers.uniqSortLabels(mTransactions, AxisHelpers.Sort.ASC, AxisHelpers.Collation.LOCALE);
+    }
+
+
+    @Benchmark
+    public List<String> uniqSortLabelsOrdinal() {
+        return AxisHelpers.uniqSortLabels(mTransactions, AxisHelpers.Sort.ASC, AxisHelpers.Collation.ORDINAL);
+    }
+
+
+    @Benchmark
+    public void humanizeValue(Blackhole blackhole) {
+        for (int i = 0; i < mValues.length; i++) {
+            blackhole.consume(AxisHelpers.humanizeValue(mValues[i]));
+        }
+    }
+
+
+    @Benchmark
+    public int formatIntoBuffer() {
+        int length = 0;
+        for (int i = 0; i < mValues.length; i++) {
+            length += mFormatter.format(mValues[i], mBuffer, 0);
+        }
+        return length;
+    }
+}
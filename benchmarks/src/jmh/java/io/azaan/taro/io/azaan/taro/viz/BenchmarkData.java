@@ -0,0 +1,74 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import io.azaan.taro.io.azaan.taro.data.Granularity;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+/**
+ * Realistic inputs for the benchmarks
+ */
+public class BenchmarkData {
+
+    /**
+     * Transactions per day in the generated data
+     */
+    public static final int TRANSACTIONS_PER_DAY = 3;
+
+
+    /**
+     * 2016-01-01
+     */
+    private static final long FIRST_DAY = 16801;
+
+
+    private BenchmarkData() {
+    }
+
+
+    /**
+     * Makes daily transactions over the given number of days, labelled
+     * by day and in random order like an unsorted export
+     *
+     * @param days number of distinct days
+     * @param seed random seed
+     * @return days * TRANSACTIONS_PER_DAY transactions
+     */
+    public static List<StackedBarData> transactions(int days, long seed) {
+        Random random = new Random(seed);
+
+        List<StackedBarData> out = new ArrayList<>(days * TRANSACTIONS_PER_DAY);
+        for (int day = 0; day < days; day++) {
+            String label = Granularity.DAY.label(FIRST_DAY + day);
+
+            for (int i = 0; i < TRANSACTIONS_PER_DAY; i++) {
+                out.add(new StackedBarData(label, random.nextInt(100000)));
+            }
+        }
+
+        Collections.shuffle(out, random);
+        return out;
+    }
+
+
+    /**
+     * Makes amounts spread over several orders of magnitude
+     *
+     * @param count number of values
+     * @param seed random seed
+     * @return values
+     */
+    public static int[] values(int count, long seed) {
+        Random random = new Random(seed);
+
+        int[] out = new int[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = random.nextInt(Integer.MAX_VALUE) >>> random.nextInt(31);
+        }
+
+        return out;
+    }
+}
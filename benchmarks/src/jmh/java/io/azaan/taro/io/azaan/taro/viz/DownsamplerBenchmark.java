@@ -0,0 +1,65 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downsampling a running total with a point per transaction
+ * to the pixel columns of a line chart
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownsamplerBenchmark {
+
+    /**
+     * Number of points
+     */
+    @Param({"1000", "50000", "1000000"})
+    public int size;
+
+
+    /**
+     * Number of points picked, e.g. the pixel columns of a chart
+     */
+    @Param({"1080"})
+    public int threshold;
+
+
+    private long[] mTimes;
+    private long[] mValues;
+    private int[] mOut;
+
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mTimes = new long[size];
+        mValues = new long[size];
+        mOut = new int[threshold];
+
+        long time = 1500000000000L;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            time += random.nextInt(6 * 60 * 60 * 1000);
+            total += 100 + random.nextInt(5000);
+            mTimes[i] = time;
+            mValues[i] = total;
+        }
+    }
+
+
+    @Benchmark
+    public int lttb() {
+        return Downsampler.lttb(mTimes, mValues, 0, size, threshold, mOut);
+    }
+}
@@ -0,0 +1,104 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+/**
+ * Laying out an axis and looking up slot positions, the work
+ * BaseAxis does on every resize, data change and bar drawn
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AxisLayoutBenchmark {
+
+    /**
+     * Number of slots
+     */
+    @Param({"7", "365", "10000", "100000"})
+    public int size;
+
+
+    private List<Slot> mSlots;
+    private AxisLayout mPrepared;
+
+
+    @Setup
+    public void setUp() {
+        mSlots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mSlots.add(new Slot(i, "label " + i, false, true));
+        }
+
+        mPrepared = newLayout();
+        mPrepared.prepare(mSlots);
+    }
+
+
+    /**
+     * Slot sizes and positions of all slots, BaseAxis.layout
+     */
+    @Benchmark
+    public boolean position() {
+        return newLayout().position(mSlots);
+    }
+
+
+    /**
+     * Slot sizes only, the former BaseAxis.calculateSlotSize
+     */
+    @Benchmark
+    public boolean measure() {
+        return newLayout().measure(size);
+    }
+
+
+    /**
+     * Ordering, indexing and positioning, the async slot path
+     */
+    @Benchmark
+    public AxisLayout prepare() {
+        AxisLayout layout = newLayout();
+        layout.prepare(mSlots);
+        return layout;
+    }
+
+
+    /**
+     * Center of every slot by id, BaseAxis.getCenterPosForSlot
+     */
+    @Benchmark
+    public float getCenterPos() {
+        float sum = 0;
+        for (int id = 0; id < size; id++) {
+            sum += mPrepared.getCenterPos(id);
+        }
+
+        return sum;
+    }
+
+
+    /**
+     * A 1080px wide x axis with the default BaseAxis spacing at 3x density
+     */
+    private static AxisLayout newLayout() {
+        return new AxisLayout(
+                1080, 90,
+                Orientation.HORIZONTAL, Alignment.CENTER,
+                15, 60, 90,
+                1
+        );
+    }
+}
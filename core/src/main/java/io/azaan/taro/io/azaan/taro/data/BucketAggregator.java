@@ -0,0 +1,451 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+/**
+ * Streaming aggregation of transactions into time buckets.
+ *
+ * Transactions are added one at a time or in batches and summed into
+ * primitive per-bucket accumulators, adding a transaction only touches
+ * the bucket it falls into. The buckets can be read out at any time,
+ * for example as data for StackedBarChart.setData.
+ */
+public class BucketAggregator {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = -1;
+
+
+    private final Granularity mGranularity;
+    private final TimeZone mTimeZone;
+
+
+    /**
+     * Accumulators, one entry per bucket in insertion order
+     */
+    private long[] mBuckets = new long[INITIAL_CAPACITY];
+    private long[] mSums = new long[INITIAL_CAPACITY];
+    private int[] mCounts = new int[INITIAL_CAPACITY];
+    private int mSize = 0;
+
+
+    /**
+     * Open addressing table from bucket to accumulator entry.
+     * mTable holds EMPTY for free positions.
+     */
+    private int[] mTable = newTable(INITIAL_CAPACITY * 2);
+
+
+    /**
+     * Entry of the last bucket added to. Transactions usually arrive
+     * in time order so consecutive ones mostly hit the same bucket.
+     */
+    private int mLastEntry = EMPTY;
+
+
+    /**
+     * Are the accumulator entries in bucket order
+     */
+    private boolean mSorted = true;
+
+
+    /**
+     * Incremented on every change
+     */
+    private long mVersion = 0;
+
+
+    /**
+     * @param granularity size of the buckets
+     * @param timeZone time zone used to decide which day a timestamp is in
+     */
+    public BucketAggregator(Granularity granularity, TimeZone timeZone) {
+        mGranularity = granularity;
+        mTimeZone = timeZone;
+    }
+
+
+    /**
+     * Adds a transaction
+     *
+     * @param timestamp milliseconds since epoch
+     * @param amount amount, usually in cents
+     */
+    public void add(long timestamp, long amount) {
+        long bucket = mGranularity.bucketOfDay(CalendarMath.epochDay(timestamp, mTimeZone));
+        addToBucket(bucket, amount, 1);
+    }
+
+
+    /**
+     * Adds a batch of transactions
+     *
+     * @param timestamps milliseconds since epoch
+     * @param amounts amounts, usually in cents
+     * @param offset index of the first transaction in the arrays
+     * @param count number of transactions
+     */
+    public void addAll(long[] timestamps, long[] amounts, int offset, int count) {
+        if (offset < 0 || count < 0 || offset + count > timestamps.length || offset + count > amounts.length) {
+            throw new IllegalArgumentException(
+                    "Invalid range offset=" + offset + " count=" + count +
+                            " timestamps=" + timestamps.length + " amounts=" + amounts.length
+            );
+        }
+
+        for (int i = offset; i < offset + count; i++) {
+            add(timestamps[i], amounts[i]);
+        }
+    }
+
+
+    /**
+     * Adds an already aggregated amount to a bucket
+     *
+     * @param bucket bucket of this aggregator's granularity
+     * @param amount amount to add
+     * @param count number of transactions the amount is made of
+     */
+    public void addToBucket(long bucket, long amount, int count) {
+        int entry = mLastEntry;
+        if (entry == EMPTY || mBuckets[entry] != bucket) {
+            entry = findOrInsert(bucket);
+            mLastEntry = entry;
+        }
+
+        mSums[entry] += amount;
+        mCounts[entry] += count;
+        mVersion++;
+    }
+
+
+    /**
+     * @return number of non empty buckets
+     */
+    public int size() {
+        return mSize;
+    }
+
+
+    /**
+     * @param bucket bucket
+     * @return sum of the bucket, 0 if nothing was added to it
+     */
+    public long getSum(long bucket) {
+        int entry = find(bucket);
+        return entry == EMPTY ? 0 : mSums[entry];
+    }
+
+
+    /**
+     * @param bucket bucket
+     * @return sum of all buckets before it
+     */
+    public long getTotalBefore(long bucket) {
+        long total = 0;
+        for (int i = 0; i < mSize; i++) {
+            if (mBuckets[i] < bucket) {
+                total += mSums[i];
+            }
+        }
+
+        return total;
+    }
+
+
+    /**
+     * @param bucket bucket
+     * @return number of transactions in the bucket
+     */
+    public int getCount(long bucket) {
+        int entry = find(bucket);
+        return entry == EMPTY ? 0 : mCounts[entry];
+    }
+
+
+    /**
+     * Copies the buckets in chronological order into out
+     *
+     * @param out output, at least {@link #size()} long
+     */
+    public void getBuckets(long[] out) {
+        sort();
+        System.arraycopy(mBuckets, 0, out, 0, mSize);
+    }
+
+
+    /**
+     * Copies the sums in chronological bucket order into out
+     *
+     * @param out output, at least {@link #size()} long
+     */
+    public void getSums(long[] out) {
+        sort();
+        System.arraycopy(mSums, 0, out, 0, mSize);
+    }
+
+
+    /**
+     * Copies the transaction counts in chronological bucket order into out
+     *
+     * @param out output, at least {@link #size()} long
+     */
+    public void getCounts(int[] out) {
+        sort();
+        System.arraycopy(mCounts, 0, out, 0, mSize);
+    }
+
+
+    public Granularity getGranularity() {
+        return mGranularity;
+    }
+
+
+    /**
+     * @return incremented on every change, can be used to tell
+     *         if the output needs to be rebuilt
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+
+    /**
+     * Removes all buckets
+     */
+    public void clear() {
+        mSize = 0;
+        mLastEntry = EMPTY;
+        mSorted = true;
+        Arrays.fill(mTable, EMPTY);
+        mVersion++;
+    }
+
+
+    /**
+     * Builds chart data with one entry per bucket from the first to the
+     * last bucket added to, empty buckets included, labelled with
+     * {@link Granularity#label(long)}. Sums outside the int range are clamped.
+     *
+     * @return data for StackedBarChart.setData
+     */
+    public List<StackedBarData> toStackedBarData() {
+        if (mSize == 0) {
+            return new ArrayList<>();
+        }
+
+        sort();
+        return toStackedBarData(mBuckets[0], mBuckets[mSize - 1]);
+    }
+
+
+    /**
+     * Builds chart data with one entry per bucket in a window, empty
+     * buckets included, labelled with {@link Granularity#label(long)}.
+     * Sums outside the int range are clamped.
+     *
+     * @param fromBucket first bucket of the window
+     * @param toBucket last bucket of the window, inclusive
+     * @return data for StackedBarChart.setData
+     */
+    public List<StackedBarData> toStackedBarData(long fromBucket, long toBucket) {
+        int count = windowSize(fromBucket, toBucket);
+
+        List<StackedBarData> out = new ArrayList<>(count);
+        for (long bucket = fromBucket; bucket <= toBucket; bucket++) {
+            out.add(new StackedBarData(mGranularity.label(bucket), clampToInt(getSum(bucket))));
+        }
+
+        return out;
+    }
+
+
+    /**
+     * Builds columnar chart data with one entry per bucket from the first
+     * to the last bucket added to, empty buckets included, labelled with
+     * {@link Granularity#label(long)}
+     *
+     * @param labels dictionary to intern bucket labels into
+     * @return data for StackedBarChart.setData
+     */
+    public ColumnarData toColumnarData(LabelDictionary labels) {
+        if (mSize == 0) {
+            return new ColumnarData(labels, 0);
+        }
+
+        sort();
+        return toColumnarData(mBuckets[0], mBuckets[mSize - 1], labels);
+    }
+
+
+    /**
+     * Builds columnar chart data with one entry per bucket in a window,
+     * empty buckets included, labelled with {@link Granularity#label(long)}
+     *
+     * @param fromBucket first bucket of the window
+     * @param toBucket last bucket of the window, inclusive
+     * @param labels dictionary to intern bucket labels into
+     * @return data for StackedBarChart.setData
+     */
+    public ColumnarData toColumnarData(long fromBucket, long toBucket, LabelDictionary labels) {
+        int count = windowSize(fromBucket, toBucket);
+
+        ColumnarData out = new ColumnarData(labels, count);
+        for (long bucket = fromBucket; bucket <= toBucket; bucket++) {
+            out.add(mGranularity.label(bucket), getSum(bucket));
+        }
+
+        return out;
+    }
+
+
+    static int windowSize(long fromBucket, long toBucket) {
+        long count = toBucket - fromBucket + 1;
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid window fromBucket=" + fromBucket + " toBucket=" + toBucket);
+        }
+
+        return (int) count;
+    }
+
+
+    static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+
+    private int find(long bucket) {
+        int mask = mTable.length - 1;
+        int pos = mix(bucket) & mask;
+
+        while (mTable[pos] != EMPTY) {
+            if (mBuckets[mTable[pos]] == bucket) {
+                return mTable[pos];
+            }
+
+            pos = (pos + 1) & mask;
+        }
+
+        return EMPTY;
+    }
+
+
+    private int findOrInsert(long bucket) {
+        int mask = mTable.length - 1;
+        int pos = mix(bucket) & mask;
+
+        while (mTable[pos] != EMPTY) {
+            if (mBuckets[mTable[pos]] == bucket) {
+                return mTable[pos];
+            }
+
+            pos = (pos + 1) & mask;
+        }
+
+        if (mSize == mBuckets.length) {
+            grow();
+            return findOrInsert(bucket);
+        }
+
+        int entry = mSize++;
+        mBuckets[entry] = bucket;
+        mSums[entry] = 0;
+        mCounts[entry] = 0;
+        mTable[pos] = entry;
+
+        if (entry > 0 && mBuckets[entry - 1] > bucket) {
+            mSorted = false;
+        }
+
+        return entry;
+    }
+
+
+    private void grow() {
+        int capacity = mBuckets.length * 2;
+        mBuckets = Arrays.copyOf(mBuckets, capacity);
+        mSums = Arrays.copyOf(mSums, capacity);
+        mCounts = Arrays.copyOf(mCounts, capacity);
+
+        rebuildTable(capacity * 2);
+    }
+
+
+    /**
+     * Puts the accumulator entries in bucket order. Only does
+     * work if a bucket was inserted out of order.
+     */
+    private void sort() {
+        if (mSorted) {
+            return;
+        }
+
+        // sort entry numbers by bucket then permute all columns
+        Integer[] order = new Integer[mSize];
+        for (int i = 0; i < mSize; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                long x = mBuckets[a];
+                long y = mBuckets[b];
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        long[] buckets = new long[mBuckets.length];
+        long[] sums = new long[mSums.length];
+        int[] counts = new int[mCounts.length];
+        for (int i = 0; i < mSize; i++) {
+            buckets[i] = mBuckets[order[i]];
+            sums[i] = mSums[order[i]];
+            counts[i] = mCounts[order[i]];
+        }
+
+        mBuckets = buckets;
+        mSums = sums;
+        mCounts = counts;
+        mLastEntry = EMPTY;
+        mSorted = true;
+
+        rebuildTable(mTable.length);
+    }
+
+
+    private void rebuildTable(int capacity) {
+        mTable = newTable(capacity);
+        int mask = capacity - 1;
+
+        for (int entry = 0; entry < mSize; entry++) {
+            int pos = mix(mBuckets[entry]) & mask;
+            while (mTable[pos] != EMPTY) {
+                pos = (pos + 1) & mask;
+            }
+
+            mTable[pos] = entry;
+        }
+    }
+
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+
+    private static int mix(long bucket) {
+        long h = bucket * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,128 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import java.util.TimeZone;
+
+/**
+ * Allocation free calendar arithmetic on epoch days (days since
+ * 1970-01-01) in the proleptic Gregorian calendar.
+ *
+ * Used on hot paths where going through Calendar for every
+ * transaction would be too slow.
+ */
+public class CalendarMath {
+
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+
+    /**
+     * Epoch day of a timestamp in the given time zone
+     *
+     * @param timestamp milliseconds since epoch
+     * @param timeZone time zone the day is counted in
+     * @return epoch day
+     */
+    public static long epochDay(long timestamp, TimeZone timeZone) {
+        return floorDiv(timestamp + timeZone.getOffset(timestamp), MILLIS_PER_DAY);
+    }
+
+
+    /**
+     * First millisecond of an epoch day in the given time zone. Days
+     * without a local midnight, e.g. when daylight saving starts at
+     * midnight, start at the first millisecond that is in them.
+     *
+     * @param epochDay epoch day
+     * @param timeZone time zone the day is counted in
+     * @return milliseconds since epoch
+     */
+    public static long startOfDay(long epochDay, TimeZone timeZone) {
+        // offsets are less than a day, the start is within a day of utc midnight
+        long lo = (epochDay - 1) * MILLIS_PER_DAY;
+        long hi = (epochDay + 1) * MILLIS_PER_DAY;
+
+        while (lo < hi) {
+            long mid = lo + (hi - lo) / 2;
+            if (epochDay(mid, timeZone) < epochDay) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+
+    /**
+     * Converts an epoch day to a packed date. Use {@link #year(int)},
+     * {@link #month(int)} and {@link #dayOfMonth(int)} to read it.
+     *
+     * @param epochDay epoch day
+     * @return packed date
+     */
+    public static int civilFromDays(long epochDay) {
+        // http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long d = doy - (153 * mp + 2) / 5 + 1;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+
+        return pack((int) y, (int) m, (int) d);
+    }
+
+
+    /**
+     * Converts a date to an epoch day
+     *
+     * @param year year
+     * @param month month (1-12)
+     * @param dayOfMonth day of month (1-31)
+     * @return epoch day
+     */
+    public static long daysFromCivil(int year, int month, int dayOfMonth) {
+        // http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097 + doe - 719468;
+    }
+
+
+    public static int year(int packed) {
+        return packed >> 9;
+    }
+
+    public static int month(int packed) {
+        return (packed >> 5) & 0xF;
+    }
+
+    public static int dayOfMonth(int packed) {
+        return packed & 0x1F;
+    }
+
+
+    /**
+     * Floor division, Math.floorDiv is not available before API 24
+     */
+    public static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+
+        return q;
+    }
+
+
+    private static int pack(int year, int month, int dayOfMonth) {
+        return (year << 9) | (month << 5) | dayOfMonth;
+    }
+}
@@ -0,0 +1,200 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Aggregated chart model saved between runs so a chart can be painted
+ * right away on start up, before fresh data has been loaded.
+ *
+ * A snapshot holds the label and value of every bar. It is stored as
+ * a compact binary file which is read through a memory mapping.
+ *
+ * File layout (big endian):
+ * <pre>
+ * int magic, int version
+ * int barCount, barCount * (int byteLength, UTF-8 label), barCount * long value
+ * </pre>
+ */
+public class ChartSnapshot {
+
+    private static final int MAGIC = 0x54415253; // TARS
+    private static final int VERSION = 2;
+
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+    private final String[] mLabels;
+    private final long[] mValues;
+
+
+    /**
+     * @param labels label of every bar
+     * @param values value of every bar
+     */
+    public ChartSnapshot(String[] labels, long[] values) {
+        if (labels.length != values.length) {
+            throw new IllegalArgumentException(
+                    "Labels and values differ in length labels=" + labels.length + " values=" + values.length
+            );
+        }
+
+        mLabels = labels;
+        mValues = values;
+    }
+
+
+    /**
+     * Reads a snapshot through a memory mapping of the file
+     *
+     * @param file snapshot file
+     * @return snapshot
+     * @throws IOException if the file can not be read or is not a valid snapshot
+     */
+    public static ChartSnapshot read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return read(buffer);
+        } finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Reads a snapshot from a buffer positioned at its start
+     *
+     * @param buffer buffer
+     * @return snapshot
+     * @throws IOException if the buffer does not hold a valid snapshot
+     */
+    static ChartSnapshot read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a chart snapshot");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version=" + version);
+            }
+
+            // a bar takes at least 12 bytes, checked before allocating
+            int count = buffer.getInt();
+            checkCount(count, 12, buffer);
+
+            String[] labels = new String[count];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                checkCount(length, 1, buffer);
+
+                if (bytes.length < length) {
+                    bytes = new byte[length * 2];
+                }
+
+                buffer.get(bytes, 0, length);
+                labels[i] = new String(bytes, 0, length, UTF_8);
+            }
+
+            long[] values = new long[count];
+            buffer.asLongBuffer().get(values);
+            buffer.position(buffer.position() + count * 8);
+
+            return new ChartSnapshot(labels, values);
+
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated chart snapshot", e);
+        }
+    }
+
+
+    private static void checkCount(int count, int minBytes, ByteBuffer buffer) throws IOException {
+        if (count < 0 || (long) count * minBytes > buffer.remaining()) {
+            throw new IOException("Corrupt chart snapshot count=" + count + " remaining=" + buffer.remaining());
+        }
+    }
+
+
+    /**
+     * Writes the snapshot. The file is written to a temporary file of its
+     * own next to the target and renamed over it, so readers never see a
+     * partial snapshot, even with several writes running at once.
+     *
+     * @param file snapshot file
+     * @throws IOException if the file can not be written
+     */
+    public void write(File file) throws IOException {
+        byte[][] labels = new byte[mLabels.length][];
+        int size = 4 * 3 + mValues.length * 8;
+        for (int i = 0; i < mLabels.length; i++) {
+            labels[i] = mLabels[i].getBytes(UTF_8);
+            size += 4 + labels[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+
+        buffer.putInt(labels.length);
+        for (byte[] label : labels) {
+            buffer.putInt(label.length);
+            buffer.put(label);
+        }
+
+        for (long value : mValues) {
+            buffer.putLong(value);
+        }
+
+        buffer.flip();
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                FileChannel channel = out.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace snapshot file=" + file);
+        }
+    }
+
+
+    /**
+     * @return label of every bar
+     */
+    public String[] getLabels() {
+        return mLabels;
+    }
+
+
+    /**
+     * @return value of every bar
+     */
+    public long[] getValues() {
+        return mValues;
+    }
+}
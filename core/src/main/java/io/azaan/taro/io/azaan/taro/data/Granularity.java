@@ -0,0 +1,134 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+/**
+ * Size of the time buckets transactions are aggregated into.
+ *
+ * Buckets are identified by a long which increases with time:
+ * DAY - epoch day
+ * WEEK - weeks since the week of 1970-01-01, weeks start on Monday
+ * MONTH - year * 12 + (month - 1)
+ * YEAR - year
+ */
+public enum Granularity {
+    DAY, WEEK, MONTH, YEAR;
+
+
+    /**
+     * Epoch day 0 (1970-01-01) was a Thursday, shifting by
+     * this many days makes weeks start on Monday
+     */
+    private static final int WEEK_SHIFT = 3;
+
+
+    /**
+     * Gets the bucket an epoch day falls into
+     *
+     * @param epochDay epoch day
+     * @return bucket
+     */
+    public long bucketOfDay(long epochDay) {
+        switch (this) {
+            case DAY:
+                return epochDay;
+
+            case WEEK:
+                return CalendarMath.floorDiv(epochDay + WEEK_SHIFT, 7);
+
+            case MONTH: {
+                int date = CalendarMath.civilFromDays(epochDay);
+                return CalendarMath.year(date) * 12L + CalendarMath.month(date) - 1;
+            }
+
+            case YEAR:
+                return CalendarMath.year(CalendarMath.civilFromDays(epochDay));
+        }
+
+        throw new IllegalStateException("Granularity not handled granularity=" + this);
+    }
+
+
+    /**
+     * Gets the first epoch day of a bucket
+     *
+     * @param bucket bucket
+     * @return epoch day
+     */
+    public long firstDayOf(long bucket) {
+        switch (this) {
+            case DAY:
+                return bucket;
+
+            case WEEK:
+                return bucket * 7 - WEEK_SHIFT;
+
+            case MONTH:
+                return CalendarMath.daysFromCivil(
+                        (int) CalendarMath.floorDiv(bucket, 12),
+                        (int) (bucket - CalendarMath.floorDiv(bucket, 12) * 12) + 1,
+                        1
+                );
+
+            case YEAR:
+                return CalendarMath.daysFromCivil((int) bucket, 1, 1);
+        }
+
+        throw new IllegalStateException("Granularity not handled granularity=" + this);
+    }
+
+
+    /**
+     * Gets a label for a bucket. Days and weeks are labelled with their
+     * (first) date as yyyy-MM-dd, months as yyyy-MM and years as yyyy.
+     * Years before 0 get a leading '-' and years past 9999 take as many
+     * digits as they need, labels of the same granularity sort in
+     * chronological order for the years 0 to 9999.
+     *
+     * @param bucket bucket
+     * @return label
+     */
+    public String label(long bucket) {
+        int date = CalendarMath.civilFromDays(firstDayOf(bucket));
+
+        char[] out = new char[20];
+        int len = 0;
+
+        int year = CalendarMath.year(date);
+        if (year < 0) {
+            out[len++] = '-';
+        }
+
+        len = writeDigits(out, len, Math.abs((long) year), 4);
+        if (this == YEAR) {
+            return new String(out, 0, len);
+        }
+
+        out[len++] = '-';
+        len = writeDigits(out, len, CalendarMath.month(date), 2);
+        if (this == MONTH) {
+            return new String(out, 0, len);
+        }
+
+        out[len++] = '-';
+        len = writeDigits(out, len, CalendarMath.dayOfMonth(date), 2);
+        return new String(out, 0, len);
+    }
+
+
+    /**
+     * Writes a non negative value zero padded to at least width digits
+     */
+    private static int writeDigits(char[] out, int pos, long value, int width) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+
+        digits = Math.max(digits, width);
+        for (int i = digits - 1; i >= 0; i--) {
+            out[pos + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        return pos + digits;
+    }
+}
@@ -0,0 +1,525 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Append-only log of transactions stored in a memory mapped file.
+ *
+ * Every transaction is a fixed width record (timestamp, amount in cents,
+ * category id) so record i is at a known offset and rows are never turned
+ * into objects. Records are grouped into blocks of about a page, and a
+ * sparse index holds the smallest and largest timestamp of every block.
+ * A range scan only reads the blocks whose timestamps overlap the range,
+ * so for a log appended in (roughly) time order it only touches the pages
+ * of the range. Transactions appended out of order are still found.
+ *
+ * The index of the full blocks is kept in a second file next to the log
+ * (log path + ".idx") and rebuilt from the log if it is missing entries,
+ * for example after a crash.
+ *
+ * All methods synchronize on the log, a log can be appended to on one
+ * thread and scanned on another.
+ *
+ * File layout (big endian):
+ * <pre>
+ * header: int magic, int version, long record count, padding to 32 bytes
+ * records: long timestamp, long amount, int category
+ * </pre>
+ */
+public class TransactionLog implements Closeable {
+
+    private static final int MAGIC = 0x5441524C; // TARL
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+
+
+    /**
+     * Bytes of one record
+     */
+    static final int RECORD_BYTES = 8 + 8 + 4;
+
+
+    /**
+     * Records per index block, one block fills about a 4 kB page
+     */
+    static final int BLOCK_RECORDS = 4096 / RECORD_BYTES;
+
+
+    /**
+     * Records the mapping grows by at least
+     */
+    private static final int MIN_GROWTH = BLOCK_RECORDS * 16;
+
+
+    /**
+     * A mapping is limited to 2 GB
+     */
+    private static final long MAX_RECORDS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+
+    /**
+     * Pass as category to scan all categories
+     */
+    public static final int ALL_CATEGORIES = -1;
+
+
+    /**
+     * Receives the transactions of a scan
+     */
+    public interface Visitor {
+
+        /**
+         * @param timestamp milliseconds since epoch
+         * @param amount amount in cents
+         * @param category category id
+         */
+        void onTransaction(long timestamp, long amount, int category);
+    }
+
+
+    private final RandomAccessFile mFile;
+    private final RandomAccessFile mIndexFile;
+    private MappedByteBuffer mRecords;
+    private int mCapacity;
+    private int mSize;
+
+
+    /**
+     * Smallest and largest timestamp per block. The last block may be
+     * partly filled, only full blocks are written to the index file.
+     */
+    private long[] mBlockMin = new long[16];
+    private long[] mBlockMax = new long[16];
+
+
+    /**
+     * Reused for writing index entries
+     */
+    private final ByteBuffer mIndexEntry = ByteBuffer.allocate(16);
+
+    private boolean mClosed = false;
+
+
+    /**
+     * Called after every append, null if not set
+     */
+    private Visitor mListener;
+
+
+    private TransactionLog(RandomAccessFile file, RandomAccessFile indexFile) {
+        mFile = file;
+        mIndexFile = indexFile;
+    }
+
+
+    /**
+     * Opens a log, creating it if the file does not exist
+     *
+     * @param file log file
+     * @return opened log, must be closed
+     * @throws IOException if the file can not be opened or is not a transaction log
+     */
+    public static TransactionLog open(File file) throws IOException {
+        RandomAccessFile data = new RandomAccessFile(file, "rw");
+        RandomAccessFile index = null;
+
+        try {
+            index = new RandomAccessFile(new File(file.getPath() + ".idx"), "rw");
+
+            TransactionLog log = new TransactionLog(data, index);
+            log.load();
+            return log;
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            if (index != null)
+                index.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Maps the file, checks the header and loads the index
+     */
+    private void load() throws IOException {
+        long length = mFile.length();
+        boolean created = length == 0;
+
+        if (!created && length < HEADER_BYTES) {
+            throw new IOException("Not a transaction log, length=" + length);
+        }
+
+        int fileRecords = (int) Math.min(MAX_RECORDS, Math.max(0, (length - HEADER_BYTES) / RECORD_BYTES));
+        map(Math.max(MIN_GROWTH, fileRecords));
+
+        if (created) {
+            mRecords.putInt(0, MAGIC);
+            mRecords.putInt(4, VERSION);
+            mRecords.putLong(COUNT_OFFSET, 0);
+            mIndexFile.setLength(0);
+            return;
+        }
+
+        if (mRecords.getInt(0) != MAGIC) {
+            throw new IOException("Not a transaction log");
+        }
+
+        int version = mRecords.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported transaction log version=" + version);
+        }
+
+        long count = mRecords.getLong(COUNT_OFFSET);
+        if (count < 0 || count > fileRecords) {
+            throw new IOException("Corrupt transaction log count=" + count + " records=" + fileRecords);
+        }
+
+        mSize = (int) count;
+        loadIndex();
+    }
+
+
+    /**
+     * Reads the block index, rebuilding the entries of full blocks the index
+     * file is missing and the entry of the last, partly filled block
+     */
+    private void loadIndex() throws IOException {
+        int blocks = blockCount(mSize);
+        int fullBlocks = mSize / BLOCK_RECORDS;
+        ensureBlocks(blocks);
+
+        int stored = (int) Math.min(fullBlocks, mIndexFile.length() / 16);
+        if (stored > 0) {
+            ByteBuffer entries = ByteBuffer.allocate(stored * 16);
+            FileChannel channel = mIndexFile.getChannel();
+            while (entries.hasRemaining()) {
+                if (channel.read(entries, entries.position()) < 0) {
+                    throw new IOException("Transaction log index truncated");
+                }
+            }
+
+            entries.flip();
+            for (int i = 0; i < stored; i++) {
+                mBlockMin[i] = entries.getLong();
+                mBlockMax[i] = entries.getLong();
+            }
+        }
+
+        for (int block = stored; block < blocks; block++) {
+            rebuildBlock(block);
+            if (block < fullBlocks)
+                writeIndexEntry(block);
+        }
+
+        mIndexFile.setLength((long) fullBlocks * 16);
+    }
+
+
+    private void rebuildBlock(int block) {
+        int from = block * BLOCK_RECORDS;
+        int to = Math.min(mSize, from + BLOCK_RECORDS);
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            long timestamp = timestampAt(i);
+            min = Math.min(min, timestamp);
+            max = Math.max(max, timestamp);
+        }
+
+        mBlockMin[block] = min;
+        mBlockMax[block] = max;
+    }
+
+
+    /**
+     * Appends a transaction
+     *
+     * @param timestamp milliseconds since epoch
+     * @param amount amount in cents
+     * @param category category id, not negative
+     * @throws IOException if the log could not be grown
+     */
+    public synchronized void append(long timestamp, long amount, int category) throws IOException {
+        checkOpen();
+        if (category < 0) {
+            throw new IllegalArgumentException("Invalid category=" + category);
+        }
+
+        if (mSize == mCapacity) {
+            grow(mSize + 1);
+        }
+
+        int index = mSize;
+        int pos = HEADER_BYTES + index * RECORD_BYTES;
+        mRecords.putLong(pos, timestamp);
+        mRecords.putLong(pos + 8, amount);
+        mRecords.putInt(pos + 16, category);
+
+        int block = index / BLOCK_RECORDS;
+        if (index % BLOCK_RECORDS == 0) {
+            ensureBlocks(block + 1);
+            mBlockMin[block] = timestamp;
+            mBlockMax[block] = timestamp;
+        } else {
+            mBlockMin[block] = Math.min(mBlockMin[block], timestamp);
+            mBlockMax[block] = Math.max(mBlockMax[block], timestamp);
+        }
+
+        // the count is written after the record so a reader of the file
+        // never counts a record that is not fully written
+        mSize = index + 1;
+        mRecords.putLong(COUNT_OFFSET, mSize);
+
+        if (mSize % BLOCK_RECORDS == 0) {
+            writeIndexEntry(block);
+        }
+
+        if (mListener != null) {
+            mListener.onTransaction(timestamp, amount, category);
+        }
+    }
+
+
+    /**
+     * Sets a listener that gets every transaction appended from now on,
+     * for example to keep aggregates in sync with the log. Called on the
+     * appending thread while holding the lock of the log.
+     *
+     * @param listener listener or null
+     */
+    public synchronized void setListener(Visitor listener) {
+        mListener = listener;
+    }
+
+
+    /**
+     * Appends a batch of transactions
+     *
+     * @param timestamps milliseconds since epoch
+     * @param amounts amounts in cents
+     * @param categories category ids
+     * @param offset index of the first transaction in the arrays
+     * @param count number of transactions
+     * @throws IOException if the log could not be grown
+     */
+    public synchronized void appendAll(long[] timestamps, long[] amounts, int[] categories,
+                                       int offset, int count) throws IOException {
+        if (offset < 0 || count < 0 || offset + count > timestamps.length
+                || offset + count > amounts.length || offset + count > categories.length) {
+            throw new IllegalArgumentException(
+                    "Invalid range offset=" + offset + " count=" + count +
+                            " timestamps=" + timestamps.length + " amounts=" + amounts.length +
+                            " categories=" + categories.length
+            );
+        }
+
+        checkOpen();
+        if (mSize + count > mCapacity) {
+            grow(mSize + count);
+        }
+
+        for (int i = offset; i < offset + count; i++) {
+            append(timestamps[i], amounts[i], categories[i]);
+        }
+    }
+
+
+    /**
+     * Calls the visitor with every transaction in a time range, in log order
+     *
+     * @param from first millisecond of the range, inclusive
+     * @param to end of the range, exclusive
+     * @param category category to scan or {@link #ALL_CATEGORIES}
+     * @param visitor visitor
+     */
+    public synchronized void scan(long from, long to, int category, Visitor visitor) {
+        checkOpen();
+
+        int blocks = blockCount(mSize);
+        for (int block = 0; block < blocks; block++) {
+            if (mBlockMax[block] < from || mBlockMin[block] >= to) {
+                continue;
+            }
+
+            int end = Math.min(mSize, (block + 1) * BLOCK_RECORDS);
+            for (int i = block * BLOCK_RECORDS; i < end; i++) {
+                int pos = HEADER_BYTES + i * RECORD_BYTES;
+                long timestamp = mRecords.getLong(pos);
+                if (timestamp < from || timestamp >= to) {
+                    continue;
+                }
+
+                int recordCategory = mRecords.getInt(pos + 16);
+                if (category != ALL_CATEGORIES && recordCategory != category) {
+                    continue;
+                }
+
+                visitor.onTransaction(timestamp, mRecords.getLong(pos + 8), recordCategory);
+            }
+        }
+    }
+
+
+    /**
+     * Calls the visitor with every transaction from a position in the log
+     * on, in log order, e.g. to catch up with the transactions appended
+     * since the log was last read
+     *
+     * @param from position of the first transaction, at most {@link #size()}
+     * @param visitor visitor
+     */
+    public synchronized void replay(int from, Visitor visitor) {
+        checkOpen();
+        if (from < 0 || from > mSize) {
+            throw new IllegalArgumentException("Invalid position from=" + from + " size=" + mSize);
+        }
+
+        for (int i = from; i < mSize; i++) {
+            int pos = HEADER_BYTES + i * RECORD_BYTES;
+            visitor.onTransaction(mRecords.getLong(pos), mRecords.getLong(pos + 8), mRecords.getInt(pos + 16));
+        }
+    }
+
+
+    /**
+     * Adds every transaction in a time range to an aggregator, e.g. to
+     * build chart data with {@link BucketAggregator#toColumnarData}
+     *
+     * @param from first millisecond of the range, inclusive
+     * @param to end of the range, exclusive
+     * @param category category to scan or {@link #ALL_CATEGORIES}
+     * @param aggregator aggregator to add to
+     */
+    public void aggregate(long from, long to, int category, final BucketAggregator aggregator) {
+        scan(from, to, category, new Visitor() {
+            @Override
+            public void onTransaction(long timestamp, long amount, int category) {
+                aggregator.add(timestamp, amount);
+            }
+        });
+    }
+
+
+    /**
+     * @return number of transactions
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+
+    /**
+     * Reads a single transaction
+     *
+     * @param index position in the log
+     * @param visitor gets the transaction
+     */
+    public synchronized void get(int index, Visitor visitor) {
+        checkOpen();
+        if (index < 0 || index >= mSize) {
+            throw new IllegalArgumentException("Invalid index=" + index + " size=" + mSize);
+        }
+
+        int pos = HEADER_BYTES + index * RECORD_BYTES;
+        visitor.onTransaction(mRecords.getLong(pos), mRecords.getLong(pos + 8), mRecords.getInt(pos + 16));
+    }
+
+
+    /**
+     * Writes appended transactions through to the storage device
+     */
+    public synchronized void sync() throws IOException {
+        checkOpen();
+        mRecords.force();
+        mIndexFile.getFD().sync();
+    }
+
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+
+        mClosed = true;
+        mRecords = null;
+
+        try {
+            mFile.close();
+        } finally {
+            mIndexFile.close();
+        }
+    }
+
+
+    private long timestampAt(int index) {
+        return mRecords.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+
+    private void grow(int needed) throws IOException {
+        if (needed > MAX_RECORDS) {
+            throw new IOException("Transaction log full size=" + mSize);
+        }
+
+        long capacity = Math.max(needed, Math.max(MIN_GROWTH, (long) mCapacity * 2));
+        map((int) Math.min(MAX_RECORDS, capacity));
+    }
+
+
+    /**
+     * Maps the header and room for the given number of records,
+     * extending the file if needed
+     */
+    private void map(int records) throws IOException {
+        long bytes = HEADER_BYTES + (long) records * RECORD_BYTES;
+
+        mRecords = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        mCapacity = records;
+    }
+
+
+    private void writeIndexEntry(int block) throws IOException {
+        mIndexEntry.clear();
+        mIndexEntry.putLong(mBlockMin[block]);
+        mIndexEntry.putLong(mBlockMax[block]);
+        mIndexEntry.flip();
+
+        FileChannel channel = mIndexFile.getChannel();
+        long pos = (long) block * 16;
+        while (mIndexEntry.hasRemaining()) {
+            pos += channel.write(mIndexEntry, pos);
+        }
+    }
+
+
+    private void ensureBlocks(int blocks) {
+        if (mBlockMin.length < blocks) {
+            int capacity = Math.max(blocks, mBlockMin.length * 2);
+            mBlockMin = Arrays.copyOf(mBlockMin, capacity);
+            mBlockMax = Arrays.copyOf(mBlockMax, capacity);
+        }
+    }
+
+
+    private static int blockCount(int records) {
+        return (records + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+    }
+
+
+    private void checkOpen() {
+        if (mClosed) {
+            throw new IllegalStateException("Transaction log is closed");
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.TimeZone;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+/**
+ * Sums of transactions per day, week, month and year, kept up to date
+ * on every insert.
+ *
+ * Every transaction is added to one bucket per granularity when it is
+ * inserted, so switching a chart between granularities never goes back
+ * to the transactions. A query looks up each bucket of the window it
+ * shows, taking time proportional to the number of buckets and not to
+ * the number of transactions.
+ *
+ * Rollups can be saved along with the number of log transactions they
+ * include, so on the next start only the transactions appended since are
+ * read from the log.
+ *
+ * All methods synchronize on the rollups so they can be kept in sync on
+ * the thread appending to a log and queried on another one.
+ *
+ * File layout (big endian):
+ * <pre>
+ * int magic, int version, int category, int byteLength, UTF-8 time zone id,
+ * int log position, per granularity: int bucketCount,
+ * bucketCount * long bucket, bucketCount * long sum, bucketCount * int count
+ * </pre>
+ */
+public class TransactionRollups implements TransactionLog.Visitor {
+
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+
+    private static final int MAGIC = 0x54415252; // TARR
+    private static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+    /**
+     * Pass as category to keep the sums of all categories
+     */
+    public static final int ALL_CATEGORIES = TransactionLog.ALL_CATEGORIES;
+
+
+    private final TimeZone mTimeZone;
+    private final int mCategory;
+
+
+    /**
+     * Aggregator per granularity, indexed by ordinal
+     */
+    private final BucketAggregator[] mRollups = new BucketAggregator[GRANULARITIES.length];
+
+
+    /**
+     * Number of transactions seen, of any category. For rollups of
+     * a log this is the position in the log they are up to date with.
+     */
+    private int mLogPosition = 0;
+
+
+    /**
+     * Log position of the rollups last read or written, -1 if none
+     */
+    private int mSavedPosition = -1;
+
+
+    /**
+     * @param timeZone time zone used to decide which day a timestamp is in
+     * @param category category to sum or {@link #ALL_CATEGORIES}
+     */
+    public TransactionRollups(TimeZone timeZone, int category) {
+        mTimeZone = timeZone;
+        mCategory = category;
+
+        for (Granularity granularity : GRANULARITIES) {
+            mRollups[granularity.ordinal()] = new BucketAggregator(granularity, timeZone);
+        }
+    }
+
+
+    /**
+     * Builds the rollups of everything in a log with a single scan and
+     * keeps them in sync with the transactions appended to it afterwards.
+     * Replaces any listener set on the log.
+     *
+     * @param log transaction log
+     * @param timeZone time zone used to decide which day a timestamp is in
+     * @param category category to sum or {@link #ALL_CATEGORIES}
+     * @return rollups
+     */
+    public static TransactionRollups attach(TransactionLog log, TimeZone timeZone, int category) {
+        return attach(log, new TransactionRollups(timeZone, category));
+    }
+
+
+    /**
+     * Same as {@link #attach(TransactionLog, TimeZone, int)} starting from
+     * rollups saved with {@link #write(File)}, only the transactions
+     * appended to the log since they were saved are read. The rollups are
+     * built from the whole log if the file is missing, unreadable or was
+     * saved for another time zone, category or a longer log.
+     *
+     * @param log transaction log
+     * @param file rollups file
+     * @param timeZone time zone used to decide which day a timestamp is in
+     * @param category category to sum or {@link #ALL_CATEGORIES}
+     * @return rollups
+     */
+    public static TransactionRollups attach(TransactionLog log, File file, TimeZone timeZone, int category) {
+        TransactionRollups rollups;
+        try {
+            rollups = read(file);
+        } catch (FileNotFoundException e) {
+            rollups = null;
+        } catch (IOException e) {
+            file.delete();
+            rollups = null;
+        }
+
+        boolean usable = rollups != null
+                && rollups.mCategory == category
+                && rollups.mTimeZone.getID().equals(timeZone.getID())
+                && rollups.mLogPosition <= log.size();
+
+        return attach(log, usable ? rollups : new TransactionRollups(timeZone, category));
+    }
+
+
+    private static TransactionRollups attach(TransactionLog log, TransactionRollups rollups) {
+        // holding the log lock so no append slips in between
+        synchronized (log) {
+            log.replay(rollups.getLogPosition(), rollups);
+            log.setListener(rollups);
+        }
+
+        return rollups;
+    }
+
+
+    /**
+     * Adds a transaction to the bucket it falls into at every granularity
+     *
+     * @param timestamp milliseconds since epoch
+     * @param amount amount in cents
+     * @param category category id
+     */
+    @Override
+    public synchronized void onTransaction(long timestamp, long amount, int category) {
+        mLogPosition++;
+        if (mCategory != ALL_CATEGORIES && category != mCategory) {
+            return;
+        }
+
+        long day = CalendarMath.epochDay(timestamp, mTimeZone);
+        for (int i = 0; i < mRollups.length; i++) {
+            mRollups[i].addToBucket(GRANULARITIES[i].bucketOfDay(day), amount, 1);
+        }
+    }
+
+
+    /**
+     * @return number of transactions included, the position in the log
+     *         the rollups are up to date with
+     */
+    public synchronized int getLogPosition() {
+        return mLogPosition;
+    }
+
+
+    /**
+     * @return true if the rollups did not change since they were
+     *         last read or written
+     */
+    public synchronized boolean isSaved() {
+        return mSavedPosition == mLogPosition;
+    }
+
+
+    /**
+     * @param granularity granularity
+     * @param bucket bucket of that granularity
+     * @return sum of the bucket
+     */
+    public synchronized long getSum(Granularity granularity, long bucket) {
+        return mRollups[granularity.ordinal()].getSum(bucket);
+    }
+
+
+    /**
+     * Gets the total of all transactions before a bucket, e.g. to start
+     * a running total that only reads the transactions after it
+     *
+     * @param granularity granularity
+     * @param bucket bucket of that granularity
+     * @return sum of all buckets before it
+     */
+    public synchronized long getTotalBefore(Granularity granularity, long bucket) {
+        return mRollups[granularity.ordinal()].getTotalBefore(bucket);
+    }
+
+
+    /**
+     * @param granularity granularity
+     * @param bucket bucket of that granularity
+     * @return number of transactions in the bucket
+     */
+    public synchronized int getCount(Granularity granularity, long bucket) {
+        return mRollups[granularity.ordinal()].getCount(bucket);
+    }
+
+
+    /**
+     * Gets the bucket a timestamp falls into
+     *
+     * @param granularity granularity
+     * @param timestamp milliseconds since epoch
+     * @return bucket
+     */
+    public long bucketOf(Granularity granularity, long timestamp) {
+        return granularity.bucketOfDay(CalendarMath.epochDay(timestamp, mTimeZone));
+    }
+
+
+    /**
+     * Builds columnar chart data with one entry per bucket in a window,
+     * empty buckets included, labelled with {@link Granularity#label(long)}
+     *
+     * @param granularity granularity
+     * @param fromBucket first bucket of the window
+     * @param toBucket last bucket of the window, inclusive
+     * @param labels dictionary to intern bucket labels into
+     * @return data for StackedBarChart.setData
+     */
+    public synchronized ColumnarData toColumnarData(Granularity granularity, long fromBucket, long toBucket,
+                                                    LabelDictionary labels) {
+        return mRollups[granularity.ordinal()].toColumnarData(fromBucket, toBucket, labels);
+    }
+
+
+    /**
+     * Same as {@link #toColumnarData(Granularity, long, long, LabelDictionary)}
+     * as a list of data points. Sums outside the int range are clamped.
+     *
+     * @param granularity granularity
+     * @param fromBucket first bucket of the window
+     * @param toBucket last bucket of the window, inclusive
+     * @return data for StackedBarChart.setData
+     */
+    public synchronized List<StackedBarData> toStackedBarData(Granularity granularity, long fromBucket, long toBucket) {
+        return mRollups[granularity.ordinal()].toStackedBarData(fromBucket, toBucket);
+    }
+
+
+    /**
+     * Saves the rollups. The file is written to a temporary file of its
+     * own next to the target and renamed over it, so readers never see
+     * partial rollups.
+     *
+     * @param file rollups file
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void write(File file) throws IOException {
+        byte[] zone = mTimeZone.getID().getBytes(UTF_8);
+        int size = 4 * 5 + zone.length;
+        for (BucketAggregator rollup : mRollups) {
+            size += 4 + rollup.size() * (8 + 8 + 4);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(mCategory);
+        buffer.putInt(zone.length);
+        buffer.put(zone);
+        buffer.putInt(mLogPosition);
+
+        for (BucketAggregator rollup : mRollups) {
+            int count = rollup.size();
+            long[] buckets = new long[count];
+            long[] sums = new long[count];
+            int[] counts = new int[count];
+            rollup.getBuckets(buckets);
+            rollup.getSums(sums);
+            rollup.getCounts(counts);
+
+            buffer.putInt(count);
+            buffer.asLongBuffer().put(buckets);
+            buffer.position(buffer.position() + count * 8);
+            buffer.asLongBuffer().put(sums);
+            buffer.position(buffer.position() + count * 8);
+            buffer.asIntBuffer().put(counts);
+            buffer.position(buffer.position() + count * 4);
+        }
+
+        buffer.flip();
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                FileChannel channel = out.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace rollups file=" + file);
+        }
+
+        mSavedPosition = mLogPosition;
+    }
+
+
+    /**
+     * Reads rollups saved with {@link #write(File)}
+     *
+     * @param file rollups file
+     * @return rollups, not attached to a log
+     * @throws IOException if the file can not be read or does not hold valid rollups
+     */
+    public static TransactionRollups read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+
+    static TransactionRollups read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a rollups file");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported rollups version=" + version);
+            }
+
+            int category = buffer.getInt();
+            int zoneLength = buffer.getInt();
+            checkCount(zoneLength, 1, buffer);
+
+            byte[] zone = new byte[zoneLength];
+            buffer.get(zone);
+
+            TransactionRollups rollups = new TransactionRollups(
+                    TimeZone.getTimeZone(new String(zone, UTF_8)), category
+            );
+
+            rollups.mLogPosition = buffer.getInt();
+            if (rollups.mLogPosition < 0) {
+                throw new IOException("Corrupt rollups position=" + rollups.mLogPosition);
+            }
+
+            for (BucketAggregator rollup : rollups.mRollups) {
+                // a bucket takes 20 bytes, checked before allocating
+                int count = buffer.getInt();
+                checkCount(count, 8 + 8 + 4, buffer);
+
+                int buckets = buffer.position();
+                int sums = buckets + count * 8;
+                int counts = sums + count * 8;
+                for (int i = 0; i < count; i++) {
+                    rollup.addToBucket(buffer.getLong(buckets + i * 8), buffer.getLong(sums + i * 8),
+                            buffer.getInt(counts + i * 4));
+                }
+
+                buffer.position(counts + count * 4);
+            }
+
+            rollups.mSavedPosition = rollups.mLogPosition;
+            return rollups;
+
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated rollups", e);
+        }
+    }
+
+
+    private static void checkCount(int count, int minBytes, ByteBuffer buffer) throws IOException {
+        if (count < 0 || (long) count * minBytes > buffer.remaining()) {
+            throw new IOException("Corrupt rollups count=" + count + " remaining=" + buffer.remaining());
+        }
+    }
+}
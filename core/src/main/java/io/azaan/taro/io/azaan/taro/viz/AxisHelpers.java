@@ -0,0 +1,523 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.azaan.taro.io.azaan.taro.viz.models.BarStacks;
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.models.XLabel;
+import io.azaan.taro.io.azaan.taro.viz.models.YCategory;
+import io.azaan.taro.io.azaan.taro.viz.models.YValue;
+
+/**
+ * Common helper methods for working with axis
+ */
+public class AxisHelpers {
+
+    private static final ValueFormatter HUMANIZE_FORMATTER = new ValueFormatter();
+
+
+    public enum Sort {
+        ASC, DESC
+    }
+
+
+    /**
+     * How labels are compared when sorting.
+     *
+     * LOCALE sorts with the default locale's Collator,
+     * ORDINAL compares the raw UTF-16 code units which is much
+     * faster but not suitable for labels shown in natural order.
+     */
+    public enum Collation {
+        LOCALE, ORDINAL
+    }
+
+
+    /**
+     * Given a list of values which has a x labels return slots
+     * where all x values are labelled.
+     *
+     * Defaults to ascending sort
+     *
+     * @param values list of data values
+     * @return list of slots
+     */
+    public static <T extends XLabel> List<Slot> makeDiscreteXSlots(List<T> values) {
+        return makeDiscreteXSlots(values, Sort.ASC);
+    }
+
+
+    /**
+     * Given a list of values which has a x labels return slots
+     * where all x values are labelled.
+     *
+     * Slot ids are dense, the id of a slot is its position in the
+     * returned list.
+     *
+     * @param values list of data values
+     * @return list of slots
+     */
+    public static <T extends XLabel> List<Slot> makeDiscreteXSlots(List<T> values, Sort sort) {
+        return makeDiscreteXSlots(values, sort, Collation.LOCALE);
+    }
+
+
+    /**
+     * Given a list of values which has a x labels return slots
+     * where all x values are labelled.
+     *
+     * Slot ids are dense, the id of a slot is its position in the
+     * returned list.
+     *
+     * @param values list of data values
+     * @param sort sort order
+     * @param collation how labels are compared
+     * @return list of slots
+     */
+    public static <T extends XLabel> List<Slot> makeDiscreteXSlots(List<T> values, Sort sort, Collation collation) {
+        if (values == null || values.size() == 0)
+            return new ArrayList<>();
+
+        return makeLabelledSlots(uniqSortLabels(values, sort, collation));
+    }
+
+
+    /**
+     * Makes a labelled slot with a major tick for every label,
+     * ids are the position of the label
+     */
+    private static List<Slot> makeLabelledSlots(List<String> labels) {
+        List<Slot> out = new ArrayList<>(labels.size());
+
+        for (int i = 0; i < labels.size(); i++) {
+            String label = labels.get(i);
+            Slot slot = new Slot(
+                    i,
+                    label,
+                    false,
+                    true
+            );
+
+            out.add(slot);
+        }
+
+        return out;
+    }
+
+
+    /**
+     * Given columnar data return slots where all labels are labelled.
+     *
+     * Defaults to ascending sort
+     *
+     * @param data data set
+     * @return list of slots
+     */
+    public static List<Slot> makeDiscreteXSlots(ColumnarData data) {
+        return makeDiscreteXSlots(data, Sort.ASC, Collation.LOCALE);
+    }
+
+
+    /**
+     * Given columnar data return slots where all labels are labelled.
+     *
+     * Slot ids are dense, the id of a slot is its position in the
+     * returned list.
+     *
+     * @param data data set
+     * @param sort sort order
+     * @param collation how labels are compared
+     * @return list of slots
+     */
+    public static List<Slot> makeDiscreteXSlots(ColumnarData data, Sort sort, Collation collation) {
+        if (data == null || data.size() == 0)
+            return new ArrayList<>();
+
+        return makeLabelledSlots(uniqSortLabels(data, sort, collation));
+    }
+
+
+    /**
+     * Given list of values which has a label, return a list of strings
+     * with all the unique values sorted
+     *
+     * Labels are deduplicated with a hash set first so every distinct label
+     * is only compared once it is known to be unique. For LOCALE collation
+     * the collation key of each unique label is computed once and the keys
+     * are sorted, instead of running the Collator on every comparison.
+     *
+     * @param values list of values
+     * @param sort sort order
+     * @param collation how labels are compared
+     * @return result labels
+     */
+    static <T extends XLabel> List<String> uniqSortLabels(List<T> values, Sort sort, Collation collation) {
+        if (values == null || values.size() == 0)
+            return new ArrayList<>();
+
+        Set<String> uniq = new HashSet<>();
+        String previous = null;
+
+        for (int i = 0; i < values.size(); i++) {
+            String label = values.get(i).getXLabel();
+
+            // runs of the same label (same day, same category) skip hashing
+            if (label == previous && i > 0)
+                continue;
+
+            uniq.add(label);
+            previous = label;
+        }
+
+        String[] labels = uniq.toArray(new String[uniq.size()]);
+        return sortLabels(labels, sort, collation);
+    }
+
+
+    /**
+     * Same as {@link #uniqSortLabels(List, Sort, Collation)} for columnar data.
+     * Label ids are dense so duplicates are dropped with a flag per
+     * dictionary entry, labels are never hashed or compared.
+     *
+     * @param data data set
+     * @param sort sort order
+     * @param collation how labels are compared
+     * @return result labels
+     */
+    static List<String> uniqSortLabels(ColumnarData data, Sort sort, Collation collation) {
+        if (data == null || data.size() == 0)
+            return new ArrayList<>();
+
+        LabelDictionary dictionary = data.getLabels();
+        boolean[] seen = new boolean[dictionary.size()];
+        int[] labelIds = data.getLabelIds();
+        int uniqCount = 0;
+
+        for (int i = 0; i < data.size(); i++) {
+            int id = labelIds[i];
+            if (!seen[id]) {
+                seen[id] = true;
+                uniqCount++;
+            }
+        }
+
+        String[] labels = new String[uniqCount];
+        int pos = 0;
+        for (int id = 0; id < seen.length; id++) {
+            if (seen[id])
+                labels[pos++] = dictionary.get(id);
+        }
+
+        return sortLabels(labels, sort, collation);
+    }
+
+
+    /**
+     * Sorts unique labels in place and returns them as a list
+     */
+    private static List<String> sortLabels(String[] labels, Sort sort, Collation collation) {
+        if (collation == Collation.ORDINAL) {
+            Arrays.sort(labels);
+        } else {
+            Collator collator = Collator.getInstance();
+            CollationKey[] keys = new CollationKey[labels.length];
+
+            for (int i = 0; i < labels.length; i++) {
+                keys[i] = collator.getCollationKey(labels[i]);
+            }
+
+            Arrays.sort(keys);
+
+            for (int i = 0; i < keys.length; i++) {
+                labels[i] = keys[i].getSourceString();
+            }
+        }
+
+        List<String> out = Arrays.asList(labels);
+        if (sort == Sort.DESC)
+            Collections.reverse(out);
+
+        return out;
+    }
+
+    /**
+     * Sums the y values of all data points per x slot. The slots must have
+     * dense ids (as made by makeDiscreteXSlots) and a slot for every label.
+     *
+     * @param values list of data values
+     * @param slots x slots made for the values
+     * @return sum per slot, indexed by slot id
+     */
+    public static <T extends XLabel & YValue> long[] sumByXSlot(List<T> values, List<Slot> slots) {
+        Map<String, Integer> ids = new HashMap<>(slots.size() * 2);
+        for (Slot slot : slots) {
+            ids.put(slot.label, slot.id);
+        }
+
+        long[] sums = new long[slots.size()];
+        for (int i = 0; i < values.size(); i++) {
+            T value = values.get(i);
+            sums[ids.get(value.getXLabel())] += Math.round(value.getYValue());
+        }
+
+        return sums;
+    }
+
+
+    /**
+     * Sums the values of columnar data per x slot. The slots must have
+     * dense ids (as made by makeDiscreteXSlots) and a slot for every label.
+     *
+     * @param data data set
+     * @param slots x slots made for the data
+     * @return sum per slot, indexed by slot id
+     */
+    public static long[] sumByXSlot(ColumnarData data, List<Slot> slots) {
+        LabelDictionary dictionary = data.getLabels();
+
+        // label id -> slot id, labels are only looked up once per slot
+        int[] slotOfLabel = new int[dictionary.size()];
+        Map<String, Integer> ids = new HashMap<>(slots.size() * 2);
+        for (Slot slot : slots) {
+            ids.put(slot.label, slot.id);
+        }
+
+        Arrays.fill(slotOfLabel, -1);
+        int[] labelIds = data.getLabelIds();
+        long[] values = data.getValues();
+        long[] sums = new long[slots.size()];
+
+        for (int i = 0; i < data.size(); i++) {
+            int labelId = labelIds[i];
+            if (slotOfLabel[labelId] == -1) {
+                slotOfLabel[labelId] = ids.get(dictionary.get(labelId));
+            }
+
+            sums[slotOfLabel[labelId]] += values[i];
+        }
+
+        return sums;
+    }
+
+
+    /**
+     * Sums the y values of all data points per x slot and category into
+     * stacks with one segment per category, up to the largest category
+     * of the data. The slots must have dense ids (as made by
+     * makeDiscreteXSlots) and a slot for every label.
+     *
+     * @param values list of data values
+     * @param slots x slots made for the values
+     * @return stacks, bars indexed by slot id
+     */
+    public static <T extends XLabel & YValue & YCategory> BarStacks stackByXSlot(List<T> values, List<Slot> slots) {
+        Map<String, Integer> ids = new HashMap<>(slots.size() * 2);
+        for (Slot slot : slots) {
+            ids.put(slot.label, slot.id);
+        }
+
+        int categories = 1;
+        for (int i = 0; i < values.size(); i++) {
+            categories = Math.max(categories, checkCategory(values.get(i).getCategory()) + 1);
+        }
+
+        long[] sums = new long[slots.size() * categories];
+        for (int i = 0; i < values.size(); i++) {
+            T value = values.get(i);
+            sums[ids.get(value.getXLabel()) * categories + value.getCategory()] += Math.round(value.getYValue());
+        }
+
+        return new BarStacks(sums, categories);
+    }
+
+
+    /**
+     * Sums the values of columnar data per x slot and category,
+     * see {@link #stackByXSlot(List, List)}
+     *
+     * @param data data set
+     * @param slots x slots made for the data
+     * @return stacks, bars indexed by slot id
+     */
+    public static BarStacks stackByXSlot(ColumnarData data, List<Slot> slots) {
+        LabelDictionary dictionary = data.getLabels();
+        int[] labelIds = data.getLabelIds();
+        int[] categoryIds = data.getCategories();
+        long[] values = data.getValues();
+
+        int categories = 1;
+        for (int i = 0; i < data.size(); i++) {
+            categories = Math.max(categories, checkCategory(categoryIds[i]) + 1);
+        }
+
+        // label id -> slot id, labels are only looked up once per slot
+        int[] slotOfLabel = new int[dictionary.size()];
+        Map<String, Integer> ids = new HashMap<>(slots.size() * 2);
+        for (Slot slot : slots) {
+            ids.put(slot.label, slot.id);
+        }
+
+        Arrays.fill(slotOfLabel, -1);
+        long[] sums = new long[slots.size() * categories];
+
+        for (int i = 0; i < data.size(); i++) {
+            int labelId = labelIds[i];
+            if (slotOfLabel[labelId] == -1) {
+                slotOfLabel[labelId] = ids.get(dictionary.get(labelId));
+            }
+
+            sums[slotOfLabel[labelId] * categories + categoryIds[i]] += values[i];
+        }
+
+        return new BarStacks(sums, categories);
+    }
+
+
+    private static int checkCategory(int category) {
+        if (category < 0) {
+            throw new IllegalArgumentException("Invalid category=" + category);
+        }
+
+        return category;
+    }
+
+
+    /**
+     * Makes evenly spaced tick values from 0 covering max. The step
+     * between ticks is a 'nice' number (1, 2 or 5 times a power of 10).
+     *
+     * @param max largest value that must be covered
+     * @param maxTicks most ticks to return, at least 2
+     * @return tick values in ascending order
+     */
+    public static long[] niceTicks(long max, int maxTicks) {
+        long[] ticks = new long[Math.max(0, maxTicks)];
+        int count = niceTicks(max, maxTicks, ticks);
+
+        return count == ticks.length ? ticks : Arrays.copyOf(ticks, count);
+    }
+
+
+    /**
+     * Same as {@link #niceTicks(long, int)} writing into a buffer, for
+     * callers that rescale their ticks often
+     *
+     * @param max largest value that must be covered
+     * @param maxTicks most ticks to return, at least 2
+     * @param out receives the tick values in ascending order,
+     *            at least maxTicks long
+     * @return number of ticks written to out
+     */
+    public static int niceTicks(long max, int maxTicks, long[] out) {
+        if (maxTicks < 2 || out.length < maxTicks) {
+            throw new IllegalArgumentException("Invalid ticks maxTicks=" + maxTicks + " out=" + out.length);
+        }
+
+        max = Math.max(1, max);
+
+        long step = niceStep(max / (double) (maxTicks - 1));
+        int count = (int) ((max + step - 1) / step) + 1;
+
+        for (int i = 0; i < count; i++) {
+            out[i] = step * i;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Makes evenly spaced tick values covering a range that may go below
+     * 0, for axes that do not start at 0. The ticks are multiples of a
+     * 'nice' step, see {@link #niceTicks(long, int)}.
+     *
+     * @param min smallest value that must be covered
+     * @param max largest value that must be covered
+     * @param maxTicks most ticks to return, at least 2
+     * @return tick values in ascending order
+     */
+    public static long[] niceTicks(long min, long max, int maxTicks) {
+        if (maxTicks < 2 || min > max) {
+            throw new IllegalArgumentException("Invalid ticks min=" + min + " max=" + max + " maxTicks=" + maxTicks);
+        }
+
+        if (min == max) {
+            max = min + 1;
+        }
+
+        // the range rounded out to the step can take one more tick, if
+        // it takes too many go up to the next nice step
+        long step = niceStep((max - (double) min) / (maxTicks - 1));
+        long first;
+        long last;
+        while (true) {
+            first = min - floorMod(min, step);
+            last = max + (step - floorMod(max, step)) % step;
+
+            if ((last - first) / step + 1 <= maxTicks) {
+                break;
+            }
+
+            step = niceStep(step + 1);
+        }
+
+        int count = (int) ((last - first) / step) + 1;
+        long[] ticks = new long[count];
+        for (int i = 0; i < count; i++) {
+            ticks[i] = first + step * i;
+        }
+
+        return ticks;
+    }
+
+
+    private static long floorMod(long x, long step) {
+        long mod = x % step;
+        return mod < 0 ? mod + step : mod;
+    }
+
+
+    /**
+     * Gets the smallest 'nice' number (1, 2 or 5 times
+     * a power of 10) at or above a step
+     */
+    private static long niceStep(double rawStep) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rawStep)));
+        double normalized = rawStep / magnitude;
+
+        double niceStep;
+        if (normalized <= 1)
+            niceStep = 1;
+        else if (normalized <= 2)
+            niceStep = 2;
+        else if (normalized <= 5)
+            niceStep = 5;
+        else
+            niceStep = 10;
+
+        return Math.max(1, Math.round(niceStep * magnitude));
+    }
+
+
+    /**
+     * Return a human friendly short form of a number, e.g. 950, 1.2k
+     * or -3.4M. Labels are memoized by a shared {@link ValueFormatter}.
+     *
+     * @param value number
+     * @return human friendly form
+     */
+    public static String humanizeValue(long value) {
+        return HUMANIZE_FORMATTER.label(value);
+    }
+}
@@ -0,0 +1,96 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+/**
+ * Reduces series with far more points than there are pixels to draw
+ * them on, keeping their visual shape.
+ *
+ * Uses largest-triangle-three-buckets (LTTB): the first and last points
+ * are kept and the points in between are split into equal buckets. From
+ * every bucket the point forming the largest triangle with the point
+ * picked from the previous bucket and the average of the next bucket is
+ * kept, so the peaks and dips that plain averaging flattens are kept.
+ * Runs in O(n) and picks indexes, so the series is never copied.
+ */
+public class Downsampler {
+
+    private Downsampler() {
+    }
+
+
+    /**
+     * Picks the points to draw from a range of a series
+     *
+     * @param xs x of every point, ascending
+     * @param ys y of every point
+     * @param from first point of the range
+     * @param to end of the range, exclusive
+     * @param threshold most points to pick, at least 3
+     * @param out receives the indexes of the picked points in ascending
+     *            order, must hold min(threshold, to - from) entries
+     * @return number of indexes written to out
+     */
+    public static int lttb(long[] xs, long[] ys, int from, int to, int threshold, int[] out) {
+        int count = to - from;
+        if (count < 0 || threshold < 3) {
+            throw new IllegalArgumentException("Invalid range from=" + from + " to=" + to + " threshold=" + threshold);
+        }
+
+        if (threshold >= count) {
+            // nothing to reduce
+            for (int i = 0; i < count; i++) {
+                out[i] = from + i;
+            }
+            return count;
+        }
+
+        // buckets between the first and last point
+        double every = (count - 2) / (double) (threshold - 2);
+
+        // x relative to the first point so large timestamps keep their precision
+        long x0 = xs[from];
+
+        int picked = 0;
+        int a = from;
+        out[picked++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // average of the next bucket, the last point for the last bucket
+            int nextStart = from + (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * every) + 1, to);
+
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs[i] - x0;
+                avgY += ys[i];
+            }
+
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            // point of this bucket with the largest triangle
+            int start = from + (int) (bucket * every) + 1;
+            int end = from + (int) ((bucket + 1) * every) + 1;
+
+            double ax = xs[a] - x0;
+            double ay = ys[a];
+            double maxArea = -1;
+            int maxIndex = start;
+
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (ys[i] - ay) - (ax - (xs[i] - x0)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            out[picked++] = maxIndex;
+            a = maxIndex;
+        }
+
+        out[picked++] = to - 1;
+        return picked;
+    }
+}
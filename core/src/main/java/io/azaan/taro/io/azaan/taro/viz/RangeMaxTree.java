@@ -0,0 +1,128 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree answering "largest value in index range" queries.
+ *
+ * Used to rescale a value axis to the slots inside a viewport without
+ * rescanning them. Building is O(n), queries and updates are O(log n),
+ * appending is amortized O(log n) and the tree takes up to 4n longs.
+ */
+public class RangeMaxTree {
+
+    /**
+     * Iterative segment tree, leaves are at [mCapacity, mCapacity + mSize),
+     * leaves past the last value hold Long.MIN_VALUE
+     */
+    private long[] mTree;
+    private int mCapacity;
+    private int mSize;
+
+
+    /**
+     * @param values values to index
+     * @param count number of values to use from the start of the array
+     */
+    public RangeMaxTree(long[] values, int count) {
+        mSize = count;
+        build(values, 0, Math.max(1, count));
+    }
+
+
+    /**
+     * Gets the largest value in the inclusive index range
+     *
+     * @param from first index
+     * @param to last index
+     * @return largest value
+     */
+    public long max(int from, int to) {
+        if (from < 0 || to >= mSize || from > to) {
+            throw new IllegalArgumentException("Invalid range from=" + from + " to=" + to + " size=" + mSize);
+        }
+
+        long result = Long.MIN_VALUE;
+        int lo = from + mCapacity;
+        int hi = to + mCapacity + 1;
+
+        while (lo < hi) {
+            if ((lo & 1) == 1) {
+                result = Math.max(result, mTree[lo++]);
+            }
+
+            if ((hi & 1) == 1) {
+                result = Math.max(result, mTree[--hi]);
+            }
+
+            lo >>= 1;
+            hi >>= 1;
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Sets the value at an index
+     *
+     * @param index index
+     * @param value new value
+     */
+    public void set(int index, long value) {
+        if (index < 0 || index >= mSize) {
+            throw new IllegalArgumentException("Invalid index=" + index + " size=" + mSize);
+        }
+
+        update(index, value);
+    }
+
+
+    /**
+     * Adds a value after the last one. The tree is only rebuilt
+     * when it runs out of leaves, with twice as many.
+     *
+     * @param value value to add
+     */
+    public void append(long value) {
+        if (mSize == mCapacity) {
+            build(mTree, mCapacity, mCapacity * 2);
+        }
+
+        mSize++;
+        update(mSize - 1, value);
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+
+    /**
+     * Builds the tree with room for capacity leaves from the
+     * first mSize values of an array
+     */
+    private void build(long[] values, int offset, int capacity) {
+        long[] tree = new long[capacity * 2];
+        System.arraycopy(values, offset, tree, capacity, mSize);
+        Arrays.fill(tree, capacity + mSize, tree.length, Long.MIN_VALUE);
+
+        for (int i = capacity - 1; i > 0; i--) {
+            tree[i] = Math.max(tree[i * 2], tree[i * 2 + 1]);
+        }
+
+        mTree = tree;
+        mCapacity = capacity;
+    }
+
+
+    private void update(int index, long value) {
+        int pos = index + mCapacity;
+        mTree[pos] = value;
+
+        for (pos >>= 1; pos > 0; pos >>= 1) {
+            mTree[pos] = Math.max(mTree[pos * 2], mTree[pos * 2 + 1]);
+        }
+    }
+}
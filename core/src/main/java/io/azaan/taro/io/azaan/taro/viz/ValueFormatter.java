@@ -0,0 +1,265 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Formats values into short human friendly labels such as 950, 1.2k,
+ * -3.4M or $12.50.
+ *
+ * Values below a thousand units are written in full, larger ones are
+ * truncated to one decimal and get a k, M or B suffix. Values can be
+ * given in minor units (cents) with a unit scale of 100.
+ *
+ * Formatting writes into a reused char buffer or a caller's
+ * StringBuilder, and {@link #label(long)} memoizes the Strings it
+ * makes, so formatting the same ticks again allocates nothing.
+ * All methods synchronize on the formatter so it can be shared with
+ * background slot preparation.
+ */
+public class ValueFormatter {
+
+    /**
+     * Number of memoized labels, must be a power of 2
+     */
+    private static final int CACHE_SIZE = 64;
+
+
+    /**
+     * Longest label, sign + 19 digits + separator + 2 decimals + suffix,
+     * not counting prefix and suffix text
+     */
+    private static final int MAX_DIGITS = 24;
+
+
+    private static final char[] SUFFIXES = {'k', 'M', 'B'};
+
+
+    private final char[] mPrefix;
+    private final char[] mSuffix;
+    private final char mDecimalSeparator;
+    private final char mMinusSign;
+    private final long mUnitScale;
+
+
+    /**
+     * Format buffer, only used while holding the lock
+     */
+    private final char[] mBuffer;
+
+
+    /**
+     * Direct mapped label cache, a value is stored at the slot of its hash
+     * and replaces whatever was there
+     */
+    private final long[] mCacheKeys = new long[CACHE_SIZE];
+    private final String[] mCacheLabels = new String[CACHE_SIZE];
+
+
+    /**
+     * Plain formatter using '.' as the decimal separator
+     */
+    public ValueFormatter() {
+        this("", "", '.', '-', 1);
+    }
+
+
+    /**
+     * @param prefix text before the number, e.g. a currency symbol
+     * @param suffix text after the number
+     * @param decimalSeparator decimal separator
+     * @param minusSign minus sign
+     * @param unitScale minor units per unit, 1 for plain values or 100 for cents
+     */
+    public ValueFormatter(String prefix, String suffix, char decimalSeparator, char minusSign, long unitScale) {
+        if (unitScale != 1 && unitScale != 10 && unitScale != 100 && unitScale != 1000) {
+            throw new IllegalArgumentException("Unit scale must be 1, 10, 100 or 1000 unitScale=" + unitScale);
+        }
+
+        mPrefix = prefix.toCharArray();
+        mSuffix = suffix.toCharArray();
+        mDecimalSeparator = decimalSeparator;
+        mMinusSign = minusSign;
+        mUnitScale = unitScale;
+        mBuffer = new char[mPrefix.length + mSuffix.length + MAX_DIGITS];
+    }
+
+
+    /**
+     * Makes a formatter for plain values using the separators of a locale
+     *
+     * @param locale locale
+     * @return formatter
+     */
+    public static ValueFormatter plain(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        return new ValueFormatter("", "", symbols.getDecimalSeparator(), symbols.getMinusSign(), 1);
+    }
+
+
+    /**
+     * Makes a formatter for amounts in cents using the currency symbol of
+     * a locale, placed before or after the number as the locale does
+     *
+     * @param locale locale
+     * @return formatter
+     */
+    public static ValueFormatter currency(Locale locale) {
+        NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+
+        String prefix = symbols.getCurrencySymbol();
+        String suffix = "";
+        if (format instanceof DecimalFormat) {
+            DecimalFormat decimalFormat = (DecimalFormat) format;
+            prefix = decimalFormat.getPositivePrefix();
+            suffix = decimalFormat.getPositiveSuffix();
+        }
+
+        return new ValueFormatter(prefix, suffix, symbols.getDecimalSeparator(), symbols.getMinusSign(), 100);
+    }
+
+
+    /**
+     * Gets the label of a value, formatting it only if it is not cached
+     *
+     * @param value value in minor units
+     * @return label
+     */
+    public synchronized String label(long value) {
+        int slot = hash(value) & (CACHE_SIZE - 1);
+        String label = mCacheLabels[slot];
+
+        if (label != null && mCacheKeys[slot] == value) {
+            return label;
+        }
+
+        int length = format(value, mBuffer, 0);
+        label = new String(mBuffer, 0, length);
+
+        mCacheKeys[slot] = value;
+        mCacheLabels[slot] = label;
+
+        return label;
+    }
+
+
+    /**
+     * Appends the label of a value
+     *
+     * @param out builder to append to
+     * @param value value in minor units
+     * @return the builder
+     */
+    public synchronized StringBuilder append(StringBuilder out, long value) {
+        int length = format(value, mBuffer, 0);
+        return out.append(mBuffer, 0, length);
+    }
+
+
+    /**
+     * Writes the label of a value into a char array
+     *
+     * @param value value in minor units
+     * @param out destination, must have room for {@link #maxLength()} chars
+     * @param offset position of the first char
+     * @return number of chars written
+     */
+    public synchronized int format(long value, char[] out, int offset) {
+        int pos = offset;
+
+        // the magnitude of Long.MIN_VALUE does not fit a long, it is one
+        // off in the last digit which a suffixed label never shows
+        boolean negative = value < 0;
+        long magnitude = negative ? (value == Long.MIN_VALUE ? Long.MAX_VALUE : -value) : value;
+
+        long units = magnitude / mUnitScale;
+        long minor = magnitude % mUnitScale;
+
+        if (negative && (units != 0 || minor != 0)) {
+            out[pos++] = mMinusSign;
+        }
+
+        System.arraycopy(mPrefix, 0, out, pos, mPrefix.length);
+        pos += mPrefix.length;
+
+        if (units < 1000) {
+            pos = writeDigits(units, out, pos);
+
+            // minor units are only shown in full, $12.50 not $12.5
+            if (minor != 0) {
+                out[pos++] = mDecimalSeparator;
+                for (long scale = mUnitScale / 10; scale > 0; scale /= 10) {
+                    out[pos++] = (char) ('0' + (minor / scale) % 10);
+                }
+            }
+        } else {
+            int suffix = 0;
+            long divisor = 1000;
+            while (suffix < SUFFIXES.length - 1 && units / divisor >= 1000) {
+                divisor *= 1000;
+                suffix++;
+            }
+
+            long whole = units / divisor;
+            long tenths = (units / (divisor / 10)) % 10;
+
+            pos = writeDigits(whole, out, pos);
+            if (tenths != 0) {
+                out[pos++] = mDecimalSeparator;
+                out[pos++] = (char) ('0' + tenths);
+            }
+
+            out[pos++] = SUFFIXES[suffix];
+        }
+
+        System.arraycopy(mSuffix, 0, out, pos, mSuffix.length);
+        pos += mSuffix.length;
+
+        return pos - offset;
+    }
+
+
+    /**
+     * @return the longest label this formatter can write
+     */
+    public int maxLength() {
+        return mBuffer.length;
+    }
+
+
+    /**
+     * Drops all memoized labels
+     */
+    public synchronized void clearCache() {
+        Arrays.fill(mCacheLabels, null);
+    }
+
+
+    /**
+     * Writes the decimal digits of a non negative number
+     */
+    private static int writeDigits(long value, char[] out, int pos) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        return end;
+    }
+
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
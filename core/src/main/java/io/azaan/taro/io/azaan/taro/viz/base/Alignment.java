@@ -0,0 +1,8 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+/**
+ * Which side of an axis the slots are aligned to
+ */
+public enum Alignment {
+    START, CENTER, END
+}
@@ -0,0 +1,414 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+/**
+ * Slot layout of an axis.
+ *
+ * A layout captures the configuration of an axis (dimensions, orientation,
+ * alignment, spacing and viewport scale) at the time it was created and
+ * calculates slot sizes and positions from it. Slots are laid out over
+ * the axis size times the viewport scale. It does not touch the axis itself so
+ * a layout can be prepared on a background thread and handed to the axis
+ * with BaseAxis.applyLayout once done.
+ */
+public class AxisLayout {
+
+    /**
+     * Smallest slot size in pixels for which the min separation
+     * is respected
+     */
+    private static final float MIN_SLOT_SIZE = 1;
+
+
+    /**
+     * Share of the pitch (slot + separation) a slot takes
+     * on a dense axis
+     */
+    private static final float DENSE_SLOT_FILL = 0.7f;
+
+
+    /**
+     * Axis configuration at the time the layout was created
+     */
+    final float w;
+    final float h;
+    final Orientation orientation;
+    final Alignment alignment;
+    final float minSeparation;
+    final float maxSeparation;
+    final float maxSlotWidth;
+    final float scale;
+
+
+    /**
+     * Prepared slots in axis order and their index.
+     * Only set by {@link #prepare(List)}.
+     */
+    List<Slot> slots;
+    SlotIndex index;
+
+
+    /**
+     * Calculated dimensions
+     */
+    float slotWidth;
+    float slotHeight;
+    float slotSeparation;
+    float slotStartX;
+    float slotStartY;
+
+
+    /**
+     * Is the axis too dense to respect the min separation
+     */
+    boolean dense = false;
+
+
+    /**
+     * Were slot positions calculated. False if the dimensions
+     * were not valid or there were no slots.
+     */
+    boolean laidOut = false;
+
+
+    /**
+     * @param w width of the axis
+     * @param h height of the axis
+     * @param orientation orientation of the axis
+     * @param alignment which side the slots are aligned to
+     * @param minSeparation smallest gap between slots
+     * @param maxSeparation largest gap between slots
+     * @param maxSlotWidth largest slot size on the major axis
+     * @param scale viewport scale, 1 to fit all slots
+     */
+    public AxisLayout(float w, float h,
+               Orientation orientation, Alignment alignment,
+               float minSeparation, float maxSeparation, float maxSlotWidth,
+               float scale) {
+        this.w = w;
+        this.h = h;
+        this.orientation = orientation;
+        this.alignment = alignment;
+        this.minSeparation = minSeparation;
+        this.maxSeparation = maxSeparation;
+        this.maxSlotWidth = maxSlotWidth;
+        this.scale = scale;
+    }
+
+
+    /**
+     * Orders the slots for the axis, builds their index and calculates
+     * their positions. Works on a copy of the list, the slot objects
+     * themselves are updated so they must not be in use by an axis.
+     *
+     * Safe to call from any thread.
+     *
+     * @param slots slots in data order
+     */
+    public void prepare(List<Slot> slots) {
+        this.slots = orderSlots(slots, orientation);
+
+        this.index = new SlotIndex();
+        this.index.rebuild(this.slots);
+
+        position(this.slots);
+    }
+
+
+    /**
+     * Copies the slots and reverses them for vertical axes so that the
+     * first slot ends up at the bottom
+     *
+     * @param slots slots in data order
+     * @param orientation axis orientation
+     * @return slots in axis order
+     */
+    static List<Slot> orderSlots(List<Slot> slots, Orientation orientation) {
+        List<Slot> ordered = new ArrayList<>(slots);
+
+        if (orientation == Orientation.VERTICAL) {
+            Collections.reverse(ordered);
+        }
+
+        return ordered;
+    }
+
+
+    /**
+     * Calculates the slot sizes and updates the positions of all slots
+     *
+     * @param slots slots in axis order
+     * @return true if the slots were laid out, false if the dimensions
+     *         are not valid or there are no slots
+     */
+    boolean position(List<Slot> slots) {
+        if (!measure(slots.size())) {
+            return false;
+        }
+
+        place(slots, 0, slots.size());
+        return true;
+    }
+
+
+    /**
+     * Calculates the slot sizes, separation and start for the given
+     * number of slots without touching any slot
+     *
+     * @param count number of slots
+     * @return false if the dimensions are not valid or there are no slots
+     */
+    boolean measure(int count) {
+        float countF = (float) count;
+
+        boolean valid = w > 0 && h > 0;
+        boolean hasSlots = countF > 0;
+        if (!valid || !hasSlots) {
+            laidOut = false;
+            return false;
+        }
+
+        calculateSlotSize(countF);
+
+        boolean horizontal = orientation == Orientation.HORIZONTAL;
+        float maxMajor = (horizontal ? w : h) * scale;
+        float majorSlotSize = horizontal ? slotWidth : slotHeight;
+
+        // calculate slot separation. With more slots than fit at the min
+        // separation the slots were shrunk in calculateSlotSize and the
+        // separation ends up below the minimum, labels are thinned out
+        // when drawn instead.
+        float separation = countF > 1 ?
+                (maxMajor - majorSlotSize * countF) / (countF - 1) :
+                maxSeparation;
+
+        if (!dense) {
+            separation = (float) Math.floor(separation);
+        }
+
+        // bound separation to max
+        slotSeparation = Math.max(0, Math.min(maxSeparation, separation));
+
+        // all major slot size = (slot size + separation between them)
+        float slotTotalSize = majorSlotSize * countF + slotSeparation * (countF - 1);
+
+        float majorSlotStart = -1;
+        switch (alignment) {
+            case START:
+                majorSlotStart = 0;
+                break;
+
+            case END:
+                majorSlotStart = maxMajor - slotTotalSize;
+                break;
+
+            case CENTER:
+                majorSlotStart = (maxMajor / 2f) - (slotTotalSize / 2f);
+                break;
+        }
+
+        if (majorSlotStart == -1) {
+            throw new IllegalStateException("Slot alignment behaviour not defined alignment=" + alignment);
+        }
+
+        if (horizontal) {
+            slotStartX = majorSlotStart;
+            slotStartY = 0;
+        } else {
+            slotStartX = 0;
+            slotStartY = majorSlotStart;
+        }
+
+        laidOut = true;
+        return true;
+    }
+
+
+    /**
+     * Updates the positions of a range of slots from the measured
+     * dimensions. {@link #measure(int)} must have returned true.
+     *
+     * @param slots slots in axis order
+     * @param from position of the first slot to place
+     * @param to position after the last slot to place
+     */
+    void place(List<Slot> slots, int from, int to) {
+        boolean horizontal = orientation == Orientation.HORIZONTAL;
+        float majorSlotStart = horizontal ? slotStartX : slotStartY;
+        float majorSlotSize = horizontal ? slotWidth : slotHeight;
+
+        for (int i = from; i < to; i++) {
+            Slot slot = slots.get(i);
+
+            float slotPos = majorSlotStart + (majorSlotSize + slotSeparation) * i;
+            if (horizontal) {
+                slot._x = slotPos;
+                slot._y = 0;
+            } else {
+                slot._x = 0;
+                slot._y = slotPos;
+            }
+        }
+    }
+
+
+    /**
+     * Calculates the slot size. The maximum possible size is given
+     * in the major axis and is bounded by maxSlotWidth. In the minor axis
+     * the size is the maximum possible size of the minor axis
+     *
+     * Slot sizes are small enough such that minSeparation can be respected.
+     * If there are too many slots for that, each slot gets a fixed share
+     * of its pitch (slot + separation) and the layout is marked dense.
+     */
+    private void calculateSlotSize(float countF) {
+        // calculate for major axis
+        float majorMax = (orientation == Orientation.HORIZONTAL ? w : h) * scale;
+
+        // take the max available space (size - all min separation) and divide by number of slots
+        float majorSize = (float) Math.floor((majorMax - minSeparation * (countF - 1)) / countF);
+        majorSize = Math.min(maxSlotWidth, majorSize);
+
+        dense = majorSize < MIN_SLOT_SIZE;
+        if (dense) {
+            majorSize = (majorMax / countF) * DENSE_SLOT_FILL;
+        }
+
+        if (orientation == Orientation.HORIZONTAL) {
+            slotWidth = majorSize;
+            slotHeight = h;
+        } else {
+            slotWidth = w;
+            slotHeight = majorSize;
+        }
+    }
+
+
+    /**
+     * @return prepared slots in axis order, null if not prepared
+     */
+    public List<Slot> getSlots() {
+        return slots;
+    }
+
+
+    /**
+     * @return true if the slots were positioned
+     */
+    public boolean isLaidOut() {
+        return laidOut;
+    }
+
+
+    public float getSlotWidth() {
+        return slotWidth;
+    }
+
+    public float getSlotHeight() {
+        return slotHeight;
+    }
+
+    public float getSlotSeparation() {
+        return slotSeparation;
+    }
+
+
+    /**
+     * Gets the center of a prepared slot on the major axis
+     *
+     * @param slotId slot id
+     * @return position in pixels
+     */
+    public float getCenterPos(int slotId) {
+        int position = index == null ? SlotIndex.NOT_FOUND : index.indexOf(slotId);
+        if (position == SlotIndex.NOT_FOUND) {
+            throw new IllegalArgumentException("No slot with id=" + slotId);
+        }
+
+        return centerPos(slots.get(position), orientation, slotWidth, slotHeight);
+    }
+
+
+    /**
+     * Center of a laid out slot on the major axis
+     */
+    static float centerPos(Slot slot, Orientation orientation, float slotWidth, float slotHeight) {
+        return orientation == Orientation.HORIZONTAL ?
+                slot._x + slotWidth / 2f :
+                slot._y + slotHeight / 2f;
+    }
+
+
+    /**
+     * Gets the slot closest to a position on the major axis with a binary
+     * search over the slot positions, which must increase with the
+     * position in the list (as laid out).
+     *
+     * @param slots laid out slots in axis order
+     * @param orientation axis orientation
+     * @param slotWidth slot width
+     * @param slotHeight slot height
+     * @param pos position in content coordinates
+     * @return position in slots of the slot with the nearest center, -1 if there are no slots
+     */
+    static int nearestSlot(List<Slot> slots, Orientation orientation,
+                           float slotWidth, float slotHeight, float pos) {
+        int count = slots.size();
+        if (count == 0) {
+            return -1;
+        }
+
+        // first slot whose center is at or after pos
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (centerPos(slots.get(mid), orientation, slotWidth, slotHeight) < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        if (lo == count) {
+            return count - 1;
+        }
+
+        if (lo == 0) {
+            return 0;
+        }
+
+        float before = pos - centerPos(slots.get(lo - 1), orientation, slotWidth, slotHeight);
+        float after = centerPos(slots.get(lo), orientation, slotWidth, slotHeight) - pos;
+
+        return before <= after ? lo - 1 : lo;
+    }
+
+
+    /**
+     * Does this layout put slots at the same positions as the given
+     * dimensions, i.e. can slots placed with either be mixed
+     */
+    boolean sameGeometry(float slotWidth, float slotHeight, float slotSeparation,
+                         float slotStartX, float slotStartY) {
+        return this.slotWidth == slotWidth && this.slotHeight == slotHeight
+                && this.slotSeparation == slotSeparation
+                && this.slotStartX == slotStartX && this.slotStartY == slotStartY;
+    }
+
+
+    /**
+     * Was the layout created for the given axis configuration
+     */
+    boolean matches(float w, float h, Orientation orientation, Alignment alignment, float scale) {
+        return this.w == w && this.h == h
+                && this.orientation == orientation
+                && this.alignment == alignment
+                && this.scale == scale;
+    }
+}
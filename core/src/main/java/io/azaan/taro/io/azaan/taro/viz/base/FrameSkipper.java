@@ -0,0 +1,114 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+/**
+ * Decides which frames of a transition are drawn when frames run over
+ * their budget, without depending on the display's frame callbacks.
+ *
+ * A frame counts as late if it came more than 1.5 budgets after the one
+ * before, or if the last drawn frame reported more work than the budget.
+ * Every late frame skips one more frame after each drawn one, up to
+ * {@link #MAX_SKIPPED_FRAMES} in a row. Work is only judged once per
+ * drawn frame that reported it, so skipped frames never count as cheap.
+ * A drawn frame taking under half the budget skips one less.
+ */
+public class FrameSkipper {
+
+    /**
+     * Most frames skipped in a row when over budget
+     */
+    public static final int MAX_SKIPPED_FRAMES = 2;
+
+
+    private final long mBudgetNanos;
+
+
+    /**
+     * mSkip is the number of frames skipped after every
+     * drawn frame, mSkipped counts them
+     */
+    private int mSkip = 0;
+    private int mSkipped = 0;
+
+
+    private long mLastFrameNanos = -1;
+
+
+    /**
+     * Work reported for the last drawn frame, judged on the next frame
+     */
+    private long mFrameWorkNanos = 0;
+    private boolean mWorkReported = false;
+
+
+    /**
+     * @param budgetNanos time a frame may take
+     */
+    public FrameSkipper(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+
+    /**
+     * Starts a new transition. The number of frames
+     * skipped carries over from the last one.
+     */
+    public void reset() {
+        mLastFrameNanos = -1;
+        mSkipped = 0;
+        mWorkReported = false;
+    }
+
+
+    /**
+     * Reports how long drawing the last drawn frame took
+     *
+     * @param nanos draw time in nanoseconds
+     */
+    public void reportFrameWork(long nanos) {
+        mFrameWorkNanos = nanos;
+        mWorkReported = true;
+    }
+
+
+    /**
+     * Called on every frame of a transition
+     *
+     * @param frameTimeNanos frame time
+     * @return true if the frame should be drawn
+     */
+    public boolean onFrame(long frameTimeNanos) {
+        long interval = mLastFrameNanos < 0 ? 0 : frameTimeNanos - mLastFrameNanos;
+        mLastFrameNanos = frameTimeNanos;
+
+        boolean late = interval > mBudgetNanos * 3 / 2;
+        boolean cheap = false;
+
+        if (mWorkReported) {
+            mWorkReported = false;
+            late |= mFrameWorkNanos > mBudgetNanos;
+            cheap = !late && mFrameWorkNanos < mBudgetNanos / 2;
+        }
+
+        if (late) {
+            mSkip = Math.min(MAX_SKIPPED_FRAMES, mSkip + 1);
+        } else if (cheap && mSkip > 0) {
+            mSkip--;
+        }
+
+        if (mSkipped < mSkip) {
+            mSkipped++;
+            return false;
+        }
+
+        mSkipped = 0;
+        return true;
+    }
+
+
+    /**
+     * @return frames skipped after every drawn frame
+     */
+    public int getSkip() {
+        return mSkip;
+    }
+}
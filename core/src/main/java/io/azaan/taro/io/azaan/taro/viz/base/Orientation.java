@@ -0,0 +1,8 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+/**
+ * Orientation of an axis
+ */
+public enum Orientation {
+    HORIZONTAL, VERTICAL
+}
@@ -0,0 +1,233 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+/**
+ * Transition between two sets of line segments, e.g. the bars of a
+ * chart before and after its data changed.
+ *
+ * Segments are stored as in a drawLines buffer: 4 floats per segment,
+ * grouped by category, with one segment per slot starting at a first slot
+ * in every category. {@link #begin} keeps the segments on screen, which are
+ * paired up with the target segments by slot and category once the target
+ * is known, and {@link #interpolate} moves between the two.
+ *
+ * The segments on screen are always computed from the start segments and
+ * the current progress, so beginning again before a frame was drawn starts
+ * from where the segments really are. All buffers are allocated when a
+ * transition begins, never per frame.
+ */
+public class SegmentTransition {
+
+    /**
+     * Segments on screen when the transition began, starting at
+     * slot mFromFirst
+     */
+    private float[] mFrom = new float[0];
+    private int mFromFirst;
+    private int mFromCount;
+    private int mFromCategories;
+    private float mFromStroke;
+
+
+    /**
+     * Start of every target segment paired up from mFrom, and the
+     * interpolated segments handed out for drawing
+     */
+    private float[] mStart = new float[0];
+    private float[] mDrawn = new float[0];
+    private float mStartStroke;
+
+
+    private boolean mPending = false;
+    private boolean mRunning = false;
+
+
+    /**
+     * Progress of the transition, and the progress the
+     * start segments were taken at
+     */
+    private float mProgress = 1;
+    private float mStartProgress = 0;
+
+
+    /**
+     * Keeps the segments on screen as the start of a transition to the
+     * target they are paired up with next. Does nothing if a transition
+     * is already waiting for its target, what is on screen was kept then.
+     *
+     * @param lines current target segments
+     * @param first slot of the first segment in every category
+     * @param count segments per category
+     * @param categories number of categories
+     * @param stroke stroke width of the target segments
+     */
+    public void begin(float[] lines, int first, int count, int categories, float stroke) {
+        if (mPending) {
+            return;
+        }
+
+        keep(lines, first, count, categories, stroke);
+
+        mStartProgress = 0;
+        mProgress = 0;
+        mPending = true;
+    }
+
+
+    /**
+     * Keeps the segments on screen before the target of a running
+     * transition moves (new scale, scrolled). The transition carries
+     * on from them to the target paired up with next.
+     *
+     * @param lines current target segments
+     * @param first slot of the first segment in every category
+     * @param count segments per category
+     * @param categories number of categories
+     * @param stroke stroke width of the target segments
+     */
+    public void retarget(float[] lines, int first, int count, int categories, float stroke) {
+        if (!mRunning || mPending) {
+            return;
+        }
+
+        keep(lines, first, count, categories, stroke);
+
+        mStartProgress = mProgress;
+        mPending = true;
+    }
+
+
+    /**
+     * Pairs up the kept segments with the target by slot and category.
+     * Target segments that were not on screen grow from their start point.
+     *
+     * @param lines target segments
+     * @param first slot of the first segment in every category
+     * @param count segments per category
+     * @param categories number of categories
+     * @param stroke stroke width of the target segments
+     */
+    public void pairUp(float[] lines, int first, int count, int categories, float stroke) {
+        mPending = false;
+        mRunning = true;
+
+        int stride = count * 4;
+        int needed = stride * categories;
+        if (mStart.length < needed) {
+            mStart = new float[needed];
+            mDrawn = new float[needed];
+        }
+
+        int fromStride = mFromCount * 4;
+        for (int c = 0; c < categories; c++) {
+            for (int i = 0; i < count; i++) {
+                int pos = c * stride + i * 4;
+                int from = first + i - mFromFirst;
+
+                if (from >= 0 && from < mFromCount && c < mFromCategories) {
+                    System.arraycopy(mFrom, c * fromStride + from * 4, mStart, pos, 4);
+                } else {
+                    mStart[pos] = lines[pos];
+                    mStart[pos + 1] = lines[pos + 1];
+                    mStart[pos + 2] = lines[pos + 2];
+                    mStart[pos + 3] = lines[pos + 1];
+                }
+            }
+        }
+
+        mStartStroke = mFromCount > 0 ? mFromStroke : stroke;
+    }
+
+
+    /**
+     * Sets the progress of the transition
+     *
+     * @param progress 0 for the start, 1 to end the transition
+     */
+    public void setProgress(float progress) {
+        mProgress = progress;
+
+        if (progress >= 1) {
+            mPending = false;
+            mRunning = false;
+        }
+    }
+
+
+    /**
+     * @return true if a transition began and its target is not paired up yet
+     */
+    public boolean isPending() {
+        return mPending;
+    }
+
+
+    /**
+     * @return true if the segments on screen are between the start
+     *         and the target segments
+     */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+
+    /**
+     * Computes the segments on screen at the current progress
+     *
+     * @param lines target segments the transition was paired up with
+     * @param floats number of floats used in lines
+     * @return interpolated segments, only valid until the next call
+     */
+    public float[] interpolate(float[] lines, int floats) {
+        interpolate(lines, floats, mDrawn);
+        return mDrawn;
+    }
+
+
+    /**
+     * @param stroke stroke width of the target segments
+     * @return stroke width on screen at the current progress
+     */
+    public float interpolateStroke(float stroke) {
+        return mStartStroke + (stroke - mStartStroke) * fraction();
+    }
+
+
+    /**
+     * Copies the segments on screen into mFrom
+     */
+    private void keep(float[] lines, int first, int count, int categories, float stroke) {
+        int floats = count * 4 * categories;
+        if (mFrom.length < floats) {
+            mFrom = new float[floats];
+        }
+
+        if (mRunning) {
+            interpolate(lines, floats, mFrom);
+            mFromStroke = interpolateStroke(stroke);
+        } else {
+            System.arraycopy(lines, 0, mFrom, 0, floats);
+            mFromStroke = stroke;
+        }
+
+        mFromFirst = first;
+        mFromCount = count;
+        mFromCategories = categories;
+    }
+
+
+    private void interpolate(float[] lines, int floats, float[] out) {
+        float t = fraction();
+        for (int i = 0; i < floats; i++) {
+            out[i] = mStart[i] + (lines[i] - mStart[i]) * t;
+        }
+    }
+
+
+    /**
+     * Progress of the part of the transition left when the
+     * start segments were taken
+     */
+    private float fraction() {
+        return mStartProgress >= 1 ? 1 : (mProgress - mStartProgress) / (1 - mStartProgress);
+    }
+}
@@ -0,0 +1,183 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+/**
+ * Maps slot ids to their position in an axis' slot list.
+ *
+ * Ids handed out by the axis helpers are dense (0..n-1) so the common
+ * case is a direct array lookup. Arbitrary ids (for example ids supplied
+ * by callers) fall back to an open addressing hash table keyed on the
+ * primitive id. Both paths are O(1) and never box.
+ */
+public class SlotIndex {
+
+    /**
+     * Returned by {@link #indexOf(int)} when the id is not indexed
+     */
+    public static final int NOT_FOUND = -1;
+
+
+    /**
+     * Ids spanning at most this many times the slot count are
+     * stored in the direct lookup table
+     */
+    private static final int MAX_DENSE_SPREAD = 2;
+
+
+    /**
+     * Direct lookup table. mDense[id - mDenseBase] is the position of
+     * the slot or NOT_FOUND. null when the hash table is in use.
+     */
+    private int[] mDense = new int[0];
+    private int mDenseBase = 0;
+
+
+    /**
+     * Open addressing hash table used for sparse ids. mPositions holds
+     * NOT_FOUND for empty buckets.
+     */
+    private int[] mKeys;
+    private int[] mPositions;
+    private int mMask;
+
+
+    /**
+     * Number of indexed slots
+     */
+    private int mSize = 0;
+
+
+    /**
+     * Rebuilds the index for the given slots. Must be called whenever
+     * the slot list or its order changes.
+     *
+     * @param slots slots in axis order
+     * @throws IllegalArgumentException if two slots share an id
+     */
+    public void rebuild(List<Slot> slots) {
+        int count = slots.size();
+        mSize = count;
+
+        if (count == 0) {
+            mDense = new int[0];
+            mDenseBase = 0;
+            mKeys = null;
+            mPositions = null;
+            return;
+        }
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int id = slots.get(i).id;
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+
+        // long so that a spread of hashCode() ids can not overflow
+        long spread = (long) max - (long) min + 1;
+        if (spread <= (long) count * MAX_DENSE_SPREAD) {
+            buildDense(slots, min, (int) spread);
+        } else {
+            buildHashed(slots);
+        }
+    }
+
+
+    /**
+     * Gets the position of the slot with the given id
+     *
+     * @param slotId slot id
+     * @return position in the slot list or NOT_FOUND
+     */
+    public int indexOf(int slotId) {
+        if (mDense != null) {
+            // long so that ids far away from the base can not wrap around
+            long offset = (long) slotId - mDenseBase;
+            if (offset < 0 || offset >= mDense.length) {
+                return NOT_FOUND;
+            }
+
+            return mDense[(int) offset];
+        }
+
+        int bucket = mix(slotId) & mMask;
+        while (mPositions[bucket] != NOT_FOUND) {
+            if (mKeys[bucket] == slotId) {
+                return mPositions[bucket];
+            }
+
+            bucket = (bucket + 1) & mMask;
+        }
+
+        return NOT_FOUND;
+    }
+
+
+    /**
+     * @return number of indexed slots
+     */
+    public int size() {
+        return mSize;
+    }
+
+
+    private void buildDense(List<Slot> slots, int base, int spread) {
+        mKeys = null;
+        mPositions = null;
+        mDenseBase = base;
+        mDense = new int[spread];
+        Arrays.fill(mDense, NOT_FOUND);
+
+        for (int i = 0; i < slots.size(); i++) {
+            int offset = slots.get(i).id - base;
+            if (mDense[offset] != NOT_FOUND) {
+                throw new IllegalArgumentException("Duplicate slot id=" + slots.get(i).id);
+            }
+
+            mDense[offset] = i;
+        }
+    }
+
+
+    private void buildHashed(List<Slot> slots) {
+        mDense = null;
+
+        // keep the load factor at or below 0.5
+        int capacity = Integer.highestOneBit(Math.max(2, slots.size()) * 2 - 1) << 1;
+        mMask = capacity - 1;
+        mKeys = new int[capacity];
+        mPositions = new int[capacity];
+        Arrays.fill(mPositions, NOT_FOUND);
+
+        for (int i = 0; i < slots.size(); i++) {
+            int id = slots.get(i).id;
+            int bucket = mix(id) & mMask;
+
+            while (mPositions[bucket] != NOT_FOUND) {
+                if (mKeys[bucket] == id) {
+                    throw new IllegalArgumentException("Duplicate slot id=" + id);
+                }
+
+                bucket = (bucket + 1) & mMask;
+            }
+
+            mKeys[bucket] = id;
+            mPositions[bucket] = i;
+        }
+    }
+
+
+    /**
+     * Spreads the bits of an id so sequential or hashCode() ids
+     * do not cluster in the table
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,313 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import java.util.Arrays;
+
+/**
+ * Values of stacked bars, one segment per category and bar.
+ *
+ * Next to the values every bar keeps the cumulative offset of each of
+ * its segments from the base line in a single flat float array. The
+ * offsets of a bar are computed once when the bar is set, so drawing
+ * and hit testing read the bounds of a segment directly instead of
+ * summing the segments below it on every frame.
+ *
+ * Bar b has {@link #getOffsetStride()} offsets starting at
+ * b * getOffsetStride(): offset c is the bottom of segment c and offset
+ * c + 1 its top, so the last offset of a bar is its total. Offsets are
+ * floats as they are only used to place pixels, the exact totals are
+ * kept as longs.
+ *
+ * Segment values are expected to be positive. A negative segment points
+ * down over the segments below it.
+ */
+public class BarStacks {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    private final int mCategoryCount;
+
+
+    /**
+     * Segment values, bar major, mCategoryCount per bar
+     */
+    private long[] mValues;
+
+
+    /**
+     * Segment offsets, bar major, mCategoryCount + 1 per bar
+     */
+    private float[] mOffsets;
+
+
+    /**
+     * Total of every bar
+     */
+    private long[] mTotals;
+
+
+    private int mBarCount;
+
+
+    /**
+     * Makes empty stacks
+     *
+     * @param categoryCount number of segments of every bar, at least 1
+     */
+    public BarStacks(int categoryCount) {
+        this(new long[0], categoryCount);
+    }
+
+
+    /**
+     * Makes stacks from segment values
+     *
+     * @param values segment values, bar major, categoryCount per bar
+     * @param categoryCount number of segments of every bar, at least 1
+     */
+    public BarStacks(long[] values, int categoryCount) {
+        if (categoryCount < 1 || values.length % categoryCount != 0) {
+            throw new IllegalArgumentException(
+                    "Invalid stacks categoryCount=" + categoryCount + " values=" + values.length
+            );
+        }
+
+        int barCount = values.length / categoryCount;
+        int capacity = Math.max(INITIAL_CAPACITY, barCount);
+
+        mCategoryCount = categoryCount;
+        mValues = Arrays.copyOf(values, capacity * categoryCount);
+        mOffsets = new float[capacity * (categoryCount + 1)];
+        mTotals = new long[capacity];
+        mBarCount = barCount;
+
+        for (int i = 0; i < barCount; i++) {
+            stack(i);
+        }
+    }
+
+
+    /**
+     * Makes stacks with a single segment per bar
+     *
+     * @param totals value of every bar
+     * @return stacks
+     */
+    public static BarStacks of(long[] totals) {
+        return new BarStacks(totals, 1);
+    }
+
+
+    /**
+     * Computes the offsets and the total of a bar from its values
+     */
+    private void stack(int bar) {
+        int from = bar * mCategoryCount;
+        int offset = bar * (mCategoryCount + 1);
+
+        long sum = 0;
+        mOffsets[offset] = 0;
+        for (int c = 0; c < mCategoryCount; c++) {
+            sum += mValues[from + c];
+            mOffsets[offset + c + 1] = sum;
+        }
+
+        mTotals[bar] = sum;
+    }
+
+
+    /**
+     * Adds a bar after the existing ones. Categories without
+     * a value are empty.
+     *
+     * @param values segment values by category
+     */
+    public void addBar(long... values) {
+        if (mBarCount == mTotals.length) {
+            int capacity = mTotals.length * 2;
+            mValues = Arrays.copyOf(mValues, capacity * mCategoryCount);
+            mOffsets = Arrays.copyOf(mOffsets, capacity * (mCategoryCount + 1));
+            mTotals = Arrays.copyOf(mTotals, capacity);
+        }
+
+        mBarCount++;
+        setBar(mBarCount - 1, values);
+    }
+
+
+    /**
+     * Replaces the values of a bar. Categories without a value are empty.
+     *
+     * @param bar bar index
+     * @param values segment values by category
+     */
+    public void setBar(int bar, long... values) {
+        checkBar(bar);
+        if (values.length > mCategoryCount) {
+            throw new IllegalArgumentException(
+                    "Too many values=" + values.length + " categoryCount=" + mCategoryCount
+            );
+        }
+
+        int from = bar * mCategoryCount;
+        System.arraycopy(values, 0, mValues, from, values.length);
+        Arrays.fill(mValues, from + values.length, from + mCategoryCount, 0);
+
+        stack(bar);
+    }
+
+
+    /**
+     * Removes a bar, the bars after it move down by one index
+     *
+     * @param bar bar index
+     */
+    public void removeBar(int bar) {
+        checkBar(bar);
+
+        int after = mBarCount - bar - 1;
+        System.arraycopy(mValues, (bar + 1) * mCategoryCount, mValues, bar * mCategoryCount, after * mCategoryCount);
+        System.arraycopy(mOffsets, (bar + 1) * (mCategoryCount + 1), mOffsets, bar * (mCategoryCount + 1),
+                after * (mCategoryCount + 1));
+        System.arraycopy(mTotals, bar + 1, mTotals, bar, after);
+
+        mBarCount--;
+    }
+
+
+    /**
+     * Does a bar have the same values as a bar of other stacks
+     *
+     * @param bar bar index
+     * @param other other stacks
+     * @param otherBar bar index in the other stacks
+     * @return true if the category count and all values are the same
+     */
+    public boolean sameBar(int bar, BarStacks other, int otherBar) {
+        checkBar(bar);
+        other.checkBar(otherBar);
+
+        if (mCategoryCount != other.mCategoryCount) {
+            return false;
+        }
+
+        int from = bar * mCategoryCount;
+        int otherFrom = otherBar * mCategoryCount;
+        for (int c = 0; c < mCategoryCount; c++) {
+            if (mValues[from + c] != other.mValues[otherFrom + c]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Finds the segment of a bar covering a value, e.g. the one under
+     * a touch. Empty segments are skipped.
+     *
+     * @param bar bar index
+     * @param value value, in the units of the segment values
+     * @return category of the segment, -1 if the value is outside the bar
+     */
+    public int categoryAt(int bar, float value) {
+        checkBar(bar);
+
+        int offset = bar * (mCategoryCount + 1);
+        if (value < 0 || value > mOffsets[offset + mCategoryCount] || mTotals[bar] <= 0) {
+            return -1;
+        }
+
+        // last segment starting at or below the value
+        int lo = 0;
+        int hi = mCategoryCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (mOffsets[offset + mid] <= value) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        // the value is the top of the bar when the segments above are empty
+        while (lo > 0 && mOffsets[offset + lo + 1] == mOffsets[offset + lo]) {
+            lo--;
+        }
+
+        return lo;
+    }
+
+
+    /**
+     * @return copy of the stacks
+     */
+    public BarStacks copy() {
+        return new BarStacks(Arrays.copyOf(mValues, mBarCount * mCategoryCount), mCategoryCount);
+    }
+
+
+    private void checkBar(int bar) {
+        if (bar < 0 || bar >= mBarCount) {
+            throw new IllegalArgumentException("Invalid bar=" + bar + " count=" + mBarCount);
+        }
+    }
+
+
+    public int getBarCount() {
+        return mBarCount;
+    }
+
+    public int getCategoryCount() {
+        return mCategoryCount;
+    }
+
+    public long getValue(int bar, int category) {
+        return mValues[bar * mCategoryCount + category];
+    }
+
+    public long getTotal(int bar) {
+        return mTotals[bar];
+    }
+
+    /**
+     * @return offset of the bottom of a segment from the base line
+     */
+    public float getBottom(int bar, int category) {
+        return mOffsets[bar * (mCategoryCount + 1) + category];
+    }
+
+    /**
+     * @return offset of the top of a segment from the base line
+     */
+    public float getTop(int bar, int category) {
+        return mOffsets[bar * (mCategoryCount + 1) + category + 1];
+    }
+
+
+    /**
+     * @return number of offsets per bar, one more than the category count
+     */
+    public int getOffsetStride() {
+        return mCategoryCount + 1;
+    }
+
+
+    /**
+     * Direct access to the offsets. Only the first
+     * {@link #getBarCount()} bars are valid.
+     */
+    public float[] getOffsets() {
+        return mOffsets;
+    }
+
+
+    /**
+     * Direct access to the bar totals. Only the first
+     * {@link #getBarCount()} entries are valid.
+     */
+    public long[] getTotals() {
+        return mTotals;
+    }
+}
@@ -0,0 +1,171 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import java.util.Arrays;
+
+/**
+ * Column oriented data set for discrete charts.
+ *
+ * Instead of an object per data point the data is held in primitive
+ * arrays: the label id of every point (see {@link LabelDictionary}) and
+ * its value and category. Multi year data sets stay a handful of arrays
+ * no matter how many points they hold.
+ */
+public class ColumnarData {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    private final LabelDictionary mLabels;
+
+
+    /**
+     * Columns, only the first mSize entries are used
+     */
+    private int[] mLabelIds;
+    private long[] mValues;
+    private int[] mCategories;
+    private int mSize = 0;
+
+
+    /**
+     * @param labels dictionary the label ids refer to
+     */
+    public ColumnarData(LabelDictionary labels) {
+        this(labels, INITIAL_CAPACITY);
+    }
+
+
+    /**
+     * @param labels dictionary the label ids refer to
+     * @param capacity number of points to allocate space for
+     */
+    public ColumnarData(LabelDictionary labels, int capacity) {
+        mLabels = labels;
+        mLabelIds = new int[Math.max(1, capacity)];
+        mValues = new long[Math.max(1, capacity)];
+        mCategories = new int[Math.max(1, capacity)];
+    }
+
+
+    /**
+     * Appends a data point
+     *
+     * @param labelId id of the label in the dictionary
+     * @param value value
+     */
+    public void add(int labelId, long value) {
+        add(labelId, 0, value);
+    }
+
+
+    /**
+     * Appends a data point of a category, points with the same
+     * label are stacked in the order of their categories
+     *
+     * @param labelId id of the label in the dictionary
+     * @param category category, at least 0
+     * @param value value
+     */
+    public void add(int labelId, int category, long value) {
+        if (mSize == mLabelIds.length) {
+            int capacity = mLabelIds.length * 2;
+            mLabelIds = Arrays.copyOf(mLabelIds, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+            mCategories = Arrays.copyOf(mCategories, capacity);
+        }
+
+        mLabelIds[mSize] = labelId;
+        mValues[mSize] = value;
+        mCategories[mSize] = category;
+        mSize++;
+    }
+
+
+    /**
+     * Appends a data point, interning the label
+     *
+     * @param label label
+     * @param value value
+     */
+    public void add(String label, long value) {
+        add(mLabels.intern(label), value);
+    }
+
+
+    /**
+     * Appends a data point of a category, interning the label
+     *
+     * @param label label
+     * @param category category, at least 0
+     * @param value value
+     */
+    public void add(String label, int category, long value) {
+        add(mLabels.intern(label), category, value);
+    }
+
+
+    /**
+     * @return copy of this data set sharing the same dictionary
+     */
+    public ColumnarData copy() {
+        ColumnarData copy = new ColumnarData(mLabels, mSize);
+        System.arraycopy(mLabelIds, 0, copy.mLabelIds, 0, mSize);
+        System.arraycopy(mValues, 0, copy.mValues, 0, mSize);
+        System.arraycopy(mCategories, 0, copy.mCategories, 0, mSize);
+        copy.mSize = mSize;
+
+        return copy;
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getLabelId(int index) {
+        return mLabelIds[index];
+    }
+
+    public String getLabel(int index) {
+        return mLabels.get(mLabelIds[index]);
+    }
+
+    public long getValue(int index) {
+        return mValues[index];
+    }
+
+    public int getCategory(int index) {
+        return mCategories[index];
+    }
+
+    public LabelDictionary getLabels() {
+        return mLabels;
+    }
+
+
+    /**
+     * Direct access to the label id column. Only the
+     * first {@link #size()} entries are valid.
+     */
+    public int[] getLabelIds() {
+        return mLabelIds;
+    }
+
+
+    /**
+     * Direct access to the value column. Only the
+     * first {@link #size()} entries are valid.
+     */
+    public long[] getValues() {
+        return mValues;
+    }
+
+
+    /**
+     * Direct access to the category column. Only the
+     * first {@link #size()} entries are valid.
+     */
+    public int[] getCategories() {
+        return mCategories;
+    }
+}
@@ -0,0 +1,81 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps labels to dense ids (0..n-1) so data sets can refer to labels
+ * by int instead of holding a String per data point.
+ *
+ * A dictionary can be shared between data sets. Ids are never reused
+ * or reassigned. Interning must happen on one thread, labels can be
+ * read from any thread.
+ */
+public class LabelDictionary {
+
+    private final Map<String, Integer> mIds = new HashMap<>();
+
+
+    /**
+     * Labels by id. Replaced (never modified in place) when it grows
+     * so readers on other threads always see a consistent array.
+     */
+    private volatile String[] mLabels = new String[16];
+    private volatile int mSize = 0;
+
+
+    /**
+     * Gets the id of a label, adding the label if it is new
+     *
+     * @param label label
+     * @return label id
+     */
+    public int intern(String label) {
+        if (label == null) {
+            throw new IllegalArgumentException("Label must not be null");
+        }
+
+        Integer id = mIds.get(label);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = mSize;
+        String[] labels = mLabels;
+        if (newId == labels.length) {
+            labels = Arrays.copyOf(labels, labels.length * 2);
+        }
+
+        labels[newId] = label;
+        mLabels = labels;
+        mIds.put(label, newId);
+        mSize = newId + 1;
+
+        return newId;
+    }
+
+
+    /**
+     * @param id label id
+     * @return label with the given id
+     */
+    public String get(int id) {
+        // intern publishes the array before the size, so an array read
+        // after the size always holds every id below it
+        int size = mSize;
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No label with id=" + id);
+        }
+
+        return mLabels[id];
+    }
+
+
+    /**
+     * @return number of labels, all ids are below this
+     */
+    public int size() {
+        return mSize;
+    }
+}
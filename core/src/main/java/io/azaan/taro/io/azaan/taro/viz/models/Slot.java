@@ -34,7 +34,8 @@ public class Slot {
     /**
      * Constructor
      * 
-     * @param id unique id for every slot. ID must be unique within axis
+     * @param id unique id for every slot. ID must be unique within axis,
+     *           dense ids (0..n-1) give the fastest lookups
      * @param label label to be displayed, null otherwise.
      * @param hasMinorTick does the slot have a minor tick
      * @param hasMajorTick is the slot associated with a major tick
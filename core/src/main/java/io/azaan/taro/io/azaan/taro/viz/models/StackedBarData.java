@@ -0,0 +1,36 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+/**
+ * Data model for stacked bar charts. Values with the same
+ * label are stacked in the order of their categories.
+ */
+public class StackedBarData implements XLabel, YValue, YCategory {
+    public final int value;
+    public final String label;
+    public final int category;
+
+    public StackedBarData(String label, int value) {
+        this(label, 0, value);
+    }
+
+    public StackedBarData(String label, int category, int value) {
+        this.value = value;
+        this.label = label;
+        this.category = category;
+    }
+
+    @Override
+    public String getXLabel() {
+        return label;
+    }
+
+    @Override
+    public float getYValue() {
+        return (float) value;
+    }
+
+    @Override
+    public int getCategory() {
+        return category;
+    }
+}
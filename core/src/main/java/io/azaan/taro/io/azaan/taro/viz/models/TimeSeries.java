@@ -0,0 +1,128 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import java.util.Arrays;
+
+/**
+ * Column oriented time series for line charts.
+ *
+ * Holds the timestamp and value of every point in two primitive arrays,
+ * in ascending order of time, so series of tens of thousands of points
+ * stay two arrays and points can be found with a binary search.
+ */
+public class TimeSeries {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    /**
+     * Columns, only the first mSize entries are used
+     */
+    private long[] mTimes;
+    private long[] mValues;
+    private int mSize = 0;
+
+
+    public TimeSeries() {
+        this(INITIAL_CAPACITY);
+    }
+
+
+    /**
+     * @param capacity number of points to allocate space for
+     */
+    public TimeSeries(int capacity) {
+        mTimes = new long[Math.max(1, capacity)];
+        mValues = new long[Math.max(1, capacity)];
+    }
+
+
+    /**
+     * Appends a point. Points must be added in order of time.
+     *
+     * @param time milliseconds since epoch, not before the last point
+     * @param value value
+     */
+    public void add(long time, long value) {
+        if (mSize > 0 && time < mTimes[mSize - 1]) {
+            throw new IllegalArgumentException(
+                    "Points must be added in order of time time=" + time + " last=" + mTimes[mSize - 1]
+            );
+        }
+
+        if (mSize == mTimes.length) {
+            int capacity = mTimes.length * 2;
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+        }
+
+        mTimes[mSize] = time;
+        mValues[mSize] = value;
+        mSize++;
+    }
+
+
+    /**
+     * Finds the first point at or after a time
+     *
+     * @param time milliseconds since epoch
+     * @return index of the point, {@link #size()} if all points are before the time
+     */
+    public int indexAtOrAfter(long time) {
+        int lo = 0;
+        int hi = mSize;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mTimes[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+
+    /**
+     * @return copy of this series
+     */
+    public TimeSeries copy() {
+        TimeSeries copy = new TimeSeries(mSize);
+        System.arraycopy(mTimes, 0, copy.mTimes, 0, mSize);
+        System.arraycopy(mValues, 0, copy.mValues, 0, mSize);
+        copy.mSize = mSize;
+
+        return copy;
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    public long getValue(int index) {
+        return mValues[index];
+    }
+
+
+    /**
+     * Direct access to the time column. Only the
+     * first {@link #size()} entries are valid.
+     */
+    public long[] getTimes() {
+        return mTimes;
+    }
+
+
+    /**
+     * Direct access to the value column. Only the
+     * first {@link #size()} entries are valid.
+     */
+    public long[] getValues() {
+        return mValues;
+    }
+}
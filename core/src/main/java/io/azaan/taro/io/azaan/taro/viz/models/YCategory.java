@@ -0,0 +1,9 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+/**
+ * Should be implemented by data models whose y value
+ * is one segment of a stacked bar.
+ */
+public interface YCategory {
+    int getCategory();
+}
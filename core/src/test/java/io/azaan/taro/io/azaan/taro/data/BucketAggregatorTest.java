@@ -0,0 +1,134 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TimeZone;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+import static org.junit.Assert.*;
+
+public class BucketAggregatorTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static long millis(int year, int month, int day) {
+        return CalendarMath.daysFromCivil(year, month, day) * CalendarMath.MILLIS_PER_DAY;
+    }
+
+    @Test
+    public void calendarMath_roundTrips() throws Exception {
+        for (long day = -800000; day < 800000; day += 37) {
+            int date = CalendarMath.civilFromDays(day);
+            assertEquals(day, CalendarMath.daysFromCivil(
+                    CalendarMath.year(date), CalendarMath.month(date), CalendarMath.dayOfMonth(date)));
+        }
+
+        assertEquals(0, CalendarMath.daysFromCivil(1970, 1, 1));
+        assertEquals(17058, CalendarMath.daysFromCivil(2016, 9, 14));
+    }
+
+    @Test
+    public void calendarMath_startOfDay() throws Exception {
+        long day = CalendarMath.daysFromCivil(2016, 9, 14);
+        assertEquals(day * CalendarMath.MILLIS_PER_DAY, CalendarMath.startOfDay(day, UTC));
+
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        assertEquals(day * CalendarMath.MILLIS_PER_DAY - 2 * 3600000, CalendarMath.startOfDay(day, berlin));
+
+        // daylight saving started at midnight, 2018-11-04 began at 01:00 local, 03:00 utc
+        TimeZone saoPaulo = TimeZone.getTimeZone("America/Sao_Paulo");
+        long dstDay = CalendarMath.daysFromCivil(2018, 11, 4);
+        assertEquals(dstDay * CalendarMath.MILLIS_PER_DAY + 3 * 3600000, CalendarMath.startOfDay(dstDay, saoPaulo));
+    }
+
+    @Test
+    public void getTotalBefore_sumsEarlierBuckets() throws Exception {
+        BucketAggregator aggregator = new BucketAggregator(Granularity.DAY, UTC);
+        aggregator.add(millis(2016, 9, 14), 5);
+        aggregator.add(millis(2016, 9, 12), 100);
+        aggregator.add(millis(2016, 9, 13), 20);
+
+        long day = CalendarMath.daysFromCivil(2016, 9, 14);
+        assertEquals(120, aggregator.getTotalBefore(day));
+        assertEquals(0, aggregator.getTotalBefore(day - 2));
+        assertEquals(125, aggregator.getTotalBefore(day + 1));
+    }
+
+    @Test
+    public void granularity_labels() throws Exception {
+        long day = CalendarMath.daysFromCivil(2016, 9, 14);
+
+        assertEquals("2016-09-14", Granularity.DAY.label(Granularity.DAY.bucketOfDay(day)));
+        // 2016-09-14 was a Wednesday, its week starts on Monday the 12th
+        assertEquals("2016-09-12", Granularity.WEEK.label(Granularity.WEEK.bucketOfDay(day)));
+        assertEquals("2016-09", Granularity.MONTH.label(Granularity.MONTH.bucketOfDay(day)));
+        assertEquals("2016", Granularity.YEAR.label(Granularity.YEAR.bucketOfDay(day)));
+    }
+
+    @Test
+    public void add_sumsPerBucket() throws Exception {
+        BucketAggregator aggregator = new BucketAggregator(Granularity.MONTH, UTC);
+        aggregator.add(millis(2016, 9, 1), 100);
+        aggregator.add(millis(2016, 9, 30) + 1000, 50);
+        aggregator.add(millis(2016, 10, 1), 7);
+
+        assertEquals(2, aggregator.size());
+        assertEquals(150, aggregator.getSum(2016 * 12L + 8));
+        assertEquals(2, aggregator.getCount(2016 * 12L + 8));
+        assertEquals(7, aggregator.getSum(2016 * 12L + 9));
+    }
+
+    @Test
+    public void toStackedBarData_chronologicalOrder() throws Exception {
+        BucketAggregator aggregator = new BucketAggregator(Granularity.DAY, UTC);
+        for (int day = 40; day > 0; day--) {
+            aggregator.add(millis(2016, 1, 1) + day * CalendarMath.MILLIS_PER_DAY, day);
+        }
+        aggregator.add(millis(2016, 1, 2), 1);
+
+        List<StackedBarData> data = aggregator.toStackedBarData();
+
+        assertEquals(40, data.size());
+        assertEquals("2016-01-02", data.get(0).label);
+        assertEquals(2, data.get(0).value);
+        assertEquals("2016-02-10", data.get(39).label);
+        assertEquals(40, data.get(39).value);
+    }
+
+    @Test
+    public void granularity_labelsOutsideFourDigitYears() throws Exception {
+        assertEquals("-0001-12-31", Granularity.DAY.label(CalendarMath.daysFromCivil(-1, 12, 31)));
+        assertEquals("-0044-03", Granularity.MONTH.label(-44 * 12L + 2));
+        assertEquals("0000", Granularity.YEAR.label(0));
+        assertEquals("12345", Granularity.YEAR.label(12345));
+    }
+
+    @Test
+    public void toStackedBarData_fillsEmptyBuckets() throws Exception {
+        BucketAggregator aggregator = new BucketAggregator(Granularity.MONTH, UTC);
+        aggregator.add(millis(2016, 11, 3), 5);
+        aggregator.add(millis(2016, 8, 20), 3);
+
+        List<StackedBarData> data = aggregator.toStackedBarData();
+
+        assertEquals(4, data.size());
+        assertEquals("2016-08", data.get(0).label);
+        assertEquals(3, data.get(0).value);
+        assertEquals("2016-09", data.get(1).label);
+        assertEquals(0, data.get(1).value);
+        assertEquals(0, data.get(2).value);
+        assertEquals(5, data.get(3).value);
+
+        ColumnarData window = aggregator.toColumnarData(2016 * 12L + 5, 2016 * 12L + 7, new LabelDictionary());
+        assertEquals(3, window.size());
+        assertEquals(0, window.getValue(0));
+        assertEquals(0, window.getValue(1));
+        assertEquals(3, window.getValue(2));
+
+        assertEquals(0, new BucketAggregator(Granularity.DAY, UTC).toStackedBarData().size());
+    }
+}
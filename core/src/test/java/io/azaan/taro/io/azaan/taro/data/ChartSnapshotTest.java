@@ -0,0 +1,97 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ChartSnapshotTest {
+
+    @Test
+    public void writeRead_roundTrips() throws Exception {
+        ChartSnapshot snapshot = new ChartSnapshot(
+                new String[]{"Mon", "Tue", "Mi\u00e9"},
+                new long[]{100, -5, Long.MAX_VALUE}
+        );
+
+        File file = File.createTempFile("chart", ".snapshot");
+        try {
+            snapshot.write(file);
+            ChartSnapshot read = ChartSnapshot.read(file);
+
+            assertArrayEquals(snapshot.getLabels(), read.getLabels());
+            assertArrayEquals(snapshot.getValues(), read.getValues());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void write_concurrentWritesLeaveOneWholeSnapshot() throws Exception {
+        final File dir = File.createTempFile("snapshots", "");
+        dir.delete();
+        dir.mkdir();
+        final File file = new File(dir, "chart.snapshot");
+
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            final long[] values = new long[1000];
+            final String[] labels = new String[values.length];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = i;
+                labels[j] = "bar " + j;
+            }
+
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int k = 0; k < 20; k++) {
+                            new ChartSnapshot(labels, values).write(file);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            writers[i].start();
+        }
+
+        try {
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            long[] values = ChartSnapshot.read(file).getValues();
+            assertEquals(1000, values.length);
+            for (long value : values) {
+                assertEquals(values[0], value);
+            }
+
+            // no temporary files are left behind
+            assertEquals(1, dir.list().length);
+        } finally {
+            for (File child : dir.listFiles()) {
+                child.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws Exception {
+        File file = File.createTempFile("chart", ".snapshot");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+            out.close();
+
+            ChartSnapshot.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
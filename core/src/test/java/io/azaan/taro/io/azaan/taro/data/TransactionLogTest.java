@@ -0,0 +1,157 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TransactionLogTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private File mFile;
+    private File mIndexFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("transactions", ".log");
+        mFile.delete();
+        mIndexFile = new File(mFile.getPath() + ".idx");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mFile.delete();
+        mIndexFile.delete();
+    }
+
+    /**
+     * Sums the amounts of a range by scanning and by checking every record
+     */
+    private static long[] sumRange(TransactionLog log, long from, long to, int category) {
+        final long[] sum = new long[2];
+        log.scan(from, to, category, new TransactionLog.Visitor() {
+            @Override
+            public void onTransaction(long timestamp, long amount, int category) {
+                sum[0] += amount;
+            }
+        });
+
+        for (int i = 0; i < log.size(); i++) {
+            final long[] record = new long[3];
+            log.get(i, new TransactionLog.Visitor() {
+                @Override
+                public void onTransaction(long timestamp, long amount, int category) {
+                    record[0] = timestamp;
+                    record[1] = amount;
+                    record[2] = category;
+                }
+            });
+
+            boolean inCategory = category == TransactionLog.ALL_CATEGORIES || record[2] == category;
+            if (record[0] >= from && record[0] < to && inCategory)
+                sum[1] += record[1];
+        }
+
+        return sum;
+    }
+
+    private static void fill(TransactionLog log, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            log.append(i * HOUR, i + 1, i % 3);
+        }
+    }
+
+    @Test
+    public void scan_matchesFullScan() throws Exception {
+        TransactionLog log = TransactionLog.open(mFile);
+        try {
+            fill(log, 1000);
+
+            // backdated transaction in the last block
+            log.append(10 * HOUR, 5000, 1);
+
+            long[][] ranges = {{0, 1}, {10 * HOUR, 11 * HOUR}, {200 * HOUR, 650 * HOUR}, {0, Long.MAX_VALUE}};
+            for (long[] range : ranges) {
+                long[] sum = sumRange(log, range[0], range[1], TransactionLog.ALL_CATEGORIES);
+                assertEquals(sum[1], sum[0]);
+
+                sum = sumRange(log, range[0], range[1], 1);
+                assertEquals(sum[1], sum[0]);
+            }
+
+            assertEquals(11 + 5000, sumRange(log, 10 * HOUR, 11 * HOUR, TransactionLog.ALL_CATEGORIES)[0]);
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test
+    public void reopen_keepsRecordsAndIndex() throws Exception {
+        TransactionLog log = TransactionLog.open(mFile);
+        fill(log, TransactionLog.BLOCK_RECORDS * 3 + 7);
+        log.close();
+
+        log = TransactionLog.open(mFile);
+        try {
+            assertEquals(TransactionLog.BLOCK_RECORDS * 3 + 7, log.size());
+
+            long[] sum = sumRange(log, 100 * HOUR, 500 * HOUR, TransactionLog.ALL_CATEGORIES);
+            assertEquals(sum[1], sum[0]);
+
+            log.append(1, 42, 0);
+            assertEquals(1 + 42, sumRange(log, 0, HOUR, TransactionLog.ALL_CATEGORIES)[0]);
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test
+    public void reopen_rebuildsMissingIndex() throws Exception {
+        TransactionLog log = TransactionLog.open(mFile);
+        fill(log, TransactionLog.BLOCK_RECORDS * 4);
+        log.close();
+
+        assertTrue(mIndexFile.delete());
+
+        log = TransactionLog.open(mFile);
+        try {
+            long[] sum = sumRange(log, 300 * HOUR, 700 * HOUR, TransactionLog.ALL_CATEGORIES);
+            assertEquals(sum[1], sum[0]);
+            assertEquals(4 * 16, mIndexFile.length());
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test
+    public void aggregate_streamsIntoBuckets() throws Exception {
+        TransactionLog log = TransactionLog.open(mFile);
+        try {
+            fill(log, 24 * 3);
+
+            BucketAggregator aggregator = new BucketAggregator(Granularity.DAY, TimeZone.getTimeZone("UTC"));
+            log.aggregate(24 * HOUR, 72 * HOUR, TransactionLog.ALL_CATEGORIES, aggregator);
+
+            assertEquals(2, aggregator.size());
+            // amounts are i + 1 for hour i
+            assertEquals((25 + 48) * 24 / 2, aggregator.getSum(1));
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws Exception {
+        java.io.FileOutputStream out = new java.io.FileOutputStream(mFile);
+        out.write(new byte[64]);
+        out.close();
+
+        TransactionLog.open(mFile);
+    }
+}
@@ -0,0 +1,165 @@
+package io.azaan.taro.io.azaan.taro.data;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+import static org.junit.Assert.*;
+
+public class TransactionRollupsTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static long millis(int year, int month, int day) {
+        return CalendarMath.daysFromCivil(year, month, day) * CalendarMath.MILLIS_PER_DAY;
+    }
+
+    @Test
+    public void attach_matchesAggregatingTheLog() throws Exception {
+        File file = File.createTempFile("transactions", ".log");
+        file.delete();
+
+        TransactionLog log = TransactionLog.open(file);
+        try {
+            Random random = new Random(42);
+            long start = millis(2015, 11, 20);
+            long hour = 60 * 60 * 1000;
+
+            for (int i = 0; i < 2000; i++) {
+                log.append(start + i * 3 * hour, random.nextInt(10000), random.nextInt(3));
+            }
+
+            TransactionRollups rollups = TransactionRollups.attach(log, UTC, TransactionRollups.ALL_CATEGORIES);
+
+            // appended after attaching, and backdated
+            for (int i = 0; i < 500; i++) {
+                log.append(start + random.nextInt(6000) * hour, random.nextInt(10000), random.nextInt(3));
+            }
+
+            for (Granularity granularity : Granularity.values()) {
+                BucketAggregator expected = new BucketAggregator(granularity, UTC);
+                log.aggregate(Long.MIN_VALUE, Long.MAX_VALUE, TransactionLog.ALL_CATEGORIES, expected);
+
+                long[] buckets = new long[expected.size()];
+                expected.getBuckets(buckets);
+                for (long bucket : buckets) {
+                    assertEquals(expected.getSum(bucket), rollups.getSum(granularity, bucket));
+                    assertEquals(expected.getCount(bucket), rollups.getCount(granularity, bucket));
+                }
+            }
+        } finally {
+            log.close();
+            file.delete();
+            new File(file.getPath() + ".idx").delete();
+        }
+    }
+
+    @Test
+    public void category_onlySumsThatCategory() throws Exception {
+        TransactionRollups rollups = new TransactionRollups(UTC, 2);
+        rollups.onTransaction(millis(2016, 3, 1), 100, 2);
+        rollups.onTransaction(millis(2016, 3, 2), 50, 1);
+
+        assertEquals(100, rollups.getSum(Granularity.MONTH, 2016 * 12 + 2));
+    }
+
+    @Test
+    public void window_includesEmptyBuckets() throws Exception {
+        TransactionRollups rollups = new TransactionRollups(UTC, TransactionRollups.ALL_CATEGORIES);
+        rollups.onTransaction(millis(2016, 1, 15), 100, 0);
+        rollups.onTransaction(millis(2016, 3, 1), 250, 0);
+        rollups.onTransaction(millis(2016, 3, 31), 50, 0);
+
+        long from = rollups.bucketOf(Granularity.MONTH, millis(2016, 1, 1));
+        long to = rollups.bucketOf(Granularity.MONTH, millis(2016, 4, 1));
+
+        ColumnarData data = rollups.toColumnarData(Granularity.MONTH, from, to, new LabelDictionary());
+        assertEquals(4, data.size());
+        assertArrayEquals(new long[]{100, 0, 300, 0}, java.util.Arrays.copyOf(data.getValues(), 4));
+
+        List<StackedBarData> bars = rollups.toStackedBarData(Granularity.MONTH, from, to);
+        assertEquals("2016-03", bars.get(2).getXLabel());
+        assertEquals(300, bars.get(2).getYValue(), 0);
+    }
+
+    @Test
+    public void attachWithFile_onlyReadsTheTail() throws Exception {
+        File file = File.createTempFile("transactions", ".log");
+        File saved = File.createTempFile("transactions", ".rollups");
+        file.delete();
+        saved.delete();
+
+        TransactionLog log = TransactionLog.open(file);
+        try {
+            long day = millis(2016, 5, 10);
+            for (int i = 0; i < 300; i++) {
+                log.append(day, 1, 0);
+            }
+
+            // made up rollups claiming to include the 300 transactions
+            TransactionRollups made = new TransactionRollups(UTC, TransactionRollups.ALL_CATEGORIES);
+            for (int i = 0; i < 300; i++) {
+                made.onTransaction(day, 7, 0);
+            }
+            made.write(saved);
+
+            log.append(day, 1000, 0);
+
+            TransactionRollups rollups = TransactionRollups.attach(log, saved, UTC, TransactionRollups.ALL_CATEGORIES);
+            long bucket = rollups.bucketOf(Granularity.DAY, day);
+            assertEquals(300 * 7 + 1000, rollups.getSum(Granularity.DAY, bucket));
+            assertEquals(301, rollups.getCount(Granularity.YEAR, 2016));
+            assertEquals(301, rollups.getLogPosition());
+            assertFalse(rollups.isSaved());
+
+            // saved for another category, built from the log
+            TransactionRollups other = TransactionRollups.attach(log, saved, UTC, 0);
+            assertEquals(300 + 1000, other.getSum(Granularity.DAY, bucket));
+
+            // kept in sync after attaching and saved again
+            log.append(day, 5, 0);
+            other.write(saved);
+
+            assertTrue(other.isSaved());
+
+            TransactionRollups read = TransactionRollups.read(saved);
+            assertEquals(302, read.getLogPosition());
+            assertEquals(300 + 1005, read.getSum(Granularity.MONTH, 2016 * 12 + 4));
+            assertEquals(302, read.getCount(Granularity.WEEK, rollups.bucketOf(Granularity.WEEK, day)));
+        } finally {
+            log.close();
+            file.delete();
+            saved.delete();
+            new File(file.getPath() + ".idx").delete();
+        }
+    }
+
+    @Test
+    public void attachWithFile_rebuildsFromUnreadableFile() throws Exception {
+        File file = File.createTempFile("transactions", ".log");
+        File saved = File.createTempFile("transactions", ".rollups");
+        file.delete();
+
+        TransactionLog log = TransactionLog.open(file);
+        try {
+            log.append(millis(2016, 5, 10), 42, 1);
+
+            // saved is an empty file
+            TransactionRollups rollups = TransactionRollups.attach(log, saved, UTC, TransactionRollups.ALL_CATEGORIES);
+            assertEquals(42, rollups.getSum(Granularity.YEAR, 2016));
+            assertFalse(saved.exists());
+        } finally {
+            log.close();
+            file.delete();
+            saved.delete();
+            new File(file.getPath() + ".idx").delete();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.models.BarStacks;
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+import static org.junit.Assert.*;
+
+public class AxisHelpersTest {
+
+    private static List<StackedBarData> data(String... labels) {
+        List<StackedBarData> out = new ArrayList<>();
+        for (String label : labels) {
+            out.add(new StackedBarData(label, 1));
+        }
+        return out;
+    }
+
+    @Test
+    public void uniqSortLabels_dedupesAndSorts() throws Exception {
+        List<String> labels = AxisHelpers.uniqSortLabels(
+                data("b", "a", "b", "b", "c", "a"),
+                AxisHelpers.Sort.ASC,
+                AxisHelpers.Collation.LOCALE
+        );
+
+        assertEquals(Arrays.asList("a", "b", "c"), labels);
+    }
+
+    @Test
+    public void uniqSortLabels_descending() throws Exception {
+        List<String> labels = AxisHelpers.uniqSortLabels(
+                data("b", "a", "c"),
+                AxisHelpers.Sort.DESC,
+                AxisHelpers.Collation.LOCALE
+        );
+
+        assertEquals(Arrays.asList("c", "b", "a"), labels);
+    }
+
+    @Test
+    public void uniqSortLabels_ordinalSortsByCodeUnit() throws Exception {
+        List<String> labels = AxisHelpers.uniqSortLabels(
+                data("b", "B", "a"),
+                AxisHelpers.Sort.ASC,
+                AxisHelpers.Collation.ORDINAL
+        );
+
+        assertEquals(Arrays.asList("B", "a", "b"), labels);
+    }
+
+    @Test
+    public void makeDiscreteXSlots_denseIds() throws Exception {
+        List<Slot> slots = AxisHelpers.makeDiscreteXSlots(data("Tue", "Mon", "Tue"));
+
+        assertEquals(2, slots.size());
+        assertEquals(0, slots.get(0).id);
+        assertEquals("Mon", slots.get(0).label);
+        assertEquals(1, slots.get(1).id);
+        assertEquals("Tue", slots.get(1).label);
+    }
+
+    @Test
+    public void makeDiscreteXSlots_columnar() throws Exception {
+        LabelDictionary dictionary = new LabelDictionary();
+        dictionary.intern("unused");
+
+        ColumnarData data = new ColumnarData(dictionary);
+        data.add("Tue", 1);
+        data.add("Mon", 2);
+        data.add("Tue", 3);
+
+        List<Slot> slots = AxisHelpers.makeDiscreteXSlots(data);
+
+        assertEquals(2, slots.size());
+        assertEquals("Mon", slots.get(0).label);
+        assertEquals("Tue", slots.get(1).label);
+    }
+
+    @Test
+    public void niceTicks_coverMax() throws Exception {
+        assertArrayEquals(new long[]{0, 100, 200, 300, 400}, AxisHelpers.niceTicks(329, 5));
+        assertArrayEquals(new long[]{0, 100, 200, 300, 400}, AxisHelpers.niceTicks(400, 5));
+        assertArrayEquals(new long[]{0, 5000, 10000, 15000}, AxisHelpers.niceTicks(14320, 5));
+        assertArrayEquals(new long[]{0, 1}, AxisHelpers.niceTicks(0, 5));
+    }
+
+    @Test
+    public void niceTicks_intoBuffer() throws Exception {
+        long[] out = new long[5];
+        assertEquals(4, AxisHelpers.niceTicks(14320, 5, out));
+        assertArrayEquals(new long[]{0, 5000, 10000, 15000}, Arrays.copyOf(out, 4));
+        assertEquals(5, AxisHelpers.niceTicks(400, 5, out));
+        assertArrayEquals(new long[]{0, 100, 200, 300, 400}, out);
+    }
+
+    @Test
+    public void stackByXSlot_segmentPerCategory() throws Exception {
+        List<StackedBarData> data = new ArrayList<>();
+        data.add(new StackedBarData("Tue", 2, 5));
+        data.add(new StackedBarData("Mon", 0, 1));
+        data.add(new StackedBarData("Tue", 0, 3));
+        data.add(new StackedBarData("Tue", 2, 1));
+
+        List<Slot> slots = AxisHelpers.makeDiscreteXSlots(data);
+        BarStacks stacks = AxisHelpers.stackByXSlot(data, slots);
+
+        assertEquals(2, stacks.getBarCount());
+        assertEquals(3, stacks.getCategoryCount());
+        assertEquals(1, stacks.getTotal(0));
+        assertEquals(3, stacks.getValue(1, 0));
+        assertEquals(0, stacks.getValue(1, 1));
+        assertEquals(6, stacks.getValue(1, 2));
+        assertEquals(9, stacks.getTotal(1));
+    }
+
+    @Test
+    public void stackByXSlot_columnar() throws Exception {
+        ColumnarData data = new ColumnarData(new LabelDictionary());
+        data.add("Tue", 1, 4);
+        data.add("Mon", 2);
+        data.add("Tue", 1);
+
+        List<Slot> slots = AxisHelpers.makeDiscreteXSlots(data);
+        BarStacks stacks = AxisHelpers.stackByXSlot(data, slots);
+
+        assertEquals(2, stacks.getCategoryCount());
+        assertEquals(2, stacks.getTotal(0));
+        assertEquals(1, stacks.getValue(1, 0));
+        assertEquals(4, stacks.getValue(1, 1));
+        assertEquals(5f, stacks.getTop(1, 1), 0f);
+    }
+
+    @Test
+    public void niceTicks_rangeBelowZero() throws Exception {
+        assertArrayEquals(new long[]{-200, -100, 0, 100, 200, 300, 400}, AxisHelpers.niceTicks(-150, 329, 7));
+        assertArrayEquals(new long[]{-2000, 0, 2000, 4000}, AxisHelpers.niceTicks(-1500, 3290, 5));
+        assertArrayEquals(new long[]{1000, 1200, 1400, 1600}, AxisHelpers.niceTicks(1050, 1530, 5));
+        assertArrayEquals(new long[]{7, 8}, AxisHelpers.niceTicks(7, 7, 5));
+        assertArrayEquals(AxisHelpers.niceTicks(14320, 5), AxisHelpers.niceTicks(0, 14320, 5));
+    }
+}
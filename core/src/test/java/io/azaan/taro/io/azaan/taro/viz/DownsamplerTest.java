@@ -0,0 +1,68 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DownsamplerTest {
+
+    private static long[] range(int count) {
+        long[] out = new long[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = 1500000000000L + i * 1000L;
+        }
+        return out;
+    }
+
+    @Test
+    public void lttb_keepsEndsAndReduces() throws Exception {
+        long[] xs = range(1000);
+        long[] ys = new long[1000];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = i % 7;
+        }
+
+        int[] out = new int[100];
+        int count = Downsampler.lttb(xs, ys, 0, xs.length, 100, out);
+
+        assertEquals(100, count);
+        assertEquals(0, out[0]);
+        assertEquals(999, out[99]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(out[i] > out[i - 1]);
+        }
+    }
+
+    @Test
+    public void lttb_keepsSpikes() throws Exception {
+        long[] xs = range(10000);
+        long[] ys = new long[10000];
+        ys[1234] = 1000000;
+        ys[8765] = -1000000;
+
+        int[] out = new int[50];
+        int count = Downsampler.lttb(xs, ys, 0, xs.length, 50, out);
+
+        boolean peak = false;
+        boolean dip = false;
+        for (int i = 0; i < count; i++) {
+            peak |= out[i] == 1234;
+            dip |= out[i] == 8765;
+        }
+
+        assertTrue(peak);
+        assertTrue(dip);
+    }
+
+    @Test
+    public void lttb_subRangeBelowThreshold() throws Exception {
+        long[] xs = range(100);
+
+        int[] out = new int[10];
+        int count = Downsampler.lttb(xs, new long[100], 40, 45, 10, out);
+
+        assertEquals(5, count);
+        assertEquals(40, out[0]);
+        assertEquals(44, out[4]);
+    }
+}
@@ -0,0 +1,67 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RangeMaxTreeTest {
+
+    @Test
+    public void max_matchesScan() throws Exception {
+        Random random = new Random(42);
+        long[] values = new long[37];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000) - 500;
+        }
+
+        RangeMaxTree tree = new RangeMaxTree(values, values.length);
+
+        for (int from = 0; from < values.length; from++) {
+            for (int to = from; to < values.length; to++) {
+                long expected = Long.MIN_VALUE;
+                for (int i = from; i <= to; i++) {
+                    expected = Math.max(expected, values[i]);
+                }
+
+                assertEquals(expected, tree.max(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void set_updatesMax() throws Exception {
+        RangeMaxTree tree = new RangeMaxTree(new long[]{1, 5, 3}, 3);
+        tree.set(1, 0);
+
+        assertEquals(3, tree.max(0, 2));
+        assertEquals(1, tree.max(0, 1));
+    }
+
+    @Test
+    public void append_matchesScan() throws Exception {
+        Random random = new Random(7);
+        RangeMaxTree tree = new RangeMaxTree(new long[0], 0);
+        long[] values = new long[21];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000) - 500;
+            tree.append(values[i]);
+            assertEquals(i + 1, tree.size());
+
+            for (int from = 0; from <= i; from++) {
+                long expected = Long.MIN_VALUE;
+                for (int to = from; to <= i; to++) {
+                    expected = Math.max(expected, values[to]);
+                    assertEquals(expected, tree.max(from, to));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void max_emptyRangeThrows() throws Exception {
+        new RangeMaxTree(new long[]{1, 2}, 2).max(1, 0);
+    }
+}
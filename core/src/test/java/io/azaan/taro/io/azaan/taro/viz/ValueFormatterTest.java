@@ -0,0 +1,71 @@
+package io.azaan.taro.io.azaan.taro.viz;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class ValueFormatterTest {
+
+    @Test
+    public void label_shortensLargeValues() throws Exception {
+        ValueFormatter formatter = new ValueFormatter();
+
+        assertEquals("0", formatter.label(0));
+        assertEquals("950", formatter.label(950));
+        assertEquals("1k", formatter.label(1000));
+        assertEquals("1.9k", formatter.label(1950));
+        assertEquals("999.9k", formatter.label(999999));
+        assertEquals("1.2M", formatter.label(1250000));
+        assertEquals("3B", formatter.label(3000000000L));
+        assertEquals("9223372036.8B", formatter.label(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void label_negatives() throws Exception {
+        ValueFormatter formatter = new ValueFormatter();
+
+        assertEquals("-950", formatter.label(-950));
+        assertEquals("-1.2k", formatter.label(-1250));
+        assertEquals("-3.4M", formatter.label(-3400000));
+        assertEquals("-9223372036.8B", formatter.label(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void label_cents() throws Exception {
+        ValueFormatter formatter = new ValueFormatter("$", "", '.', '-', 100);
+
+        assertEquals("$12", formatter.label(1200));
+        assertEquals("$12.50", formatter.label(1250));
+        assertEquals("$0.05", formatter.label(5));
+        assertEquals("-$0.05", formatter.label(-5));
+        assertEquals("$1.2k", formatter.label(123456));
+        assertEquals("-$1.2M", formatter.label(-123456789));
+    }
+
+    @Test
+    public void label_isMemoized() throws Exception {
+        ValueFormatter formatter = new ValueFormatter();
+
+        assertSame(formatter.label(5000), formatter.label(5000));
+    }
+
+    @Test
+    public void currency_usesLocaleSymbolAndSeparator() throws Exception {
+        assertEquals("$1.2k", ValueFormatter.currency(Locale.US).label(123456));
+        assertEquals("1,2k", ValueFormatter.plain(Locale.GERMANY).label(1250));
+    }
+
+    @Test
+    public void format_writesAtOffset() throws Exception {
+        ValueFormatter formatter = new ValueFormatter();
+        char[] out = new char[formatter.maxLength() + 2];
+        out[0] = '[';
+
+        int length = formatter.format(-1250, out, 1);
+
+        assertEquals("[-1.2k", new String(out, 0, length + 1));
+        assertEquals("x=1.2k", formatter.append(new StringBuilder("x="), 1250).toString());
+    }
+}
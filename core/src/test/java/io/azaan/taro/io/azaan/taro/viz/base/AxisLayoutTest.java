@@ -0,0 +1,93 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+import static org.junit.Assert.*;
+
+public class AxisLayoutTest {
+
+    private static List<Slot> slots(int count) {
+        List<Slot> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            out.add(new Slot(i));
+        }
+        return out;
+    }
+
+    private static AxisLayout layout() {
+        return new AxisLayout(
+                1000, 50,
+                Orientation.HORIZONTAL, Alignment.START,
+                5, 10, 20,
+                1
+        );
+    }
+
+    @Test
+    public void placeRange_matchesFullPosition() throws Exception {
+        List<Slot> full = slots(10);
+        assertTrue(layout().position(full));
+
+        List<Slot> partial = slots(10);
+        AxisLayout layout = layout();
+        assertTrue(layout.measure(partial.size()));
+        layout.place(partial, 4, partial.size());
+
+        for (int i = 4; i < 10; i++) {
+            assertEquals(full.get(i)._x, partial.get(i)._x, 0);
+        }
+        assertEquals(0, partial.get(3)._x, 0);
+    }
+
+    @Test
+    public void appendWithRoomLeft_keepsGeometry() throws Exception {
+        AxisLayout before = layout();
+        assertTrue(before.measure(10));
+
+        AxisLayout after = layout();
+        assertTrue(after.measure(11));
+
+        assertTrue(after.sameGeometry(
+                before.slotWidth, before.slotHeight, before.slotSeparation,
+                before.slotStartX, before.slotStartY
+        ));
+    }
+
+    @Test
+    public void noSlots_notMeasured() throws Exception {
+        assertFalse(layout().measure(0));
+    }
+
+    @Test
+    public void nearestSlot_snapsToClosestCenter() throws Exception {
+        List<Slot> slots = slots(10);
+        AxisLayout layout = layout();
+        assertTrue(layout.position(slots));
+
+        float pitch = layout.slotWidth + layout.slotSeparation;
+        for (int i = 0; i < slots.size(); i++) {
+            float center = slots.get(i)._x + layout.slotWidth / 2f;
+
+            assertEquals(i, nearest(layout, slots, center));
+            assertEquals(i, nearest(layout, slots, center - pitch * 0.4f));
+            assertEquals(i, nearest(layout, slots, center + pitch * 0.4f));
+        }
+
+        assertEquals(0, nearest(layout, slots, -100));
+        assertEquals(9, nearest(layout, slots, 5000));
+    }
+
+    @Test
+    public void nearestSlot_noSlots() throws Exception {
+        assertEquals(-1, nearest(layout(), new ArrayList<Slot>(), 10));
+    }
+
+    private static int nearest(AxisLayout layout, List<Slot> slots, float pos) {
+        return AxisLayout.nearestSlot(slots, layout.orientation, layout.slotWidth, layout.slotHeight, pos);
+    }
+}
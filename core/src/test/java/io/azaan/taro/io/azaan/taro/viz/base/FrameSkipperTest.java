@@ -0,0 +1,57 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSkipperTest {
+
+    private static final long BUDGET = 16666667;
+
+    /**
+     * Runs frames at the display rate, reporting the given work for every
+     * drawn frame, and records which frames were drawn as 'd' or 's'
+     */
+    private static String run(FrameSkipper skipper, long start, int frames, long work) {
+        StringBuilder drawn = new StringBuilder();
+        for (int i = 0; i < frames; i++) {
+            if (skipper.onFrame(start + i * BUDGET)) {
+                drawn.append('d');
+                skipper.reportFrameWork(work);
+            } else {
+                drawn.append('s');
+            }
+        }
+
+        return drawn.toString();
+    }
+
+    @Test
+    public void onFrame_cheapFramesAreAllDrawn() throws Exception {
+        FrameSkipper skipper = new FrameSkipper(BUDGET);
+
+        assertEquals("dddddd", run(skipper, 0, 6, BUDGET / 4));
+        assertEquals(0, skipper.getSkip());
+    }
+
+    @Test
+    public void onFrame_expensiveDrawsSkipTwoInARowAndRecover() throws Exception {
+        FrameSkipper skipper = new FrameSkipper(BUDGET);
+
+        assertEquals("dsdssdssdss", run(skipper, 0, 11, BUDGET * 2));
+        assertEquals(FrameSkipper.MAX_SKIPPED_FRAMES, skipper.getSkip());
+
+        // one less frame skipped after every cheap draw
+        assertEquals("dsddddd", run(skipper, 11 * BUDGET, 7, BUDGET / 4));
+        assertEquals(0, skipper.getSkip());
+    }
+
+    @Test
+    public void onFrame_lateFrameSkips() throws Exception {
+        FrameSkipper skipper = new FrameSkipper(BUDGET);
+        skipper.onFrame(0);
+
+        assertFalse(skipper.onFrame(BUDGET * 3));
+        assertEquals(1, skipper.getSkip());
+    }
+}
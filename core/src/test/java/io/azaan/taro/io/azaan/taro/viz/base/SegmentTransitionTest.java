@@ -0,0 +1,117 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SegmentTransitionTest {
+
+    private static final float DELTA = 1e-4f;
+
+    /**
+     * One vertical segment per slot from 0 to height
+     */
+    private static float[] bars(float... heights) {
+        float[] lines = new float[heights.length * 4];
+        for (int i = 0; i < heights.length; i++) {
+            lines[i * 4] = i;
+            lines[i * 4 + 2] = i;
+            lines[i * 4 + 3] = heights[i];
+        }
+        return lines;
+    }
+
+    private static float[] tops(float[] lines, int count) {
+        float[] out = new float[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = lines[i * 4 + 3];
+        }
+        return out;
+    }
+
+    @Test
+    public void interpolate_movesFromStartToTarget() throws Exception {
+        SegmentTransition transition = new SegmentTransition();
+        transition.begin(bars(10, 20), 0, 2, 1, 4);
+
+        float[] target = bars(30, 0);
+        transition.pairUp(target, 0, 2, 1, 8);
+
+        transition.setProgress(0.5f);
+        assertArrayEquals(new float[]{20, 10}, tops(transition.interpolate(target, 8), 2), DELTA);
+        assertEquals(6, transition.interpolateStroke(8), DELTA);
+
+        transition.setProgress(1);
+        assertFalse(transition.isRunning());
+    }
+
+    @Test
+    public void pairUp_newSlotsGrowFromTheBottom() throws Exception {
+        SegmentTransition transition = new SegmentTransition();
+        transition.begin(bars(10), 0, 1, 1, 4);
+
+        float[] target = bars(30, 40);
+        transition.pairUp(target, 0, 2, 1, 4);
+
+        assertArrayEquals(new float[]{10, 0}, tops(transition.interpolate(target, 8), 2), DELTA);
+    }
+
+    @Test
+    public void begin_twiceBeforeTargetKeepsScreen() throws Exception {
+        SegmentTransition transition = new SegmentTransition();
+        float[] shown = bars(10, 20);
+        transition.begin(shown, 0, 2, 1, 4);
+
+        // second data change before the geometry was rebuilt
+        transition.begin(bars(50, 60), 0, 2, 1, 4);
+
+        float[] target = bars(30, 40);
+        transition.pairUp(target, 0, 2, 1, 4);
+        assertArrayEquals(new float[]{10, 20}, tops(transition.interpolate(target, 8), 2), DELTA);
+    }
+
+    @Test
+    public void begin_twiceBeforeFrameStartsFromScreen() throws Exception {
+        SegmentTransition transition = new SegmentTransition();
+        transition.begin(bars(10, 20), 0, 2, 1, 4);
+
+        float[] first = bars(30, 40);
+        transition.pairUp(first, 0, 2, 1, 4);
+
+        // second data change before a frame of the first was drawn,
+        // the bars are still where the first transition started
+        transition.begin(first, 0, 2, 1, 4);
+
+        float[] second = bars(0, 0);
+        transition.pairUp(second, 0, 2, 1, 4);
+        assertArrayEquals(new float[]{10, 20}, tops(transition.interpolate(second, 8), 2), DELTA);
+
+        // and half way through it begins again
+        transition.setProgress(0.5f);
+        transition.begin(second, 0, 2, 1, 4);
+        transition.pairUp(first, 0, 2, 1, 4);
+        assertArrayEquals(new float[]{5, 10}, tops(transition.interpolate(first, 8), 2), DELTA);
+    }
+
+    @Test
+    public void retarget_carriesOnFromScreen() throws Exception {
+        SegmentTransition transition = new SegmentTransition();
+        transition.begin(bars(0, 0, 0), 0, 3, 1, 4);
+
+        float[] target = bars(10, 20, 30);
+        transition.pairUp(target, 0, 3, 1, 4);
+        transition.setProgress(0.5f);
+
+        // scrolled by one slot mid transition
+        transition.retarget(target, 0, 3, 1, 4);
+        float[] scrolled = Arrays.copyOfRange(bars(0, 20, 30, 40), 4, 16);
+        transition.pairUp(scrolled, 1, 3, 1, 4);
+
+        assertArrayEquals(new float[]{10, 15, 0}, tops(transition.interpolate(scrolled, 12), 3), DELTA);
+
+        transition.setProgress(0.75f);
+        assertArrayEquals(new float[]{15, 22.5f, 20}, tops(transition.interpolate(scrolled, 12), 3), DELTA);
+    }
+}
@@ -0,0 +1,59 @@
+package io.azaan.taro.io.azaan.taro.viz.base;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+
+import static org.junit.Assert.*;
+
+public class SlotIndexTest {
+
+    private static List<Slot> slots(int... ids) {
+        List<Slot> out = new ArrayList<>();
+        for (int id : ids) {
+            out.add(new Slot(id));
+        }
+        return out;
+    }
+
+    @Test
+    public void denseIds_lookupPosition() throws Exception {
+        SlotIndex index = new SlotIndex();
+        index.rebuild(slots(2, 0, 1));
+
+        assertEquals(1, index.indexOf(0));
+        assertEquals(2, index.indexOf(1));
+        assertEquals(0, index.indexOf(2));
+        assertEquals(SlotIndex.NOT_FOUND, index.indexOf(3));
+        assertEquals(SlotIndex.NOT_FOUND, index.indexOf(-1));
+    }
+
+    @Test
+    public void sparseIds_lookupPosition() throws Exception {
+        SlotIndex index = new SlotIndex();
+        index.rebuild(slots("Sun".hashCode(), Integer.MIN_VALUE, Integer.MAX_VALUE, 7));
+
+        assertEquals(0, index.indexOf("Sun".hashCode()));
+        assertEquals(1, index.indexOf(Integer.MIN_VALUE));
+        assertEquals(2, index.indexOf(Integer.MAX_VALUE));
+        assertEquals(3, index.indexOf(7));
+        assertEquals(SlotIndex.NOT_FOUND, index.indexOf(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateIds_throw() throws Exception {
+        new SlotIndex().rebuild(slots(1, 5, 1));
+    }
+
+    @Test
+    public void emptySlots_notFound() throws Exception {
+        SlotIndex index = new SlotIndex();
+        index.rebuild(slots());
+
+        assertEquals(0, index.size());
+        assertEquals(SlotIndex.NOT_FOUND, index.indexOf(0));
+    }
+}
@@ -0,0 +1,76 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BarStacksTest {
+
+    @Test
+    public void offsets_arePrefixSums() throws Exception {
+        BarStacks stacks = new BarStacks(new long[]{1, 2, 3, 4, 0, 6}, 3);
+
+        assertEquals(2, stacks.getBarCount());
+        assertEquals(4, stacks.getOffsetStride());
+        assertEquals(6, stacks.getTotal(0));
+        assertEquals(10, stacks.getTotal(1));
+
+        assertEquals(0f, stacks.getBottom(0, 0), 0f);
+        assertEquals(1f, stacks.getTop(0, 0), 0f);
+        assertEquals(3f, stacks.getBottom(0, 2), 0f);
+        assertEquals(6f, stacks.getTop(0, 2), 0f);
+        assertEquals(4f, stacks.getBottom(1, 1), 0f);
+        assertEquals(4f, stacks.getTop(1, 1), 0f);
+    }
+
+    @Test
+    public void setBar_restacksOnlyThatBar() throws Exception {
+        BarStacks stacks = new BarStacks(new long[]{1, 2, 3, 4}, 2);
+
+        stacks.setBar(1, 10);
+
+        assertEquals(3, stacks.getTotal(0));
+        assertEquals(10, stacks.getValue(1, 0));
+        assertEquals(0, stacks.getValue(1, 1));
+        assertEquals(10f, stacks.getTop(1, 1), 0f);
+    }
+
+    @Test
+    public void addAndRemoveBars() throws Exception {
+        BarStacks stacks = new BarStacks(2);
+        for (int i = 0; i < 40; i++) {
+            stacks.addBar(i, 1);
+        }
+
+        stacks.removeBar(0);
+
+        assertEquals(39, stacks.getBarCount());
+        assertEquals(1, stacks.getValue(0, 0));
+        assertEquals(2, stacks.getTotal(0));
+        assertEquals(40, stacks.getTotal(38));
+        assertEquals(39f, stacks.getBottom(38, 1), 0f);
+    }
+
+    @Test
+    public void categoryAt_findsSegment() throws Exception {
+        BarStacks stacks = new BarStacks(new long[]{2, 0, 3, 0}, 4);
+
+        assertEquals(0, stacks.categoryAt(0, 0f));
+        assertEquals(0, stacks.categoryAt(0, 1.5f));
+        assertEquals(2, stacks.categoryAt(0, 2f));
+        assertEquals(2, stacks.categoryAt(0, 5f));
+        assertEquals(-1, stacks.categoryAt(0, 5.5f));
+        assertEquals(-1, stacks.categoryAt(0, -1f));
+    }
+
+    @Test
+    public void sameBar_comparesValues() throws Exception {
+        BarStacks a = new BarStacks(new long[]{1, 2, 3, 4}, 2);
+        BarStacks b = a.copy();
+        b.setBar(1, 3, 5);
+
+        assertTrue(a.sameBar(0, b, 0));
+        assertFalse(a.sameBar(1, b, 1));
+        assertFalse(a.sameBar(0, BarStacks.of(new long[]{3}), 0));
+    }
+}
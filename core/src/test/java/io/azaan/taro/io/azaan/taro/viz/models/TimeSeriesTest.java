@@ -0,0 +1,29 @@
+package io.azaan.taro.io.azaan.taro.viz.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesTest {
+
+    @Test
+    public void indexAtOrAfter_binarySearch() throws Exception {
+        TimeSeries series = new TimeSeries(2);
+        for (int i = 0; i < 100; i++) {
+            series.add(i * 10, i);
+        }
+
+        assertEquals(100, series.size());
+        assertEquals(0, series.indexAtOrAfter(-5));
+        assertEquals(3, series.indexAtOrAfter(30));
+        assertEquals(4, series.indexAtOrAfter(31));
+        assertEquals(100, series.indexAtOrAfter(991));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsPointsOutOfOrder() throws Exception {
+        TimeSeries series = new TimeSeries();
+        series.add(10, 1);
+        series.add(9, 1);
+    }
+}
@@ -0,0 +1,294 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.azaan.taro.io.azaan.taro.viz.AxisHelpers;
+import io.azaan.taro.io.azaan.taro.viz.ValueFormatter;
+import io.azaan.taro.io.azaan.taro.viz.base.Alignment;
+import io.azaan.taro.io.azaan.taro.viz.base.AxisLayout;
+import io.azaan.taro.io.azaan.taro.viz.base.Orientation;
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.Slot;
+import io.azaan.taro.io.azaan.taro.viz.models.StackedBarData;
+
+/**
+ * Renders bar charts to images without Android.
+ *
+ * Slots are built and laid out with the same AxisHelpers and AxisLayout
+ * code the StackedBarChart view uses, with the same default spacing, so
+ * an image matches the chart on a device of the given density.
+ *
+ * A renderer keeps its drawing surfaces between charts and is not thread
+ * safe, use one per thread (see {@link BatchRenderer}).
+ */
+public class BarChartRenderer {
+
+    /**
+     * Most ticks on the y axis
+     */
+    private static final int Y_TICK_COUNT = 5;
+
+
+    /**
+     * Share of the text size left between labels
+     */
+    private static final float LABEL_GAP = 0.5f;
+
+
+    /**
+     * Image size in pixels
+     */
+    private final int mWidth;
+    private final int mHeight;
+
+
+    /**
+     * Dimensions in pixels, from the dp defaults of BaseChart and BaseAxis
+     */
+    private final float mXAxisHeight;
+    private final float mYAxisWidth;
+    private final float mMinSeparation;
+    private final float mMaxSeparation;
+    private final float mMaxSlotWidth;
+    private final float mTextSize;
+
+
+    /**
+     * Colors, ARGB
+     */
+    private int mBackgroundColor = 0xFFFFFFFF;
+    private int mBarColor = 0xFF3F51B5;
+    private int mLabelColor = 0xFF424242;
+    private int mLineColor = 0xFF9E9E9E;
+
+
+    /**
+     * Formats the y tick labels, memoized across charts
+     */
+    private ValueFormatter mValueFormatter = new ValueFormatter();
+
+
+    /**
+     * Surfaces, created on first use
+     */
+    private SvgSurface mSvg;
+    private PngSurface mPng;
+
+
+    /**
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param density pixels per dp, 1 for mdpi, 3 for xxhdpi
+     */
+    public BarChartRenderer(int width, int height, float density) {
+        if (width <= 0 || height <= 0 || density <= 0) {
+            throw new IllegalArgumentException("Invalid size width=" + width + " height=" + height + " density=" + density);
+        }
+
+        mWidth = width;
+        mHeight = height;
+
+        mXAxisHeight = (float) Math.floor(30 * density);
+        mYAxisWidth = (float) Math.floor(30 * density);
+        mMinSeparation = 5 * density;
+        mMaxSeparation = 20 * density;
+        mMaxSlotWidth = 30 * density;
+        mTextSize = 10 * density;
+    }
+
+
+    /**
+     * Renders a chart of the data
+     *
+     * @param data data to display
+     * @param format image format
+     * @param out stream the image is written to, not closed
+     */
+    public void render(List<StackedBarData> data, ImageFormat format, OutputStream out) throws IOException {
+        List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(data);
+        render(xSlots, AxisHelpers.sumByXSlot(data, xSlots), format, out);
+    }
+
+
+    /**
+     * Renders a chart of columnar data
+     *
+     * @param data data to display
+     * @param format image format
+     * @param out stream the image is written to, not closed
+     */
+    public void render(ColumnarData data, ImageFormat format, OutputStream out) throws IOException {
+        List<Slot> xSlots = AxisHelpers.makeDiscreteXSlots(data);
+        render(xSlots, AxisHelpers.sumByXSlot(data, xSlots), format, out);
+    }
+
+
+    private void render(List<Slot> xSlots, long[] values, ImageFormat format, OutputStream out) throws IOException {
+        Surface surface = surfaceFor(format);
+        surface.begin(mWidth, mHeight, mBackgroundColor);
+
+        float graphX = mYAxisWidth;
+        float graphWidth = mWidth - mYAxisWidth;
+        float graphHeight = mHeight - mXAxisHeight;
+
+        // lay out the axes like BaseChart does for the view
+        AxisLayout xLayout = new AxisLayout(
+                graphWidth, mXAxisHeight,
+                Orientation.HORIZONTAL, Alignment.CENTER,
+                mMinSeparation, mMaxSeparation, mMaxSlotWidth,
+                1
+        );
+        xLayout.prepare(xSlots);
+
+        long max = 0;
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+
+        long[] ticks = AxisHelpers.niceTicks(max, Y_TICK_COUNT);
+        AxisLayout yLayout = new AxisLayout(
+                mYAxisWidth, graphHeight,
+                Orientation.VERTICAL, Alignment.START,
+                mMinSeparation, mMaxSeparation, mMaxSlotWidth,
+                1
+        );
+        yLayout.prepare(makeYSlots(ticks, mValueFormatter));
+
+        if (xLayout.isLaidOut() && yLayout.isLaidOut()) {
+            drawBars(surface, xLayout, yLayout, values, ticks[ticks.length - 1], graphX);
+            drawXLabels(surface, xLayout, graphX, graphHeight);
+            drawYLabels(surface, yLayout);
+        }
+
+        // axis lines
+        surface.line(graphX, graphHeight, mWidth, graphHeight, 1, mLineColor);
+        surface.line(graphX, 0, graphX, graphHeight, 1, mLineColor);
+
+        surface.finish(out);
+    }
+
+
+    /**
+     * Maps values linearly between the centers of the 0 and top
+     * y ticks, same as BarGeometry
+     */
+    private void drawBars(Surface surface, AxisLayout xLayout, AxisLayout yLayout,
+                          long[] values, long yMax, float graphX) {
+        if (yMax <= 0) {
+            return;
+        }
+
+        int yTicks = yLayout.getSlots().size();
+        float baseY = yLayout.getCenterPos(0);
+        float topY = yLayout.getCenterPos(yTicks - 1);
+        float scale = (topY - baseY) / yMax;
+
+        List<Slot> slots = xLayout.getSlots();
+        float slotWidth = xLayout.getSlotWidth();
+
+        for (int i = 0; i < slots.size(); i++) {
+            long value = values[slots.get(i).id];
+            if (value == 0) {
+                continue;
+            }
+
+            float top = baseY + value * scale;
+            surface.fillRect(graphX + slots.get(i)._x, Math.min(top, baseY), slotWidth, Math.abs(top - baseY), mBarColor);
+        }
+    }
+
+
+    /**
+     * Draws every k-th x label, k chosen so that the widest label fits
+     */
+    private void drawXLabels(Surface surface, AxisLayout xLayout, float graphX, float axisTop) {
+        List<Slot> slots = xLayout.getSlots();
+        float pitch = xLayout.getSlotWidth() + xLayout.getSlotSeparation();
+
+        float maxLabelWidth = 0;
+        for (int i = 0; i < slots.size(); i++) {
+            String label = slots.get(i).label;
+            if (label != null)
+                maxLabelWidth = Math.max(maxLabelWidth, surface.measureText(label, mTextSize));
+        }
+
+        int stride = pitch <= 0 ? 1 : Math.max(1, (int) Math.ceil((maxLabelWidth + mTextSize * LABEL_GAP) / pitch));
+        float baseline = axisTop + (mXAxisHeight + mTextSize) / 2f;
+
+        for (int i = 0; i < slots.size(); i += stride) {
+            Slot slot = slots.get(i);
+            if (slot.label == null) {
+                continue;
+            }
+
+            float x = graphX + slot._x + xLayout.getSlotWidth() / 2f;
+            surface.text(slot.label, x, baseline, mTextSize, true, mLabelColor);
+        }
+    }
+
+
+    private void drawYLabels(Surface surface, AxisLayout yLayout) {
+        List<Slot> slots = yLayout.getSlots();
+
+        for (int i = 0; i < slots.size(); i++) {
+            Slot slot = slots.get(i);
+            float center = slot._y + yLayout.getSlotHeight() / 2f;
+            surface.text(slot.label, mYAxisWidth / 2f, center + mTextSize / 3f, mTextSize, true, mLabelColor);
+        }
+    }
+
+
+    private Surface surfaceFor(ImageFormat format) {
+        switch (format) {
+            case SVG:
+                if (mSvg == null)
+                    mSvg = new SvgSurface();
+                return mSvg;
+
+            case PNG:
+                if (mPng == null)
+                    mPng = new PngSurface();
+                return mPng;
+        }
+
+        throw new IllegalArgumentException("Unknown format=" + format);
+    }
+
+
+    /**
+     * Same y slots as StackedBarChart, tick i has id i
+     */
+    private static List<Slot> makeYSlots(long[] ticks, ValueFormatter formatter) {
+        List<Slot> ySlots = new ArrayList<>(ticks.length);
+        for (int i = 0; i < ticks.length; i++) {
+            String label = formatter.label(ticks[i]);
+            ySlots.add(new Slot(i, label, false, true));
+        }
+
+        return ySlots;
+    }
+
+
+    public void setBackgroundColor(int color) {
+        mBackgroundColor = color;
+    }
+
+    public void setBarColor(int color) {
+        mBarColor = color;
+    }
+
+    public void setLabelColor(int color) {
+        mLabelColor = color;
+    }
+
+    public void setLineColor(int color) {
+        mLineColor = color;
+    }
+
+    public void setValueFormatter(ValueFormatter formatter) {
+        mValueFormatter = formatter;
+    }
+}
@@ -0,0 +1,144 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders many charts in parallel, for example a monthly report per
+ * account.
+ *
+ * Jobs run on a fixed pool of threads, by default one per core. Every
+ * thread has its own {@link BarChartRenderer} that is reused for all the
+ * jobs it runs, so images and buffers are only allocated once per thread.
+ */
+public class BatchRenderer implements Closeable {
+
+    private final ExecutorService mExecutor;
+
+
+    /**
+     * Renderer of each pool thread
+     */
+    private final ThreadLocal<BarChartRenderer> mRenderers;
+
+
+    /**
+     * Uses one thread per core
+     *
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param density pixels per dp
+     */
+    public BatchRenderer(int width, int height, float density) {
+        this(width, height, density, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param density pixels per dp
+     * @param threads number of render threads
+     */
+    public BatchRenderer(final int width, final int height, final float density, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid thread count=" + threads);
+        }
+
+        // fail here rather than on every job
+        new BarChartRenderer(width, height, density);
+
+        mRenderers = new ThreadLocal<BarChartRenderer>() {
+            @Override
+            protected BarChartRenderer initialValue() {
+                return new BarChartRenderer(width, height, density);
+            }
+        };
+
+        final AtomicInteger count = new AtomicInteger();
+        mExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "chart-render-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Renders all jobs and waits for them to finish. If jobs fail the
+     * others still run, the first failure is thrown once all are done.
+     *
+     * @param jobs charts to render
+     * @throws IOException if a chart could not be rendered or written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void renderAll(List<RenderJob> jobs) throws IOException, InterruptedException {
+        List<Future<Void>> futures = new ArrayList<>(jobs.size());
+        for (final RenderJob job : jobs) {
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    render(job);
+                    return null;
+                }
+            }));
+        }
+
+        IOException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = asIOException(e.getCause());
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+
+    /**
+     * Stops the render threads once the running jobs are done
+     */
+    @Override
+    public void close() {
+        mExecutor.shutdown();
+    }
+
+
+    private void render(RenderJob job) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(job.output));
+        try {
+            mRenderers.get().render(job.data, job.format, out);
+        } finally {
+            out.close();
+        }
+    }
+
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+
+        return new IOException("Rendering failed", cause);
+    }
+}
@@ -0,0 +1,8 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+/**
+ * Output format of a rendered chart
+ */
+public enum ImageFormat {
+    PNG, SVG
+}
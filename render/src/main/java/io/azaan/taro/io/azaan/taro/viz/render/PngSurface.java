@@ -0,0 +1,113 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Draws into a BufferedImage with Java2D and encodes it as PNG. The image
+ * is kept between charts of the same size so a renderer drawing many
+ * charts only allocates it once.
+ */
+class PngSurface implements Surface {
+
+    private BufferedImage mImage;
+    private Graphics2D mGraphics;
+
+
+    /**
+     * Size of the font set on mGraphics, 0 if none
+     */
+    private float mFontSize = 0;
+
+
+    /**
+     * Reused shapes
+     */
+    private final Rectangle2D.Float mRect = new Rectangle2D.Float();
+    private final Line2D.Float mLine = new Line2D.Float();
+
+
+    @Override
+    public void begin(int w, int h, int background) {
+        if (mImage == null || mImage.getWidth() != w || mImage.getHeight() != h) {
+            if (mGraphics != null)
+                mGraphics.dispose();
+
+            mImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            mGraphics = mImage.createGraphics();
+            mFontSize = 0;
+            mGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            mGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        }
+
+        // clear what the previous chart left behind
+        mGraphics.setComposite(AlphaComposite.Src);
+        mGraphics.setColor(new Color(background, true));
+        mGraphics.fillRect(0, 0, w, h);
+        mGraphics.setComposite(AlphaComposite.SrcOver);
+    }
+
+
+    @Override
+    public void fillRect(float x, float y, float w, float h, int color) {
+        mRect.setRect(x, y, w, h);
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fill(mRect);
+    }
+
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2, float width, int color) {
+        mLine.setLine(x1, y1, x2, y2);
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.setStroke(new BasicStroke(width));
+        mGraphics.draw(mLine);
+    }
+
+
+    @Override
+    public void text(String text, float x, float y, float size, boolean center, int color) {
+        useFont(size);
+
+        if (center) {
+            x -= measureText(text, size) / 2f;
+        }
+
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.drawString(text, x, y);
+    }
+
+
+    @Override
+    public float measureText(String text, float size) {
+        useFont(size);
+        return (float) mGraphics.getFontMetrics().getStringBounds(text, mGraphics).getWidth();
+    }
+
+
+    @Override
+    public void finish(OutputStream out) throws IOException {
+        if (!ImageIO.write(mImage, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+
+    private void useFont(float size) {
+        if (mFontSize != size) {
+            mGraphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(size));
+            mFontSize = size;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.io.File;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+
+/**
+ * A chart to render in a batch: its data and the file to write it to
+ */
+public class RenderJob {
+    public final ColumnarData data;
+    public final File output;
+    public final ImageFormat format;
+
+    /**
+     * @param data data to display, must not be modified until the batch is done
+     * @param output file the image is written to
+     * @param format image format
+     */
+    public RenderJob(ColumnarData data, File output, ImageFormat format) {
+        this.data = data;
+        this.output = output;
+        this.format = format;
+    }
+}
@@ -0,0 +1,31 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Something a chart can be drawn on. Colors are ARGB ints like
+ * android.graphics.Color. A surface is reused for many charts, each
+ * one starts with {@link #begin} and ends with {@link #finish}.
+ */
+interface Surface {
+
+    void begin(int w, int h, int background);
+
+    void fillRect(float x, float y, float w, float h, int color);
+
+    void line(float x1, float y1, float x2, float y2, float width, int color);
+
+    /**
+     * Draws text with its baseline at y, centered on x if center
+     * is true, otherwise starting at x
+     */
+    void text(String text, float x, float y, float size, boolean center, int color);
+
+    float measureText(String text, float size);
+
+    /**
+     * Writes the chart drawn since {@link #begin} to out
+     */
+    void finish(OutputStream out) throws IOException;
+}
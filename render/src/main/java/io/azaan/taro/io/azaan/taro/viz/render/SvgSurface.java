@@ -0,0 +1,171 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Draws into an SVG document. The document is built in a reused
+ * StringBuilder and written out in one go.
+ */
+class SvgSurface implements Surface {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+    /**
+     * Average advance of a glyph relative to the text size, used to
+     * measure text without fonts. Close enough for sans-serif digits
+     * and dates.
+     */
+    private static final float CHAR_WIDTH = 0.55f;
+
+
+    private final StringBuilder mSvg = new StringBuilder(16 * 1024);
+
+
+    @Override
+    public void begin(int w, int h, int background) {
+        mSvg.setLength(0);
+        mSvg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(w)
+                .append("\" height=\"").append(h)
+                .append("\" viewBox=\"0 0 ").append(w).append(' ').append(h).append("\">\n");
+
+        if (alpha(background) != 0) {
+            fillRect(0, 0, w, h, background);
+        }
+    }
+
+
+    @Override
+    public void fillRect(float x, float y, float w, float h, int color) {
+        mSvg.append("<rect x=\"");
+        number(x).append("\" y=\"");
+        number(y).append("\" width=\"");
+        number(w).append("\" height=\"");
+        number(h).append('"');
+        paint("fill", color).append("/>\n");
+    }
+
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2, float width, int color) {
+        mSvg.append("<line x1=\"");
+        number(x1).append("\" y1=\"");
+        number(y1).append("\" x2=\"");
+        number(x2).append("\" y2=\"");
+        number(y2).append("\" stroke-width=\"");
+        number(width).append('"');
+        paint("stroke", color).append("/>\n");
+    }
+
+
+    @Override
+    public void text(String text, float x, float y, float size, boolean center, int color) {
+        mSvg.append("<text x=\"");
+        number(x).append("\" y=\"");
+        number(y).append("\" font-family=\"sans-serif\" font-size=\"");
+        number(size).append('"');
+
+        if (center) {
+            mSvg.append(" text-anchor=\"middle\"");
+        }
+
+        paint("fill", color).append('>');
+        escape(text).append("</text>\n");
+    }
+
+
+    @Override
+    public float measureText(String text, float size) {
+        return text.length() * size * CHAR_WIDTH;
+    }
+
+
+    @Override
+    public void finish(OutputStream out) throws IOException {
+        mSvg.append("</svg>\n");
+
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.append(mSvg);
+        writer.flush();
+    }
+
+
+    /**
+     * Appends a coordinate rounded to 2 decimals
+     */
+    private StringBuilder number(float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            mSvg.append('-');
+            hundredths = -hundredths;
+        }
+
+        mSvg.append(hundredths / 100);
+
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            mSvg.append('.');
+            if (fraction < 10)
+                mSvg.append('0');
+            mSvg.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+        }
+
+        return mSvg;
+    }
+
+
+    /**
+     * Appends a fill or stroke attribute with the opacity if needed
+     */
+    private StringBuilder paint(String attribute, int color) {
+        mSvg.append(' ').append(attribute).append("=\"#");
+        hex(color >>> 16 & 0xFF);
+        hex(color >>> 8 & 0xFF);
+        hex(color & 0xFF);
+        mSvg.append('"');
+
+        int alpha = alpha(color);
+        if (alpha != 0xFF) {
+            mSvg.append(' ').append(attribute).append("-opacity=\"");
+            number(alpha / 255f).append('"');
+        }
+
+        return mSvg;
+    }
+
+
+    private void hex(int value) {
+        mSvg.append(Character.forDigit(value >>> 4, 16)).append(Character.forDigit(value & 0xF, 16));
+    }
+
+
+    private StringBuilder escape(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    mSvg.append("&lt;");
+                    break;
+                case '>':
+                    mSvg.append("&gt;");
+                    break;
+                case '&':
+                    mSvg.append("&amp;");
+                    break;
+                default:
+                    mSvg.append(c);
+            }
+        }
+
+        return mSvg;
+    }
+
+
+    private static int alpha(int color) {
+        return color >>> 24;
+    }
+}
@@ -0,0 +1,87 @@
+package io.azaan.taro.io.azaan.taro.viz.render;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import io.azaan.taro.io.azaan.taro.viz.models.ColumnarData;
+import io.azaan.taro.io.azaan.taro.viz.models.LabelDictionary;
+
+import static org.junit.Assert.*;
+
+public class BarChartRendererTest {
+
+    private static ColumnarData data(int days) {
+        ColumnarData data = new ColumnarData(new LabelDictionary(), days);
+        for (int i = 0; i < days; i++) {
+            data.add("2016-01-" + (i < 9 ? "0" : "") + (i + 1), (i + 1) * 1000);
+        }
+        return data;
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void svg_oneRectPerBarPlusBackground() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BarChartRenderer(400, 300, 1).render(data(7), ImageFormat.SVG, out);
+
+        String svg = out.toString("UTF-8");
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.trim().endsWith("</svg>"));
+        assertEquals(7 + 1, count(svg, "<rect"));
+        assertTrue(svg.contains(">2016-01-01</text>"));
+    }
+
+    @Test
+    public void png_reusedRendererKeepsSize() throws Exception {
+        BarChartRenderer renderer = new BarChartRenderer(320, 200, 2);
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderer.render(data(7 + i), ImageFormat.PNG, out);
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(320, image.getWidth());
+            assertEquals(200, image.getHeight());
+        }
+    }
+
+    @Test
+    public void batch_rendersEveryJob() throws Exception {
+        File dir = File.createTempFile("charts", "");
+        assertTrue(dir.delete() && dir.mkdir());
+
+        List<RenderJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            ImageFormat format = i % 2 == 0 ? ImageFormat.PNG : ImageFormat.SVG;
+            jobs.add(new RenderJob(data(1 + i % 28), new File(dir, "chart" + i), format));
+        }
+
+        BatchRenderer batch = new BatchRenderer(200, 100, 1, 4);
+        try {
+            batch.renderAll(jobs);
+        } finally {
+            batch.close();
+        }
+
+        for (RenderJob job : jobs) {
+            assertTrue(job.output.length() > 0);
+            assertTrue(job.output.delete());
+        }
+        assertTrue(dir.delete());
+    }
+}